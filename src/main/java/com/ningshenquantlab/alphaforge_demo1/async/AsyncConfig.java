@@ -1,4 +1,75 @@
 package com.ningshenquantlab.alphaforge_demo1.async;
 //异步配置
-public class AsyncConfig {
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步配置
+ * - 默认 @Async 线程池：对应 application.yml 中的 async.executor.*
+ * - taskEventExecutor：任务生命周期事件（executor.event）的订阅方使用，单线程保证事件按发布顺序处理，
+ *   队列满时丢弃事件而不是阻塞发布方（输出抽取线程、进程回调线程）；退出事件上的内存清理由订阅方在发布线程上同步执行，
+ *   不会随事件一起被丢弃
+ */
+@Slf4j
+@Configuration
+@EnableAsync
+public class AsyncConfig implements AsyncConfigurer {
+
+    @Value("${async.executor.core-pool-size:5}")
+    private int corePoolSize;
+
+    @Value("${async.executor.max-pool-size:10}")
+    private int maxPoolSize;
+
+    @Value("${async.executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${async.executor.thread-name-prefix:quant-async-}")
+    private String threadNamePrefix;
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    @Override
+    public Executor getAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) -> log.error("异步方法执行失败: {}.{}", method.getDeclaringClass().getSimpleName(),
+                method.getName(), ex);
+    }
+
+    @Bean(name = "taskEventExecutor")
+    public ThreadPoolTaskExecutor taskEventExecutor(@Value("${async.task-events.queue-capacity:10000}") int capacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(capacity);
+        executor.setThreadNamePrefix("task-event-");
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            long dropped = droppedEvents.incrementAndGet();
+            // 每丢弃 1000 个事件记录一次，避免日志刷屏
+            if (dropped % 1000 == 1) {
+                log.warn("任务事件队列已满，丢弃事件: 累计丢弃 {} 个", dropped);
+            }
+        });
+        return executor;
+    }
 }
@@ -1,4 +1,166 @@
 package com.ningshenquantlab.alphaforge_demo1.async;
 //异步任务执行器
+
+import com.ningshenquantlab.alphaforge_demo1.config.TaskQueueConfig;
+import com.ningshenquantlab.alphaforge_demo1.monitor.ResourceMonitor;
+import com.ningshenquantlab.alphaforge_demo1.monitor.ResourceSnapshot;
+import com.ningshenquantlab.alphaforge_demo1.monitor.TaskMetrics;
+import com.ningshenquantlab.alphaforge_demo1.quant.service.TaskService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步任务执行器
+ * 单个调度线程从 TaskQueue 取出可运行的任务交给 TaskService 启动；子进程本身是异步执行的，
+ * 调度线程不会等待任务结束。队列有变化（入队、任务结束）时被唤醒，否则每秒检查一次。
+ *
+ * 准入控制（task.queue.admission）：并发上限之内，任务还要满足主机资源条件才会出队，否则继续排队：
+ * - 系统 CPU 使用率不超过 max-cpu-usage
+ * - 可用内存 - 运行中任务预计还会增长的内存（预计内存 - 当前 RSS，不小于0）- 新任务预计内存 >= min-available-memory-mb
+ * 没有运行中的任务时总是放行，避免预计内存配置过大导致任务永远无法启动。
+ * 运行中的任务取自 TaskService（含服务重启后接管的进程），进程退出即不再计入，等待自动重试期间不占用预留内存。
+ */
+@Slf4j
+@Component
 public class AsyncTaskExecutor {
+
+    // 没有队列变化时的最长等待时间（毫秒）
+    private static final long IDLE_WAIT_MS = 1000;
+    // 准入拒绝日志的最小间隔
+    private static final long REJECT_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long MB = 1024L * 1024;
+
+    private final TaskQueue taskQueue;
+    private final TaskService taskService;
+    private final ResourceMonitor resourceMonitor;
+    private final TaskQueueConfig.Admission admission;
+    private final TaskMetrics taskMetrics;
+
+    private volatile boolean running = true;
+    private Thread dispatcher;
+    // 上次输出准入拒绝日志的时间，只由调度线程访问
+    private long lastRejectLogNanos = System.nanoTime() - REJECT_LOG_INTERVAL_NANOS;
+
+    @Autowired
+    public AsyncTaskExecutor(TaskQueue taskQueue, TaskService taskService,
+                             ResourceMonitor resourceMonitor, TaskQueueConfig taskQueueConfig,
+                             TaskMetrics taskMetrics) {
+        this.taskQueue = taskQueue;
+        this.taskService = taskService;
+        this.resourceMonitor = resourceMonitor;
+        this.admission = taskQueueConfig.getAdmission();
+        this.taskMetrics = taskMetrics;
+    }
+
+    /**
+     * 应用启动完成后恢复上次未结束的任务（RUNNING、PENDING）并启动调度线程
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        try {
+            taskService.recoverRunning();
+        } catch (RuntimeException e) {
+            log.error("恢复运行中任务失败", e);
+        }
+        try {
+            int recovered = taskService.recoverPending();
+            if (recovered > 0) {
+                log.info("重新入队待执行任务: {} 个", recovered);
+            }
+        } catch (RuntimeException e) {
+            log.error("恢复待执行任务失败", e);
+        }
+        dispatcher = new Thread(this::dispatchLoop, "task-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                QueuedTask task;
+                while ((task = taskQueue.poll(this::admit)) != null) {
+                    launch(task);
+                }
+                taskQueue.awaitChange(IDLE_WAIT_MS);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("任务调度异常", e);
+            }
+        }
+    }
+
+    /**
+     * 主机资源是否足够启动该任务
+     */
+    private boolean admit(QueuedTask task) {
+        if (!Boolean.TRUE.equals(admission.getEnabled())) {
+            return true;
+        }
+        Collection<QueuedTask> runningTasks = taskService.getRunningTasks();
+        if (runningTasks.isEmpty()) {
+            return true;
+        }
+        ResourceSnapshot snapshot = resourceMonitor.getSnapshot();
+        if (snapshot == null) {
+            return true;
+        }
+        if (snapshot.getCpuUsage() > admission.getMaxCpuUsage()) {
+            rejected(task, String.format("CPU 使用率 %.0f%% 超过上限 %.0f%%",
+                    snapshot.getCpuUsage() * 100, admission.getMaxCpuUsage() * 100));
+            return false;
+        }
+        if (snapshot.getAvailableMemoryBytes() < 0) {
+            return true;
+        }
+        // 运行中的任务还没涨到预计内存的部分视为已被占用
+        long reserved = 0;
+        for (QueuedTask runningTask : runningTasks) {
+            long rss = Math.max(0, resourceMonitor.taskRssBytes(runningTask.getTaskId()));
+            reserved += Math.max(0, runningTask.getExpectedMemoryMb() * MB - rss);
+        }
+        long remaining = snapshot.getAvailableMemoryBytes() - reserved - task.getExpectedMemoryMb() * MB;
+        if (remaining < admission.getMinAvailableMemoryMb() * MB) {
+            rejected(task, String.format("可用内存 %dMB，运行中任务预留 %dMB，本任务预计 %dMB，低于保留值 %dMB",
+                    snapshot.getAvailableMemoryBytes() / MB, reserved / MB, task.getExpectedMemoryMb(),
+                    admission.getMinAvailableMemoryMb()));
+            return false;
+        }
+        return true;
+    }
+
+    private void rejected(QueuedTask task, String reason) {
+        long now = System.nanoTime();
+        if (now - lastRejectLogNanos >= REJECT_LOG_INTERVAL_NANOS) {
+            lastRejectLogNanos = now;
+            log.info("主机资源不足，任务继续排队: taskId={}, type={}, {}", task.getTaskId(), task.getTaskType(), reason);
+        }
+    }
+
+    private void launch(QueuedTask task) {
+        taskMetrics.recordQueueWait(task);
+        try {
+            taskService.start(task);
+        } catch (RuntimeException e) {
+            log.error("启动任务失败: taskId={}", task.getTaskId(), e);
+            taskQueue.release(task);
+            task.getFuture().completeExceptionally(e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.ningshenquantlab.alphaforge_demo1.async;
+//排队中的任务
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.executor.ExecutionResult;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 排队中的任务
+ * future 在任务结束（或排队期间被取消）后完成，取消时结果为 null
+ */
+@Getter
+public class QueuedTask {
+    private final Long taskId;
+    private final TaskTypeEnum taskType;
+    private final int priority;               // 越大越优先
+    private final String scriptName;
+    private final List<String> args;
+    private final CompletableFuture<ExecutionResult> future = new CompletableFuture<>();
+
+    long sequence;                            // 入队顺序，同优先级先进先出
+    long enqueueNanos;                        // 入队时的 System.nanoTime()，用于统计排队时长
+    volatile boolean cancelled;
+    long expectedMemoryMb;                    // 预计占用的内存（MB），未声明时入队时取通道默认值
+    final AtomicBoolean released = new AtomicBoolean();  // 执行槽位是否已释放
+
+    public long getExpectedMemoryMb() {
+        return expectedMemoryMb;
+    }
+
+    public long getEnqueueNanos() {
+        return enqueueNanos;
+    }
+
+    /**
+     * @param expectedMemoryMb 预计占用的内存（MB），为空时使用通道默认值
+     */
+    public QueuedTask(Long taskId, TaskTypeEnum taskType, int priority, String scriptName, List<String> args,
+                      Integer expectedMemoryMb) {
+        this.taskId = taskId;
+        this.taskType = taskType;
+        this.priority = priority;
+        this.scriptName = scriptName;
+        this.args = args;
+        this.expectedMemoryMb = expectedMemoryMb == null ? -1 : expectedMemoryMb;
+    }
+}
@@ -1,4 +1,283 @@
 package com.ningshenquantlab.alphaforge_demo1.async;
 //任务队列
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.config.PythonConfig;
+import com.ningshenquantlab.alphaforge_demo1.config.TaskQueueConfig;
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 任务队列
+ *
+ * 每种任务类型一个通道（lane），通道内按优先级（大者优先）+ 入队顺序排序的堆，入队/出队 O(log n)：
+ * - 锁按通道拆分：提交任务只锁自己类型的通道，不与其他类型的提交或调度线程争用同一把锁
+ * - 出队只由 AsyncTaskExecutor 的调度线程调用，在通道间按权重做步长调度（stride scheduling）：
+ *   每个通道有一个虚拟时间 pass，每次出队选 pass 最小的可运行通道，之后 pass += 1/weight，
+ *   因此各通道都有积压时出队次数与权重成正比；空闲通道重新有任务时从当前虚拟时间开始，不会积累额度
+ * - 通道的并发上限（task.queue.lanes.*.max-concurrency）和全局上限（python.execution.max-concurrent-tasks）
+ *   达到时该通道不参与选择，因此一批长时间的 MODEL_TRAIN 任务不会占满执行槽位、饿死 FEATURE_CALC
+ * - 取消排队中的任务只打标记，出队时跳过（惰性删除），不做 O(n) 的堆内删除
+ * - 出队时可以传入准入条件（如主机资源是否足够），通道队首不满足时尝试下一个通道，不会为此跳过同通道内更高优先级的任务
+ *
+ * 队列本身只在内存中，PENDING 状态由 task_record 持久化，服务重启后由 AsyncTaskExecutor 重新入队。
+ */
+@Slf4j
+@Component
 public class TaskQueue {
+
+    // 步长调度的基准值，stride = STRIDE_BASE / weight
+    private static final long STRIDE_BASE = 1L << 20;
+
+    private final Map<TaskTypeEnum, Lane> lanes = new EnumMap<>(TaskTypeEnum.class);
+    private final ConcurrentMap<Long, QueuedTask> queued = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    // 队列状态变化（入队、任务结束）时释放许可，唤醒调度线程
+    private final Semaphore changed = new Semaphore(0);
+    private final int maxConcurrent;
+
+    // 当前虚拟时间，只由调度线程访问
+    private long virtualTime;
+
+    @Autowired
+    public TaskQueue(TaskQueueConfig taskQueueConfig, PythonConfig pythonConfig) {
+        this.maxConcurrent = pythonConfig.getExecution().getMaxConcurrentTasks();
+        for (TaskTypeEnum type : TaskTypeEnum.values()) {
+            TaskQueueConfig.Lane config = taskQueueConfig.getLanes().getOrDefault(type, new TaskQueueConfig.Lane());
+            int weight = Math.max(1, config.getWeight());
+            int limit = config.getMaxConcurrency() == null ? maxConcurrent : config.getMaxConcurrency();
+            lanes.put(type, new Lane(type, weight, limit, config.getExpectedMemoryMb()));
+        }
+        log.info("任务队列初始化: 全局并发上限={}, 通道={}", maxConcurrent, lanes.values());
+    }
+
+    /**
+     * 入队
+     * @throws BusinessException 任务已在队列中时抛出
+     */
+    public void offer(QueuedTask task) {
+        if (queued.putIfAbsent(task.getTaskId(), task) != null) {
+            throw new BusinessException("任务已在队列中: " + task.getTaskId());
+        }
+        task.sequence = sequence.incrementAndGet();
+        task.enqueueNanos = System.nanoTime();
+        if (task.getExpectedMemoryMb() < 0) {
+            task.expectedMemoryMb = lanes.get(task.getTaskType()).expectedMemoryMb;
+        }
+        lanes.get(task.getTaskType()).add(task);
+        changed.release();
+    }
+
+    /**
+     * 按权重取出下一个可运行的任务并占用一个执行槽位，只能由调度线程调用
+     * @return 下一个任务，没有可运行的任务（队列为空或已达并发上限）时返回 null
+     */
+    public QueuedTask poll() {
+        return poll(task -> true);
+    }
+
+    /**
+     * 按权重取出下一个满足准入条件的任务并占用一个执行槽位，只能由调度线程调用
+     * 按虚拟时间从小到大依次尝试各通道的队首任务，队首不满足条件的通道本轮跳过
+     * @param admission 准入条件
+     * @return 下一个任务，没有可运行的任务时返回 null
+     */
+    public QueuedTask poll(Predicate<QueuedTask> admission) {
+        while (running.get() < maxConcurrent) {
+            List<Lane> candidates = new ArrayList<>(lanes.size());
+            for (Lane lane : lanes.values()) {
+                if (lane.running.get() >= lane.maxConcurrency || lane.isEmpty()) {
+                    continue;
+                }
+                if (lane.pass < virtualTime) {
+                    lane.pass = virtualTime;
+                }
+                candidates.add(lane);
+            }
+            candidates.sort(Comparator.comparingLong(lane -> lane.pass));
+
+            Lane selected = null;
+            QueuedTask task = null;
+            for (Lane lane : candidates) {
+                task = lane.pollIf(admission);
+                if (task != null) {
+                    selected = lane;
+                    break;
+                }
+            }
+            if (task == null) {
+                return null;
+            }
+            if (!queued.remove(task.getTaskId(), task)) {
+                // 刚取出的任务同时被取消（由 cancel 负责计数）
+                continue;
+            }
+            selected.taken();
+            virtualTime = selected.pass;
+            selected.pass += selected.stride;
+            selected.running.incrementAndGet();
+            running.incrementAndGet();
+            return task;
+        }
+        return null;
+    }
+
+    /**
+     * 不经过队列直接占用一个执行槽位（服务重启后接管仍在运行的进程时使用），任务结束后同样调用 release
+     * 未声明预计内存时与入队一样取通道默认值
+     */
+    public void occupy(QueuedTask task) {
+        Lane lane = lanes.get(task.getTaskType());
+        if (task.getExpectedMemoryMb() < 0) {
+            task.expectedMemoryMb = lane.expectedMemoryMb;
+        }
+        lane.running.incrementAndGet();
+        running.incrementAndGet();
+    }
+
+    /**
+     * 任务结束后释放执行槽位
+     */
+    public void release(TaskTypeEnum type) {
+        lanes.get(type).running.decrementAndGet();
+        running.decrementAndGet();
+        changed.release();
+    }
+
+    /**
+     * 释放已出队任务占用的执行槽位，重复调用只释放一次
+     * 取消运行中的任务时立即释放（不等进程树在宽限期内退出），之后进程结束回调中的调用不再重复计数
+     */
+    public void release(QueuedTask task) {
+        if (task.released.compareAndSet(false, true)) {
+            release(task.getTaskType());
+        }
+    }
+
+    /**
+     * 取消排队中的任务，任务的 future 以 null 结果完成
+     * @return 任务是否在队列中（已出队开始执行的任务返回 false）
+     */
+    public boolean cancel(Long taskId) {
+        QueuedTask task = queued.remove(taskId);
+        if (task == null) {
+            return false;
+        }
+        task.cancelled = true;
+        lanes.get(task.getTaskType()).taken();
+        task.getFuture().complete(null);
+        return true;
+    }
+
+    /**
+     * 调度线程等待队列状态变化，最多等待 timeoutMillis 毫秒
+     */
+    public void awaitChange(long timeoutMillis) throws InterruptedException {
+        if (changed.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            changed.drainPermits();
+        }
+    }
+
+    public boolean contains(Long taskId) {
+        return queued.containsKey(taskId);
+    }
+
+    /**
+     * 排队中的任务数
+     */
+    public int pendingCount(TaskTypeEnum type) {
+        return lanes.get(type).size();
+    }
+
+    public int runningCount(TaskTypeEnum type) {
+        return lanes.get(type).running.get();
+    }
+
+    public int runningCount() {
+        return running.get();
+    }
+
+    /**
+     * 单个任务类型的通道
+     */
+    private static final class Lane {
+        private final TaskTypeEnum type;
+        private final int weight;
+        private final int maxConcurrency;
+        private final long stride;
+        private final long expectedMemoryMb;
+        private final AtomicInteger running = new AtomicInteger();
+        private final PriorityQueue<QueuedTask> heap = new PriorityQueue<>(
+                Comparator.comparingInt(QueuedTask::getPriority).reversed()
+                        .thenComparingLong(task -> task.sequence));
+        // 堆中未取消的任务数
+        private int live;
+        // 虚拟时间，只由调度线程访问
+        private long pass;
+
+        private Lane(TaskTypeEnum type, int weight, int maxConcurrency, long expectedMemoryMb) {
+            this.type = type;
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            this.stride = STRIDE_BASE / weight;
+            this.expectedMemoryMb = expectedMemoryMb;
+        }
+
+        private synchronized void add(QueuedTask task) {
+            heap.add(task);
+            live++;
+        }
+
+        /**
+         * 队首（优先级最高的未取消任务）满足条件时取出，顺带丢弃堆顶已取消的任务
+         * @return 取出的任务，通道为空或队首不满足条件时返回 null
+         */
+        private synchronized QueuedTask pollIf(Predicate<QueuedTask> admission) {
+            QueuedTask task;
+            while ((task = heap.peek()) != null && task.cancelled) {
+                heap.poll();
+            }
+            if (task == null || !admission.test(task)) {
+                return null;
+            }
+            return heap.poll();
+        }
+
+        /**
+         * 任务被出队或取消（二者只会有一个成功，见 queued.remove）
+         */
+        private synchronized void taken() {
+            live--;
+        }
+
+        private synchronized boolean isEmpty() {
+            return live == 0;
+        }
+
+        private synchronized int size() {
+            return live;
+        }
+
+        @Override
+        public String toString() {
+            return type + "(weight=" + weight + ", max=" + maxConcurrency + ")";
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package com.ningshenquantlab.alphaforge_demo1.common;
+
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 分页游标（keyset / seek 分页）
+ *
+ * 传统分页 LIMIT ? OFFSET ? 需要先扫描并丢弃前面所有行，页码越深越慢；
+ * 游标分页记住上一页最后一行的排序键，下一页用 WHERE key < ? ORDER BY key DESC LIMIT ? 直接从索引定位，
+ * 任何深度的耗时都相同。
+ *
+ * 游标对调用方是不透明的字符串：URL 安全的 Base64 编码 "范围:排序键"，
+ * 范围用于区分不同列表（如 user 的 id 与 user_acct 的 cust_id），防止把一个列表的游标用在另一个列表上。
+ */
+public final class PageCursor {
+
+    private PageCursor() {
+    }
+
+    /**
+     * 编码游标
+     * @param scope 列表范围
+     * @param key 上一页最后一行的排序键
+     */
+    public static String encode(String scope, long key) {
+        String raw = scope + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     * @param scope 列表范围，必须与编码时一致
+     * @return 排序键，游标为空（第一页）时返回 null
+     * @throws BusinessException 游标格式不正确或不属于该列表时抛出
+     */
+    public static Long decode(String scope, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep > 0 && raw.substring(0, sep).equals(scope)) {
+                return Long.parseLong(raw.substring(sep + 1));
+            }
+        } catch (IllegalArgumentException e) {
+            // 非法 Base64 或排序键不是数字，统一按无效游标处理
+        }
+        throw new BusinessException("无效的分页游标: " + cursor);
+    }
+}
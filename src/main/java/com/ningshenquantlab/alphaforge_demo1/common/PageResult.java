@@ -1,22 +1,66 @@
 package com.ningshenquantlab.alphaforge_demo1.common;
 
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
 import lombok.Data;
 
 import java.util.List;
 
 @Data
 public class PageResult<T> {
+    /**
+     * 每页数量上限（列表接口 size 参数的 @Max 也使用该值）
+     */
+    public static final int MAX_SIZE = 100;
+
     private List<T> list;        // 数据列表
     private Long total;          // 总数
+    private Boolean totalExact;  // total 是否为精确值（大表时为估算值），不统计总数时为 null
     private Integer page;        // 当前页
     private Integer size;        // 每页大小
     private Integer totalPages;  // 总页数
+    private String nextCursor;   // 游标分页时下一页的游标，没有下一页时为 null
 
     public PageResult(List<T> list, Long total, Integer page, Integer size) {
         this.list = list;
         this.total = total;
+        this.totalExact = true;
+        checkSize(size);
         this.page = page;
         this.size = size;
         this.totalPages = (int) Math.ceil((double) total / size);
     }
+
+    /**
+     * @param total 总数，为 null 时表示调用方不需要总数（total、totalPages 为 null）
+     */
+    public PageResult(List<T> list, TotalCount total, Integer page, Integer size) {
+        checkSize(size);
+        this.list = list;
+        this.page = page;
+        this.size = size;
+        if (total != null) {
+            this.total = total.value();
+            this.totalExact = total.exact();
+            this.totalPages = (int) Math.ceil((double) total.value() / size);
+        }
+    }
+
+    /**
+     * 游标分页结果：不统计总数（总数和页码为 null），只返回下一页的游标
+     */
+    public PageResult(List<T> list, Integer size, String nextCursor) {
+        checkSize(size);
+        this.list = list;
+        this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * 校验每页数量（1 ~ MAX_SIZE），不合法时抛出 BusinessException
+     */
+    public static void checkSize(Integer size) {
+        if (size == null || size < 1 || size > MAX_SIZE) {
+            throw new BusinessException("每页数量必须在 1-" + MAX_SIZE + " 之间");
+        }
+    }
 }
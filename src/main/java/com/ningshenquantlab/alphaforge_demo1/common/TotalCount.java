@@ -0,0 +1,9 @@
+package com.ningshenquantlab.alphaforge_demo1.common;
+
+/**
+ * 列表总数
+ * @param value 总数
+ * @param exact 是否为精确值：大表不执行 COUNT(*)，取 information_schema 中的估算行数，此时为 false
+ */
+public record TotalCount(long value, boolean exact) {
+}
@@ -0,0 +1,17 @@
+package com.ningshenquantlab.alphaforge_demo1.common.enums;
+//日志存储模式枚举
+
+/**
+ * 任务日志存储模式
+ * 对应 task.log.storage-mode 配置
+ */
+public enum LogStorageModeEnum {
+    /**
+     * 每行一条 task_log 记录
+     */
+    ROW,
+    /**
+     * 多行压缩为一个 task_log_chunk 记录
+     */
+    CHUNK
+}
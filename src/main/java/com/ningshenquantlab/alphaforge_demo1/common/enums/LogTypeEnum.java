@@ -0,0 +1,13 @@
+package com.ningshenquantlab.alphaforge_demo1.common.enums;
+//日志类型枚举
+
+/**
+ * 日志类型枚举
+ * 对应 task_log.log_type 字段（STDOUT/STDERR/INFO/ERROR）
+ */
+public enum LogTypeEnum {
+    STDOUT,
+    STDERR,
+    INFO,
+    ERROR
+}
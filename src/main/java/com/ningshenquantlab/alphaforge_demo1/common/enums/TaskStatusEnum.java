@@ -1,5 +1,45 @@
 package com.ningshenquantlab.alphaforge_demo1.common.enums;
 //任务状态枚举
-public class TaskStatusEnum
-{
+
+import lombok.Getter;
+
+/**
+ * 任务状态枚举
+ * 对应 task_record.status 字段（PENDING/RUNNING/SUCCESS/FAILED/CANCELLED/TIMEOUT）
+ */
+@Getter
+public enum TaskStatusEnum {
+    PENDING("待执行"),
+    RUNNING("执行中"),
+    SUCCESS("成功"),
+    FAILED("失败"),
+    CANCELLED("已取消"),
+    TIMEOUT("超时");
+
+    private final String description;
+
+    TaskStatusEnum(String description) {
+        this.description = description;
+    }
+
+    /**
+     * 是否为终态（终态之后只有重试会再发生状态变化）
+     */
+    public boolean isTerminal() {
+        return this == SUCCESS || this == FAILED || this == CANCELLED || this == TIMEOUT;
+    }
+
+    /**
+     * 是否允许变更到目标状态：
+     * PENDING -> RUNNING/终态；RUNNING -> 终态/PENDING（服务重启时进程尚未启动、失败后等待自动重试）；
+     * FAILED/CANCELLED/TIMEOUT -> RUNNING（分片父任务重试）/PENDING（手动重试）；SUCCESS 不再变化
+     */
+    public boolean canTransitionTo(TaskStatusEnum target) {
+        return switch (this) {
+            case PENDING -> target != PENDING;
+            case RUNNING -> target != RUNNING;
+            case FAILED, CANCELLED, TIMEOUT -> target == RUNNING || target == PENDING;
+            case SUCCESS -> false;
+        };
+    }
 }
@@ -1,4 +1,21 @@
 package com.ningshenquantlab.alphaforge_demo1.common.enums;
 //任务类型枚举
-public class TaskTypeEnum {
+
+import lombok.Getter;
+
+/**
+ * 任务类型枚举
+ * 对应 task_record.task_type 字段
+ */
+@Getter
+public enum TaskTypeEnum {
+    FEATURE_CALC("特征计算"),
+    DATA_FETCH("数据获取"),
+    MODEL_TRAIN("模型训练");
+
+    private final String description;
+
+    TaskTypeEnum(String description) {
+        this.description = description;
+    }
 }
@@ -1,4 +1,52 @@
 package com.ningshenquantlab.alphaforge_demo1.config;
 //执行器配置
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 执行器配置
+ *
+ * 所有 Python 子进程共享下面两个固定大小的线程池，线程数只由配置决定，不随并发子进程数增长：
+ * - streamPumpScheduler：轮询所有子进程的 stdout/stderr，只读取已就绪的字节，不会阻塞在某个管道上
+ * - processCallbackExecutor：进程退出后的结果组装和下游回调（写库等），避免占用抽取线程
+ * - logStreamScheduler：把任务输出推送给 SSE 订阅者，线程数与订阅者数无关
+ * - monitorScheduler：资源采样等周期性的监控任务
+ */
+@Configuration
 public class ExecutorConfig {
+
+    @Bean(name = "streamPumpScheduler", destroyMethod = "shutdownNow")
+    public ScheduledExecutorService streamPumpScheduler(PythonConfig pythonConfig) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("py-pump-");
+        threadFactory.setDaemon(true);
+        return Executors.newScheduledThreadPool(pythonConfig.getExecution().getDrainThreads(), threadFactory);
+    }
+
+    @Bean(name = "processCallbackExecutor", destroyMethod = "shutdown")
+    public ExecutorService processCallbackExecutor(PythonConfig pythonConfig) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("py-callback-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(pythonConfig.getExecution().getCallbackThreads(), threadFactory);
+    }
+
+    @Bean(name = "logStreamScheduler", destroyMethod = "shutdownNow")
+    public ScheduledExecutorService logStreamScheduler(@Value("${task.log.stream-threads:2}") int streamThreads) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("log-stream-");
+        threadFactory.setDaemon(true);
+        return Executors.newScheduledThreadPool(streamThreads, threadFactory);
+    }
+
+    @Bean(name = "monitorScheduler", destroyMethod = "shutdownNow")
+    public ScheduledExecutorService monitorScheduler() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("monitor-");
+        threadFactory.setDaemon(true);
+        return Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
 }
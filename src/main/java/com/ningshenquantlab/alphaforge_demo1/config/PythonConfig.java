@@ -1,4 +1,65 @@
 package com.ningshenquantlab.alphaforge_demo1.config;
 //Python 环境配置
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Python 环境配置
+ * 对应 application.yml 中的 python.* 配置块
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "python")
 public class PythonConfig {
+
+    /**
+     * Python 解释器路径（支持虚拟环境）
+     */
+    private String interpreter;
+
+    /**
+     * 脚本根目录，同时作为子进程的工作目录
+     */
+    private String scriptPath;
+
+    /**
+     * 执行配置
+     */
+    private Execution execution = new Execution();
+
+    /**
+     * 常驻工作进程池配置
+     */
+    private WorkerPool workerPool = new WorkerPool();
+
+    @Data
+    public static class Execution {
+        private Integer timeout = 3600;              // 超时时间（秒），进程运行超过该时长被终止，0 表示不限制
+        private Long maxCpuSeconds;                  // 单个任务进程树的 CPU 时间上限（秒），为空表示不限制
+        private Long maxRssMb;                       // 单个任务进程树的常驻内存上限（MB），为空表示不限制
+        private Long limitCheckIntervalMs = 1000L;   // 检查超时和资源上限的间隔（毫秒）
+        private Integer maxConcurrentTasks = 5;      // 最大并发任务数
+        private Boolean enableLogCapture = true;     // 是否捕获日志
+        private Integer logBufferSize = 8192;        // 日志缓冲区大小，即输出流抽取时复用的读缓冲区字节数
+        private Integer logTailBytes = 1024 * 1024;  // 每个输出流在内存中保留的最近输出字节数
+        private Integer logTailLines = 2000;         // 每个输出流在内存中保留的最近行数
+        private Integer drainThreads = 2;            // 输出流抽取线程数，所有子进程共享
+        private Long drainIntervalMs = 20L;          // 输出流轮询间隔（毫秒）
+        private Integer callbackThreads = 2;         // 进程结束回调线程数
+        private Long cancelGraceMs = 5000L;          // 取消任务时 SIGTERM 之后等待进程树退出的宽限期（毫秒），之后强制结束
+    }
+
+    @Data
+    public static class WorkerPool {
+        private Boolean enabled = false;             // 是否启用常驻工作进程
+        private Integer workersPerScript = 2;        // 每个脚本保持的常驻进程数
+        private Integer maxJobsPerWorker = 50;       // 单个进程执行多少个任务后回收
+        private Long maxRssMb = 2048L;               // 单个进程常驻内存超过该值（MB）后回收
+        private List<String> scripts = new ArrayList<>();  // 使用常驻进程执行的脚本（需支持重复以 __main__ 执行）
+    }
 }
@@ -1,5 +1,19 @@
 package com.ningshenquantlab.alphaforge_demo1.config;
 //脚本路径配置
-public class ScriptConfig
-{
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 脚本路径配置
+ * 对应 application.yml 中的 python.scripts.* 配置块，值为相对 python.script-path 的脚本文件名
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "python.scripts")
+public class ScriptConfig {
+    private String featureManager = "feature_manager.py";
+    private String dataFetcher = "main_data_acq_run_date_range.py";
+    private String modelTrainer;
 }
@@ -0,0 +1,37 @@
+package com.ningshenquantlab.alphaforge_demo1.config;
+//任务监控配置
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 任务监控配置
+ * 对应 application.yml 中的 task.monitor.* 配置块，控制失败任务的自动重试
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "task.monitor")
+public class TaskMonitorConfig {
+
+    private Boolean enabled = true;              // 是否启用任务监控（关闭后不再自动重试）
+
+    private Boolean autoRetry = true;            // 失败自动重试
+
+    private Integer maxRetryTimes = 3;           // 最大重试次数（不含第一次执行）
+
+    private Long backoffBaseMs = 5000L;          // 第一次重试的基准等待时间（毫秒），之后每次翻倍
+
+    private Long backoffMaxMs = 300000L;         // 等待时间上限（毫秒）
+
+    private Double jitter = 0.5;                 // 随机抖动比例（0~1）：实际等待时间在 [基准 * (1 - jitter), 基准] 之间均匀分布
+
+    /**
+     * 不重试的退出码：参数错误、输入数据错误等重跑也不会成功的失败
+     * 默认：2（argparse 参数错误）、64（EX_USAGE）、65（EX_DATAERR）、66（EX_NOINPUT）、78（EX_CONFIG）
+     */
+    private List<Integer> nonRetryableExitCodes = new ArrayList<>(List.of(2, 64, 65, 66, 78));
+}
@@ -0,0 +1,45 @@
+package com.ningshenquantlab.alphaforge_demo1.config;
+//任务队列配置
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskTypeEnum;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 任务队列配置
+ * 对应 application.yml 中的 task.queue.* 配置块，按任务类型配置各通道的权重和并发上限
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "task.queue")
+public class TaskQueueConfig {
+
+    /**
+     * 各任务类型的通道配置，未配置的类型使用默认值
+     */
+    private Map<TaskTypeEnum, Lane> lanes = new EnumMap<>(TaskTypeEnum.class);
+
+    /**
+     * 按主机资源准入
+     */
+    private Admission admission = new Admission();
+
+    @Data
+    public static class Lane {
+        private Integer weight = 1;              // 调度权重，通道都有积压时按权重比例出队
+        private Integer maxConcurrency;          // 该类型同时运行的任务数上限，为空时只受全局上限约束
+        private Integer expectedMemoryMb = 512;  // 任务未声明预计内存时使用的默认值（MB）
+    }
+
+    @Data
+    public static class Admission {
+        private Boolean enabled = true;          // 是否按主机资源决定是否放行排队任务
+        private Long sampleIntervalMs = 1000L;   // 资源采样间隔（毫秒）
+        private Double maxCpuUsage = 0.9;        // 系统 CPU 使用率超过该值（0~1）时不再启动新任务
+        private Long minAvailableMemoryMb = 1024L;  // 扣除新任务和运行中任务预计还会增长的内存后，至少保留的可用内存（MB）
+    }
+}
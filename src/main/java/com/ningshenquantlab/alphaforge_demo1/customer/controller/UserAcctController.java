@@ -2,17 +2,26 @@ package com.ningshenquantlab.alphaforge_demo1.customer.controller;
 
 import com.ningshenquantlab.alphaforge_demo1.common.PageResult;
 import com.ningshenquantlab.alphaforge_demo1.common.Result;
+import com.ningshenquantlab.alphaforge_demo1.common.TotalCount;
+import com.ningshenquantlab.alphaforge_demo1.customer.dto.BulkImportResult;
 import com.ningshenquantlab.alphaforge_demo1.customer.entity.UserAcct;
 import com.ningshenquantlab.alphaforge_demo1.customer.service.UserAcctService;
 import com.ningshenquantlab.alphaforge_demo1.customer.validation.CreateGroup;
 import com.ningshenquantlab.alphaforge_demo1.customer.validation.UpdateGroup;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 @Slf4j
+@Validated  // 开启方法参数校验（用于 @RequestParam 上的 @Min、@Max）
 @RestController
 @RequestMapping("/api/v1/userAccts")
 public class UserAcctController {
@@ -20,14 +29,22 @@ public class UserAcctController {
     private UserAcctService userAcctService;
     /**
      * 获取用户列表（分页）
+     * 带 after 参数（可以为空，表示第一页）时使用游标分页：忽略 page、不统计总数，返回 nextCursor
+     * 总数来自短时间缓存，用户很多时为估算值（totalExact = false）；withTotal=false 时不统计总数
      */
     @GetMapping
     public Result<PageResult<UserAcct>> getUsers(
-            @RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "10") Integer size
+            @RequestParam(defaultValue = "1") @Min(value = 1, message = "页码必须大于0") Integer page,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "每页数量必须大于0")
+            @Max(value = PageResult.MAX_SIZE, message = "每页数量不能超过" + PageResult.MAX_SIZE) Integer size,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean withTotal
     ) {
+        if (after != null) {
+            return Result.success(userAcctService.findPageAfter(after, size, null));
+        }
         List<UserAcct> userAccts = userAcctService.findPage(page, size);
-        Long total = userAcctService.count();
+        TotalCount total = withTotal ? userAcctService.total(null) : null;
 
         PageResult<UserAcct> pageResult = new PageResult<>(userAccts, total, page, size);
         return Result.success(pageResult);
@@ -50,6 +67,20 @@ public class UserAcctController {
         UserAcct savedUser = userAcctService.save(userAcct);
         return Result.success("创建成功", savedUser);
     }
+    /**
+     * 批量导入用户
+     * 请求体为 CSV（Content-Type: text/csv，第一行为表头：custId,custName,custKey,custEmail,custPhone,status）
+     * 或 NDJSON（Content-Type: application/x-ndjson，每行一个与创建接口相同的 JSON 对象）
+     * 请求体逐行读取，不会整个读进内存；部分行失败不影响其他行，失败的行及原因在返回结果的 errors 中
+     */
+    @PostMapping(value = "/bulk", consumes = {"text/csv", "application/x-ndjson"})
+    public Result<BulkImportResult> bulkImport(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                               InputStream body) throws IOException {
+        boolean ndjson = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_NDJSON);
+        BulkImportResult result = userAcctService.bulkImport(body, ndjson);
+        return Result.success("导入完成，成功 " + result.getInserted() + " 条，失败 " + result.getFailed() + " 条", result);
+    }
+
     /**
      * 更新用户
      */
@@ -82,16 +113,22 @@ public class UserAcctController {
     }
 
     /**
-     * 搜索用户（分页）
+     * 搜索用户（分页），after、withTotal 的用法同 getUsers
      */
     @GetMapping("/search")
     public Result<PageResult<UserAcct>> searchUsers(
             @RequestParam String keyword,
-            @RequestParam(defaultValue = "1") Integer page,
-            @RequestParam(defaultValue = "10") Integer size
+            @RequestParam(defaultValue = "1") @Min(value = 1, message = "页码必须大于0") Integer page,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "每页数量必须大于0")
+            @Max(value = PageResult.MAX_SIZE, message = "每页数量不能超过" + PageResult.MAX_SIZE) Integer size,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean withTotal
     ) {
+        if (after != null) {
+            return Result.success(userAcctService.findPageAfter(after, size, keyword));
+        }
         List<UserAcct> userAccts = userAcctService.search(keyword, page, size);
-        Long total = userAcctService.countBySearch(keyword);
+        TotalCount total = withTotal ? userAcctService.total(keyword) : null;
         PageResult<UserAcct> pageResult = new PageResult<>(userAccts, total, page, size);
         return Result.success(pageResult);
     }
@@ -6,6 +6,7 @@ import com.ningshenquantlab.alphaforge_demo1.customer.entity.User;
 import com.ningshenquantlab.alphaforge_demo1.customer.service.UserService;
 import com.ningshenquantlab.alphaforge_demo1.customer.validation.CreateGroup;
 import com.ningshenquantlab.alphaforge_demo1.customer.validation.UpdateGroup;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
@@ -66,11 +67,15 @@ public class UserController {
      * 请求示例：
      * - GET /api/v1/users?page=1&size=10
      * - GET /api/v1/users?page=2&size=20&search=张三
+     * - GET /api/v1/users?after=&size=10（游标分页第一页）
+     * - GET /api/v1/users?after=dXNlcjoxMjM&size=10（游标分页，after 为上一页返回的 nextCursor）
      * 
      * 参数说明：
      * - page: 页码（从 1 开始），默认 1
      * - size: 每页数量，默认 10
      * - search: 搜索关键词（可选），模糊匹配昵称
+     * - after: 游标（可选），带上该参数（可以为空）即使用游标分页，忽略 page，
+     *   翻到多深耗时都一样；返回中 total/page/totalPages 为 null，nextCursor 为 null 表示没有下一页
      * 
      * 返回格式：
      * {
@@ -90,10 +95,17 @@ public class UserController {
             //RequestParam的defaultValue属性自己是有默认值的，是一大串无意义的制表符和特殊字符，他认为用户不可能写得出这种字符串
             //参数绑定时，优先取name="page"这个属性，如果没写，则会取参数名，即page、size、search
             @RequestParam(name="page",defaultValue = "1") @Min(value = 1, message = "页码必须大于0") Integer page,
-            @RequestParam(defaultValue = "10") @Min(value = 1, message = "每页数量必须大于0") Integer size,
-            @RequestParam(required = false) String search
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "每页数量必须大于0")
+            @Max(value = PageResult.MAX_SIZE, message = "每页数量不能超过" + PageResult.MAX_SIZE) Integer size,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String after
     ) {
-        log.info("Controller: 查询用户列表, page={}, size={}, search={}", page, size, search);
+        log.info("Controller: 查询用户列表, page={}, size={}, search={}, after={}", page, size, search, after);
+
+        // 游标分页：不统计总数
+        if (after != null) {
+            return Result.success(userService.findPageAfter(after, size, search));
+        }
 
         // 根据是否有搜索关键词，调用不同的 Service 方法
         List<User> users;
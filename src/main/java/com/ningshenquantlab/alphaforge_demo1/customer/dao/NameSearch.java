@@ -0,0 +1,101 @@
+package com.ningshenquantlab.alphaforge_demo1.customer.dao;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 客户昵称搜索（user、user_acct 共用）
+ *
+ * cust_name LIKE '%kw%' 无法使用索引，每次搜索（以及搜索总数）都是全表扫描。
+ * 这里改用 cust_name 上的 FULLTEXT 索引（WITH PARSER ngram，中文按 n 个字切分）：
+ * - 关键词作为短语检索：MATCH(cust_name) AGAINST('"kw"' IN BOOLEAN MODE)，
+ *   要求关键词的所有 n-gram 按顺序出现，对中日韩文字的关键词与子串匹配结果一致，但走全文索引
+ * - 搜索结果按 MATCH 的相关度排序，相同相关度按主键倒序
+ * - 关键词短于 ngram_token_size（customer.search.min-length）时无法用 n-gram 检索，仍使用 LIKE
+ * - 关键词含中日韩文字以外的字符（拉丁字母、拼音、数字等）时仍使用 LIKE：InnoDB 默认的停用词表（a、i、in 等）
+ *   会让 ngram 解析器丢弃所有包含停用词的 n-gram，"ha"、"li" 这样的关键词用全文检索一条也查不到
+ * - 表上没有全文索引（旧库未执行建索引语句，MySQL 错误码 1191）时 MATCH 会报错，此时记录一次告警，之后都使用 LIKE
+ */
+@Slf4j
+@Component
+public class NameSearch {
+
+    // ER_FT_MATCHING_KEY_NOT_FOUND: Can't find FULLTEXT index matching the column list
+    private static final int MISSING_FULLTEXT_INDEX = 1191;
+
+    private final boolean fulltext;
+    private final int minLength;
+    // 缺少全文索引的表
+    private final Set<String> missingIndex = ConcurrentHashMap.newKeySet();
+
+    public NameSearch(@Value("${customer.search.fulltext:true}") boolean fulltext,
+                      @Value("${customer.search.min-length:2}") int minLength) {
+        this.fulltext = fulltext;
+        this.minLength = minLength;
+    }
+
+    /**
+     * 全文检索的短语参数
+     * @return 形如 "kw"（含双引号）的布尔模式短语，不能使用全文检索时返回 null（调用方使用 LIKE）
+     */
+    public String phrase(String keyword) {
+        if (!fulltext || keyword == null) {
+            return null;
+        }
+        // 短语内只有双引号有特殊含义，去掉即可
+        String cleaned = keyword.replace("\"", "").trim();
+        if (cleaned.length() < minLength || !isCjk(cleaned)) {
+            return null;
+        }
+        return "\"" + cleaned + "\"";
+    }
+
+    /**
+     * 是否全部是中日韩文字（不会出现在默认停用词表中）
+     */
+    private static boolean isCjk(String text) {
+        return text.codePoints().allMatch(cp -> {
+            Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+            return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                    || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+        });
+    }
+
+    /**
+     * 执行全文检索，表上缺少全文索引时该表之后都改用 LIKE，其他数据库异常照常抛出
+     * @param table 表名
+     * @param phrase phrase 方法的返回值，为 null 时直接执行 like
+     */
+    public <T> T search(String table, String phrase, Supplier<T> byFulltext, Supplier<T> byLike) {
+        if (phrase == null || missingIndex.contains(table)) {
+            return byLike.get();
+        }
+        try {
+            return byFulltext.get();
+        } catch (DataAccessException e) {
+            if (!isMissingIndex(e)) {
+                throw e;
+            }
+            if (missingIndex.add(table)) {
+                log.warn("{} 全文检索失败，改用 LIKE 搜索（请检查 cust_name 上的 FULLTEXT ngram 索引）: {}", table, e.getMessage());
+            }
+            return byLike.get();
+        }
+    }
+
+    private static boolean isMissingIndex(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getErrorCode() == MISSING_FULLTEXT_INDEX) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -37,6 +37,23 @@ public interface UserDao {
      * @return 符合条件的用户列表
      */
     List<User> search(String keyword, Integer offset, Integer limit);
+
+    /**
+     * 游标分页查询用户（按 id 倒序）
+     * @param afterId 上一页最后一个用户的 id，为 null 时查询第一页
+     * @param limit 查询数量
+     * @return 用户列表
+     */
+    List<User> findAfter(Long afterId, Integer limit);
+
+    /**
+     * 游标分页搜索用户（按 id 倒序）
+     * @param keyword 搜索关键词
+     * @param afterId 上一页最后一个用户的 id，为 null 时查询第一页
+     * @param limit 查询数量
+     * @return 符合条件的用户列表
+     */
+    List<User> searchAfter(String keyword, Long afterId, Integer limit);
     
     /**
      * 统计用户总数
@@ -1,5 +1,6 @@
 package com.ningshenquantlab.alphaforge_demo1.customer.dao.impl;
 
+import com.ningshenquantlab.alphaforge_demo1.customer.dao.NameSearch;
 import com.ningshenquantlab.alphaforge_demo1.customer.dao.UserDao;
 import com.ningshenquantlab.alphaforge_demo1.customer.entity.User;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +35,11 @@ public class UserDaoImpl implements UserDao {
      */
     private final JdbcTemplate jdbcTemplate;
 
+    /**
+     * 昵称搜索：优先使用 cust_name 上的全文索引，不能使用时退回 LIKE
+     */
+    private final NameSearch nameSearch;
+
     /**
      * 构造器注入（推荐方式）
      * Spring 4.3+ 版本，单一构造器的 @Autowired 可以省略
@@ -41,8 +47,9 @@ public class UserDaoImpl implements UserDao {
      * @param jdbcTemplate Spring 自动创建的 JdbcTemplate Bean
      */
     @Autowired
-    public UserDaoImpl(JdbcTemplate jdbcTemplate) {
+    public UserDaoImpl(JdbcTemplate jdbcTemplate, NameSearch nameSearch) {
         this.jdbcTemplate = jdbcTemplate;
+        this.nameSearch = nameSearch;
     }
 
     /**
@@ -102,12 +109,23 @@ public class UserDaoImpl implements UserDao {
      * 搜索用户（模糊查询）
      * 
      * SQL 说明：
-     * - LIKE ? 用于模糊查询
-     * - %keyword% 表示包含关键词即可
-     * - CONCAT('%', ?, '%') 在 SQL 中拼接通配符
+     * - MATCH(cust_name) AGAINST(? IN BOOLEAN MODE) 使用全文索引（ngram）检索，结果按相关度排序（见 NameSearch）
+     * - 不能使用全文检索时（关键词太短、没有全文索引）退回 LIKE：
+     *   - LIKE ? 用于模糊查询
+     *   - %keyword% 表示包含关键词即可
+     *   - CONCAT('%', ?, '%') 在 SQL 中拼接通配符
      */
     @Override
     public List<User> search(String keyword, Integer offset, Integer limit) {
+        String phrase = nameSearch.phrase(keyword);
+        return nameSearch.search("user", phrase, () -> {
+            String sql = "SELECT * FROM user WHERE MATCH(cust_name) AGAINST(? IN BOOLEAN MODE) " +
+                         "ORDER BY MATCH(cust_name) AGAINST(? IN BOOLEAN MODE) DESC, id DESC LIMIT ? OFFSET ?";
+            return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(User.class), phrase, phrase, limit, offset);
+        }, () -> searchByLike(keyword, offset, limit));
+    }
+
+    private List<User> searchByLike(String keyword, Integer offset, Integer limit) {
         String sql = "SELECT * FROM user WHERE cust_name LIKE CONCAT('%', ?, '%') " +
                      "ORDER BY id DESC LIMIT ? OFFSET ?";
         return jdbcTemplate.query(
@@ -119,6 +137,55 @@ public class UserDaoImpl implements UserDao {
         );
     }
 
+    /**
+     * 游标分页查询用户
+     * 
+     * SQL 说明：
+     * - WHERE id < ? 从上一页最后一行之后开始，ORDER BY id DESC 沿主键索引倒序读取
+     * - 数据库直接定位到起点，不像 OFFSET 那样先扫描再丢弃前面的行，翻到多深耗时都一样
+     * - 第一页没有起点，不带 WHERE 条件
+     */
+    @Override
+    public List<User> findAfter(Long afterId, Integer limit) {
+        if (afterId == null) {
+            String sql = "SELECT * FROM user ORDER BY id DESC LIMIT ?";
+            return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(User.class), limit);
+        }
+        String sql = "SELECT * FROM user WHERE id < ? ORDER BY id DESC LIMIT ?";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(User.class), afterId, limit);
+    }
+
+    /**
+     * 游标分页搜索用户
+     * 
+     * SQL 说明：
+     * - 与 findAfter 相同，只是多了昵称的模糊匹配条件
+     */
+    @Override
+    public List<User> searchAfter(String keyword, Long afterId, Integer limit) {
+        String phrase = nameSearch.phrase(keyword);
+        return nameSearch.search("user", phrase, () -> {
+            // 游标分页按 id 排序，全文索引只用于过滤
+            if (afterId == null) {
+                String sql = "SELECT * FROM user WHERE MATCH(cust_name) AGAINST(? IN BOOLEAN MODE) ORDER BY id DESC LIMIT ?";
+                return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(User.class), phrase, limit);
+            }
+            String sql = "SELECT * FROM user WHERE MATCH(cust_name) AGAINST(? IN BOOLEAN MODE) AND id < ? " +
+                         "ORDER BY id DESC LIMIT ?";
+            return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(User.class), phrase, afterId, limit);
+        }, () -> searchAfterByLike(keyword, afterId, limit));
+    }
+
+    private List<User> searchAfterByLike(String keyword, Long afterId, Integer limit) {
+        if (afterId == null) {
+            String sql = "SELECT * FROM user WHERE cust_name LIKE CONCAT('%', ?, '%') ORDER BY id DESC LIMIT ?";
+            return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(User.class), keyword, limit);
+        }
+        String sql = "SELECT * FROM user WHERE cust_name LIKE CONCAT('%', ?, '%') AND id < ? " +
+                     "ORDER BY id DESC LIMIT ?";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(User.class), keyword, afterId, limit);
+    }
+
     /**
      * 统计用户总数
      * 
@@ -137,8 +204,14 @@ public class UserDaoImpl implements UserDao {
      */
     @Override
     public Long countBySearch(String keyword) {
-        String sql = "SELECT COUNT(*) FROM user WHERE cust_name LIKE CONCAT('%', ?, '%')";
-        return jdbcTemplate.queryForObject(sql, Long.class, keyword);
+        String phrase = nameSearch.phrase(keyword);
+        return nameSearch.search("user", phrase, () -> {
+            String sql = "SELECT COUNT(*) FROM user WHERE MATCH(cust_name) AGAINST(? IN BOOLEAN MODE)";
+            return jdbcTemplate.queryForObject(sql, Long.class, phrase);
+        }, () -> {
+            String sql = "SELECT COUNT(*) FROM user WHERE cust_name LIKE CONCAT('%', ?, '%')";
+            return jdbcTemplate.queryForObject(sql, Long.class, keyword);
+        });
     }
 
     /**
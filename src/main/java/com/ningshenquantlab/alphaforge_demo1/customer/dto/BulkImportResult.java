@@ -0,0 +1,51 @@
+package com.ningshenquantlab.alphaforge_demo1.customer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入用户的结果
+ *
+ * errors 只保留前 customer.bulk-import.max-errors 条，failed 是失败的总行数
+ */
+@Data
+public class BulkImportResult {
+
+    /**
+     * 数据行数（不含 CSV 表头和空行）
+     */
+    private long total;
+
+    /**
+     * 成功写入的行数
+     */
+    private long inserted;
+
+    /**
+     * 失败的行数
+     */
+    private long failed;
+
+    /**
+     * 逐行错误（行号从 1 开始，按请求体中的物理行计算，CSV 表头为第 1 行）
+     */
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * errors 是否因为超过上限被截断
+     */
+    private boolean errorsTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private Long custId;
+        private String message;
+    }
+}
@@ -3,6 +3,7 @@ import com.ningshenquantlab.alphaforge_demo1.customer.entity.UserAcct;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper//标记这是一个 MyBatis Mapper 接口,Spring Boot 会自动扫描并创建代理对象,不需要写实现类
@@ -31,16 +32,33 @@ public interface UserAcctMapper {
     //- 如果只有一个参数，可以不加 @Param
     //- 如果有多个参数，建议都加 @Param
 
+    /**
+     * 游标分页查询用户（按 cust_id 倒序）
+     * @param afterCustId 上一页最后一个用户的 cust_id，为 null 时查询第一页
+     */
+    List<UserAcct> selectPageAfter(@Param("afterCustId") Long afterCustId, @Param("limit") Integer limit);
+
     /**
      * 查询用户总数
      */
     Long countAll();
 
+    /**
+     * 估算用户总数（information_schema 中 InnoDB 的统计值，不扫描表，误差可能较大）
+     */
+    Long estimateRows();
+
     /**
      * 插入用户
      */
     int insert(UserAcct userAcct);
 
+    /**
+     * 查询已存在的 cust_id 或 cust_name（批量导入查重），只返回这两个字段
+     */
+    List<UserAcct> selectExisting(@Param("custIds") Collection<Long> custIds,
+                                  @Param("custNames") Collection<String> custNames);
+
     /**
      * 更新用户
      */
@@ -51,9 +69,21 @@ public interface UserAcctMapper {
      */
     int deleteByCustId(Long custId);
 
-    List<UserAcct> search(String keyword, Integer page, Integer size);
+    /**
+     * 搜索用户
+     * @param phrase 全文检索短语（见 NameSearch），不为 null 时走 cust_name 的全文索引并按相关度排序，为 null 时使用 LIKE
+     */
+    List<UserAcct> search(@Param("keyword") String keyword, @Param("phrase") String phrase,
+                          @Param("offset") Integer offset, @Param("size") Integer size);
+
+    /**
+     * 游标分页搜索用户（按 cust_id 倒序）
+     * @param afterCustId 上一页最后一个用户的 cust_id，为 null 时查询第一页
+     */
+    List<UserAcct> searchAfter(@Param("keyword") String keyword, @Param("phrase") String phrase,
+                               @Param("afterCustId") Long afterCustId, @Param("limit") Integer limit);
 
-    Long countBySearch(String keyword);
+    Long countBySearch(@Param("keyword") String keyword, @Param("phrase") String phrase);
 
     int batchDelete(@Param("custIds") List<Long> custIds);
 }
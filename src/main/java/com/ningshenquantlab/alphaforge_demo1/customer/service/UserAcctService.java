@@ -1,8 +1,13 @@
 package com.ningshenquantlab.alphaforge_demo1.customer.service;
 
+import com.ningshenquantlab.alphaforge_demo1.common.PageResult;
+import com.ningshenquantlab.alphaforge_demo1.common.TotalCount;
+import com.ningshenquantlab.alphaforge_demo1.customer.dto.BulkImportResult;
 import com.ningshenquantlab.alphaforge_demo1.customer.entity.UserAcct;
 import org.apache.ibatis.annotations.Param;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 public interface UserAcctService {
@@ -22,6 +27,16 @@ public interface UserAcctService {
      */
     List<UserAcct> findPage(Integer page, Integer size);
     List<UserAcct> findAll();
+
+    /**
+     * 游标分页查询用户（按 cust_id 倒序），keyword 不为空时按昵称模糊搜索
+     * @param after 上一页返回的 nextCursor，为空时查询第一页
+     * @param size 每页数量
+     * @param keyword 搜索关键词（可选）
+     * @return 分页结果，不含总数，nextCursor 为 null 表示没有下一页
+     * @throws com.ningshenquantlab.alphaforge_demo1.exception.BusinessException 游标无效时抛出
+     */
+    PageResult<UserAcct> findPageAfter(String after, Integer size, String keyword);
     /**
      * 搜索用户（根据昵称模糊查询）
      * @param keyword 搜索关键词
@@ -42,6 +57,12 @@ public interface UserAcctService {
      */
     Long count();
 
+    /**
+     * 分页列表的总数：短时间缓存，数据变化后失效；用户很多时为估算值
+     * @param keyword 搜索关键词，为空时统计全部用户
+     */
+    TotalCount total(String keyword);
+
     /**
      * 创建用户
      * @param userAcct 用户对象
@@ -70,6 +91,14 @@ public interface UserAcctService {
      * @param custIds 客户ID列表
      * @return 实际删除的数量
      */
+    /**
+     * 批量导入用户（流式读取，分批写入，每批单独提交）
+     * @param in CSV（带表头）或 NDJSON 格式的请求体
+     * @param ndjson 是否为 NDJSON
+     * @return 导入行数和逐行错误
+     */
+    BulkImportResult bulkImport(InputStream in, boolean ndjson) throws IOException;
+
     int batchDelete(@Param("custIds") List<Long> custIds);
 
 
@@ -1,5 +1,6 @@
 package com.ningshenquantlab.alphaforge_demo1.customer.service;
 
+import com.ningshenquantlab.alphaforge_demo1.common.PageResult;
 import com.ningshenquantlab.alphaforge_demo1.customer.entity.User;
 import java.util.List;
 
@@ -43,6 +44,16 @@ public interface UserService {
      * @return 符合条件的用户列表
      */
     List<User> search(String keyword, Integer page, Integer size);
+
+    /**
+     * 游标分页查询用户（按 id 倒序），keyword 不为空时按昵称模糊搜索
+     * @param after 上一页返回的 nextCursor，为空时查询第一页
+     * @param size 每页数量
+     * @param keyword 搜索关键词（可选）
+     * @return 分页结果，不含总数，nextCursor 为 null 表示没有下一页
+     * @throws com.ningshenquantlab.alphaforge_demo1.exception.BusinessException 游标无效时抛出
+     */
+    PageResult<User> findPageAfter(String after, Integer size, String keyword);
     
     /**
      * 统计用户总数
@@ -0,0 +1,322 @@
+package com.ningshenquantlab.alphaforge_demo1.customer.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ningshenquantlab.alphaforge_demo1.customer.dto.BulkImportResult;
+import com.ningshenquantlab.alphaforge_demo1.customer.entity.UserAcct;
+import com.ningshenquantlab.alphaforge_demo1.customer.mapper.UserAcctMapper;
+import com.ningshenquantlab.alphaforge_demo1.customer.validation.CreateGroup;
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * user_acct 批量导入
+ *
+ * 逐个调用 POST /api/v1/userAccts 导入大量用户时，每个用户都要一次校验、一次按昵称查重、一次单行插入，这里：
+ * - 逐行读取请求体（CSV 或 NDJSON），不把整个文件读进内存
+ * - 每行用共享的 Validator 按 CreateGroup 和默认分组校验（比单个创建多校验默认分组，
+ *   超长的昵称等在写库前就被拒绝，不会让整批插入失败）
+ * - 文件内的 cust_id、cust_name 重复用两个 Set 判断；与库中已有数据的重复每批只查一次（selectExisting）
+ * - 通过校验的行每 customer.bulk-import.chunk-size 行用 ExecutorType.BATCH 的 SqlSession 批量插入并提交一次
+ *   （配合连接串中的 rewriteBatchedStatements=true 合并为多值 INSERT）
+ * - 每批单独提交，某一批写入失败（如导入期间有并发插入触发唯一键冲突）时只回滚该批，该批的行都记为失败
+ * 返回逐行错误报告，错误明细最多保留 customer.bulk-import.max-errors 条
+ */
+@Slf4j
+@Component
+public class UserAcctBulkImporter {
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private final UserAcctMapper userAcctMapper;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final UserAcctCountProvider countProvider;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    @Autowired
+    public UserAcctBulkImporter(SqlSessionFactory sqlSessionFactory,
+                                UserAcctMapper userAcctMapper,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                UserAcctCountProvider countProvider,
+                                @Value("${customer.bulk-import.chunk-size:1000}") int chunkSize,
+                                @Value("${customer.bulk-import.max-errors:1000}") int maxErrors) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.userAcctMapper = userAcctMapper;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.countProvider = countProvider;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * 导入用户
+     * @param in 请求体，UTF-8
+     * @param ndjson true 为每行一个 JSON 对象，false 为带表头的 CSV（列名为 custId / cust_id 等，不区分大小写）
+     */
+    public BulkImportResult importFrom(InputStream in, boolean ndjson) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        Set<Long> seenCustIds = new HashSet<>();
+        Set<String> seenCustNames = new HashSet<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        long start = System.currentTimeMillis();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String[] header = null;
+            String line;
+            long lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1);
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!ndjson && header == null) {
+                    header = parseHeader(line);
+                    continue;
+                }
+                result.setTotal(result.getTotal() + 1);
+
+                UserAcct userAcct;
+                try {
+                    userAcct = ndjson ? objectMapper.readValue(line, UserAcct.class) : parseCsv(header, line);
+                } catch (Exception e) {
+                    fail(result, lineNo, null, "无法解析: " + firstLine(e.getMessage()));
+                    continue;
+                }
+                String error = validate(userAcct);
+                if (error == null && !seenCustIds.add(userAcct.getCustId())) {
+                    error = "文件中客户ID重复";
+                }
+                if (error == null && !seenCustNames.add(userAcct.getCustName())) {
+                    error = "文件中用户名重复";
+                }
+                if (error != null) {
+                    fail(result, lineNo, userAcct == null ? null : userAcct.getCustId(), error);
+                    continue;
+                }
+                if (userAcct.getStatus() == null) {
+                    userAcct.setStatus(1);
+                }
+                chunk.add(new Row(lineNo, userAcct));
+                if (chunk.size() >= chunkSize) {
+                    flush(chunk, result);
+                }
+            }
+            if (!ndjson && header == null) {
+                throw new BusinessException("CSV 缺少表头");
+            }
+            flush(chunk, result);
+            // 与库中数据重复、写入失败的行在整批处理时才记录，这里按行号重新排序
+            result.getErrors().sort(Comparator.comparingLong(BulkImportResult.RowError::getLine));
+        } finally {
+            // 读取中途出错时已提交的批次仍然有效
+            if (result.getInserted() > 0) {
+                countProvider.invalidate();
+            }
+        }
+        log.info("用户批量导入完成: 共 {} 行, 成功 {}, 失败 {}, 耗时 {}ms",
+                result.getTotal(), result.getInserted(), result.getFailed(), System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 去掉与库中已有数据重复的行，其余批量插入并提交
+     */
+    private void flush(List<Row> chunk, BulkImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Row> rows = excludeExisting(chunk, result);
+        chunk.clear();
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false)) {
+            UserAcctMapper batchMapper = session.getMapper(UserAcctMapper.class);
+            try {
+                for (Row row : rows) {
+                    batchMapper.insert(row.userAcct);
+                }
+                session.flushStatements();
+                session.commit();
+                result.setInserted(result.getInserted() + rows.size());
+            } catch (Exception e) {
+                session.rollback();
+                log.warn("用户批量导入: 第 {}-{} 行写入失败: {}", rows.get(0).line, rows.get(rows.size() - 1).line, e.getMessage());
+                String message = "批次写入失败: " + rootMessage(e);
+                for (Row row : rows) {
+                    fail(result, row.line, row.userAcct.getCustId(), message);
+                }
+            }
+        }
+    }
+
+    private List<Row> excludeExisting(List<Row> chunk, BulkImportResult result) {
+        List<Long> custIds = chunk.stream().map(row -> row.userAcct.getCustId()).collect(Collectors.toList());
+        List<String> custNames = chunk.stream().map(row -> row.userAcct.getCustName()).collect(Collectors.toList());
+        Set<Long> existingIds = new HashSet<>();
+        Set<String> existingNames = new HashSet<>();
+        for (UserAcct existing : userAcctMapper.selectExisting(custIds, custNames)) {
+            existingIds.add(existing.getCustId());
+            existingNames.add(existing.getCustName());
+        }
+        if (existingIds.isEmpty() && existingNames.isEmpty()) {
+            return new ArrayList<>(chunk);
+        }
+        List<Row> rows = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            if (existingIds.contains(row.userAcct.getCustId())) {
+                fail(result, row.line, row.userAcct.getCustId(), "客户ID已存在");
+            } else if (existingNames.contains(row.userAcct.getCustName())) {
+                fail(result, row.line, row.userAcct.getCustId(), "用户名已存在");
+            } else {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private String validate(UserAcct userAcct) {
+        if (userAcct == null) {
+            return "空行";
+        }
+        // 客户ID、客户名称的非空校验在 UpdateGroup 中（创建时 custId 由调用方给出），这里单独检查
+        if (userAcct.getCustId() == null) {
+            return "客户ID不能为空";
+        }
+        if (userAcct.getCustName() == null) {
+            return "客户名称不能为空";
+        }
+        Set<ConstraintViolation<UserAcct>> violations = validator.validate(userAcct, CreateGroup.class, Default.class);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void fail(BulkImportResult result, long line, Long custId, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new BulkImportResult.RowError(line, custId, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private static String firstLine(String message) {
+        if (message == null) {
+            return null;
+        }
+        int end = message.indexOf('\n');
+        return end < 0 ? message : message.substring(0, end);
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    /**
+     * 表头列名统一为去掉下划线的小写形式（cust_id、custId 都对应 custid）
+     */
+    private static String[] parseHeader(String line) {
+        List<String> names = splitCsv(line);
+        String[] header = new String[names.size()];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = names.get(i).trim().replace("_", "").toLowerCase();
+        }
+        return header;
+    }
+
+    private static UserAcct parseCsv(String[] header, String line) {
+        List<String> values = splitCsv(line);
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.length && i < values.size(); i++) {
+            String value = values.get(i).trim();
+            fields.put(header[i], value.isEmpty() ? null : value);
+        }
+        UserAcct userAcct = new UserAcct();
+        String custId = fields.get("custid");
+        userAcct.setCustId(custId == null ? null : Long.valueOf(custId));
+        userAcct.setCustName(fields.get("custname"));
+        userAcct.setCustKey(fields.get("custkey"));
+        userAcct.setCustEmail(fields.get("custemail"));
+        userAcct.setCustPhone(fields.get("custphone"));
+        String status = fields.get("status");
+        userAcct.setStatus(status == null ? null : Integer.valueOf(status));
+        return userAcct;
+    }
+
+    /**
+     * 按逗号拆分一行 CSV，支持双引号包裹的字段（字段内的逗号、两个双引号表示一个双引号），不支持字段内换行
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * 待插入的一行
+     * @param line 请求体中的行号
+     */
+    private record Row(long line, UserAcct userAcct) {
+    }
+}
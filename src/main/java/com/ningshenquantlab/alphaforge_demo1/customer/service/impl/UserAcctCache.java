@@ -0,0 +1,204 @@
+package com.ningshenquantlab.alphaforge_demo1.customer.service.impl;
+
+import com.ningshenquantlab.alphaforge_demo1.customer.entity.UserAcct;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * user_acct 单条查询缓存（按 cust_id、cust_name 读取）
+ *
+ * findByCustId 每次都查库，update 前后各查一次，save 和 delete 之前也要查，这里在 UserAcctMapper 前加一层读穿透缓存：
+ * - 按 cust_id 保存，按访问顺序 LRU 淘汰（customer.acct-cache.max-size），写入 ttl-seconds 秒后过期
+ * - cust_name 只是指向 cust_id 的二级索引，命中后还要核对缓存中的昵称仍然一致
+ * - 不缓存 custKey：放入缓存和返回给调用方的都是去掉 custKey 的副本（命中和未命中的返回值一致）
+ * - 只缓存查到的用户，不缓存"不存在"
+ * - 更新、删除后按 cust_id 失效：立即失效一次，并在事务结束（提交或回滚）后再失效一次，
+ *   避免事务内读到的未提交数据留在缓存中
+ * - 查库前取版本号，放入时版本号已变化（期间有失效）则不放入，避免旧数据在失效之后又被缓存
+ * 命中 / 未命中次数以 customer.acct.cache{result} 暴露
+ */
+@Component
+public class UserAcctCache {
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final Map<Long, Entry> byCustId;
+    private final Map<String, Long> byCustName = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // 每次失效加一，所有访问都在 synchronized (this) 中
+    private long version;
+
+    @Autowired
+    public UserAcctCache(MeterRegistry registry,
+                         @Value("${customer.acct-cache.enabled:true}") boolean enabled,
+                         @Value("${customer.acct-cache.max-size:10000}") int maxSize,
+                         @Value("${customer.acct-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        int capacity = Math.max(1, maxSize);
+        this.byCustId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                byCustName.remove(eldest.getValue().userAcct.getCustName(), eldest.getKey());
+                return true;
+            }
+        };
+        FunctionCounter.builder("customer.acct.cache", this, UserAcctCache::hitCount)
+                .tag("result", "hit")
+                .description("用户查询缓存命中次数")
+                .register(registry);
+        FunctionCounter.builder("customer.acct.cache", this, UserAcctCache::missCount)
+                .tag("result", "miss")
+                .description("用户查询缓存未命中次数")
+                .register(registry);
+        Gauge.builder("customer.acct.cache.size", this, UserAcctCache::size)
+                .description("缓存的用户数")
+                .register(registry);
+    }
+
+    /**
+     * 按 cust_id 读取
+     * @param loader 未命中时查库
+     * @return 去掉 custKey 的副本，用户不存在时返回 null
+     */
+    public UserAcct getByCustId(Long custId, Function<Long, UserAcct> loader) {
+        if (!enabled || custId == null) {
+            return strip(loader.apply(custId));
+        }
+        long current;
+        synchronized (this) {
+            Entry entry = live(custId);
+            if (entry != null) {
+                hits.increment();
+                return copy(entry.userAcct);
+            }
+            misses.increment();
+            current = version;
+        }
+        return load(loader.apply(custId), current);
+    }
+
+    /**
+     * 按 cust_name 读取
+     * @param loader 未命中时查库
+     * @return 去掉 custKey 的副本，用户不存在时返回 null
+     */
+    public UserAcct getByCustName(String custName, Function<String, UserAcct> loader) {
+        if (!enabled || custName == null) {
+            return strip(loader.apply(custName));
+        }
+        long current;
+        synchronized (this) {
+            Long custId = byCustName.get(custName);
+            Entry entry = custId == null ? null : live(custId);
+            if (entry != null && custName.equals(entry.userAcct.getCustName())) {
+                hits.increment();
+                return copy(entry.userAcct);
+            }
+            misses.increment();
+            current = version;
+        }
+        return load(loader.apply(custName), current);
+    }
+
+    /**
+     * 用户被更新或删除后调用，立即失效，并在当前事务结束后再失效一次
+     */
+    public void invalidate(Long custId) {
+        remove(custId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(custId);
+                }
+            });
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public synchronized int size() {
+        return byCustId.size();
+    }
+
+    private synchronized void remove(Long custId) {
+        version++;
+        Entry entry = byCustId.remove(custId);
+        if (entry != null) {
+            byCustName.remove(entry.userAcct.getCustName(), custId);
+        }
+    }
+
+    private UserAcct load(UserAcct loaded, long loadVersion) {
+        UserAcct stripped = strip(loaded);
+        if (stripped == null || stripped.getCustId() == null) {
+            return stripped;
+        }
+        synchronized (this) {
+            if (version == loadVersion) {
+                Entry previous = byCustId.put(stripped.getCustId(), new Entry(copy(stripped), System.nanoTime() + ttlNanos));
+                if (previous != null) {
+                    byCustName.remove(previous.userAcct.getCustName(), stripped.getCustId());
+                }
+                if (stripped.getCustName() != null) {
+                    byCustName.put(stripped.getCustName(), stripped.getCustId());
+                }
+            }
+        }
+        return stripped;
+    }
+
+    // 调用方持有 this 锁
+    private Entry live(Long custId) {
+        Entry entry = byCustId.get(custId);
+        if (entry != null && entry.expireNanos - System.nanoTime() <= 0) {
+            byCustId.remove(custId);
+            byCustName.remove(entry.userAcct.getCustName(), custId);
+            return null;
+        }
+        return entry;
+    }
+
+    private static UserAcct strip(UserAcct userAcct) {
+        if (userAcct == null) {
+            return null;
+        }
+        UserAcct copy = copy(userAcct);
+        copy.setCustKey(null);
+        return copy;
+    }
+
+    private static UserAcct copy(UserAcct userAcct) {
+        UserAcct copy = new UserAcct();
+        BeanUtils.copyProperties(userAcct, copy);
+        return copy;
+    }
+
+    private record Entry(UserAcct userAcct, long expireNanos) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.ningshenquantlab.alphaforge_demo1.customer.service.impl;
+
+import com.ningshenquantlab.alphaforge_demo1.common.TotalCount;
+import com.ningshenquantlab.alphaforge_demo1.customer.dao.NameSearch;
+import com.ningshenquantlab.alphaforge_demo1.customer.mapper.UserAcctMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * user_acct 列表总数
+ *
+ * 分页列表每次请求都执行 SELECT COUNT(*) 会让数据库工作量翻倍（InnoDB 的 COUNT(*) 要扫描整个索引），这里：
+ * - 总数按查询条件（全部 / 搜索关键词）缓存 customer.count-cache.ttl-seconds 秒，新增、修改、删除用户后立即失效
+ * - 全表总数先读 information_schema.TABLES 的估算行数，超过 customer.count-cache.estimate-threshold 时直接使用估算值
+ *   （标记为非精确），否则执行 COUNT(*)
+ * - 搜索总数没有可用的估算，总是精确统计（同样缓存）
+ * 统计期间有写入时结果不放入缓存，避免写入前的旧总数在失效之后又被缓存
+ */
+@Component
+public class UserAcctCountProvider {
+
+    // 缓存的查询条件数上限，超过后整体清空（搜索关键词可能很多）
+    private static final int MAX_ENTRIES = 1000;
+    private static final String ALL = "";
+
+    private final UserAcctMapper userAcctMapper;
+    private final NameSearch nameSearch;
+    private final long ttlNanos;
+    private final long estimateThreshold;
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+    // 每次失效加一
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public UserAcctCountProvider(UserAcctMapper userAcctMapper,
+                                 NameSearch nameSearch,
+                                 @Value("${customer.count-cache.ttl-seconds:30}") long ttlSeconds,
+                                 @Value("${customer.count-cache.estimate-threshold:1000000}") long estimateThreshold) {
+        this.userAcctMapper = userAcctMapper;
+        this.nameSearch = nameSearch;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.estimateThreshold = estimateThreshold;
+    }
+
+    /**
+     * 全部用户数
+     */
+    public TotalCount countAll() {
+        return cached(ALL, () -> {
+            Long estimate = userAcctMapper.estimateRows();
+            if (estimate != null && estimate > estimateThreshold) {
+                return new TotalCount(estimate, false);
+            }
+            return new TotalCount(userAcctMapper.countAll(), true);
+        });
+    }
+
+    /**
+     * 搜索结果总数
+     */
+    public TotalCount countBySearch(String keyword) {
+        String phrase = nameSearch.phrase(keyword);
+        return cached("search:" + keyword, () -> new TotalCount(nameSearch.search("user_acct", phrase,
+                () -> userAcctMapper.countBySearch(keyword, phrase),
+                () -> userAcctMapper.countBySearch(keyword, null)), true));
+    }
+
+    /**
+     * 用户数据变化后调用，立即失效，并在当前事务提交后再失效一次（提交前其他线程读到的仍是旧数据）
+     */
+    public void invalidate() {
+        clear();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+        }
+    }
+
+    private void clear() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private TotalCount cached(String key, Supplier<TotalCount> loader) {
+        Entry entry = cache.get(key);
+        if (entry != null && entry.expireNanos - System.nanoTime() > 0) {
+            return entry.count;
+        }
+        long current = generation.get();
+        TotalCount count = loader.get();
+        if (generation.get() == current) {
+            if (cache.size() >= MAX_ENTRIES) {
+                cache.clear();
+            }
+            Entry loaded = new Entry(count, System.nanoTime() + ttlNanos);
+            cache.put(key, loaded);
+            // 放入的同时发生了失效
+            if (generation.get() != current) {
+                cache.remove(key, loaded);
+            }
+        }
+        return count;
+    }
+
+    private record Entry(TotalCount count, long expireNanos) {
+    }
+}
@@ -1,5 +1,10 @@
 package com.ningshenquantlab.alphaforge_demo1.customer.service.impl;
 
+import com.ningshenquantlab.alphaforge_demo1.common.PageCursor;
+import com.ningshenquantlab.alphaforge_demo1.common.PageResult;
+import com.ningshenquantlab.alphaforge_demo1.common.TotalCount;
+import com.ningshenquantlab.alphaforge_demo1.customer.dao.NameSearch;
+import com.ningshenquantlab.alphaforge_demo1.customer.dto.BulkImportResult;
 import com.ningshenquantlab.alphaforge_demo1.customer.entity.UserAcct;
 import com.ningshenquantlab.alphaforge_demo1.customer.mapper.UserAcctMapper;
 import com.ningshenquantlab.alphaforge_demo1.customer.service.UserAcctService;
@@ -9,30 +14,44 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Slf4j
 @Service
 public class UserAcctServiceImpl implements UserAcctService {
+    // 用户列表游标的范围（排序键为 user_acct.cust_id）
+    private static final String CURSOR_SCOPE = "acct";
+    private static final String TABLE = "user_acct";
+
     @Autowired
     private UserAcctMapper userAcctMapper;
+    @Autowired
+    private UserAcctCountProvider countProvider;
+    @Autowired
+    private NameSearch nameSearch;
+    @Autowired
+    private UserAcctCache userAcctCache;
+    @Autowired
+    private UserAcctBulkImporter bulkImporter;
 
     /**
-     * 根据 ID 查询用户
+     * 根据 ID 查询用户（经过 UserAcctCache，返回值不含 custKey）
      */
     @Override
     public UserAcct findByCustId(Long custId) {
-        UserAcct userAcct = userAcctMapper.selectByCustId(custId);
+        UserAcct userAcct = userAcctCache.getByCustId(custId, userAcctMapper::selectByCustId);
         if (userAcct == null) {
             throw new ResourceNotFoundException("用户不存在：ID = " + custId);
         }
         return userAcct;
     }
     /**
-     * 根据用户名查询用户
+     * 根据用户名查询用户（经过 UserAcctCache，返回值不含 custKey）
      */
     public UserAcct findByCustName(String custName) {
-        return userAcctMapper.selectByCustName(custName);
+        return userAcctCache.getByCustName(custName, userAcctMapper::selectByCustName);
     }
 
     /**
@@ -48,12 +67,18 @@ public class UserAcctServiceImpl implements UserAcctService {
         log.debug("Service: 搜索用户, keyword={}, page={}, size={}", keyword, page, size);
 
         int offset = (page - 1) * size;
-        return userAcctMapper.search(keyword, offset, size);
+        String phrase = nameSearch.phrase(keyword);
+        return nameSearch.search(TABLE, phrase,
+                () -> userAcctMapper.search(keyword, phrase, offset, size),
+                () -> userAcctMapper.search(keyword, null, offset, size));
     }
 
     @Override
     public Long countBySearch(String keyword) {
-        return userAcctMapper.countBySearch(keyword);
+        String phrase = nameSearch.phrase(keyword);
+        return nameSearch.search(TABLE, phrase,
+                () -> userAcctMapper.countBySearch(keyword, phrase),
+                () -> userAcctMapper.countBySearch(keyword, null));
     }
 
     /**
@@ -65,6 +90,33 @@ public class UserAcctServiceImpl implements UserAcctService {
         return userAcctMapper.selectPage(offset, size);
     }
 
+    /**
+     * 游标分页查询用户：多查一条判断是否还有下一页，有则用本页最后一个 cust_id 生成 nextCursor
+     */
+    @Override
+    public PageResult<UserAcct> findPageAfter(String after, Integer size, String keyword) {
+        // 先校验 size，避免 size + 1 溢出、size - 1 越界
+        PageResult.checkSize(size);
+        Long afterCustId = PageCursor.decode(CURSOR_SCOPE, after);
+        List<UserAcct> userAccts = keyword == null || keyword.trim().isEmpty()
+                ? userAcctMapper.selectPageAfter(afterCustId, size + 1)
+                : searchAfter(keyword, afterCustId, size + 1);
+
+        String nextCursor = null;
+        if (userAccts.size() > size) {
+            userAccts = userAccts.subList(0, size);
+            nextCursor = PageCursor.encode(CURSOR_SCOPE, userAccts.get(size - 1).getCustId());
+        }
+        return new PageResult<>(userAccts, size, nextCursor);
+    }
+
+    private List<UserAcct> searchAfter(String keyword, Long afterCustId, int limit) {
+        String phrase = nameSearch.phrase(keyword);
+        return nameSearch.search(TABLE, phrase,
+                () -> userAcctMapper.searchAfter(keyword, phrase, afterCustId, limit),
+                () -> userAcctMapper.searchAfter(keyword, null, afterCustId, limit));
+    }
+
     /**
      * 查询用户总数
      */
@@ -73,19 +125,27 @@ public class UserAcctServiceImpl implements UserAcctService {
         return userAcctMapper.countAll();
     }
 
+    @Override
+    public TotalCount total(String keyword) {
+        return keyword == null || keyword.trim().isEmpty()
+                ? countProvider.countAll()
+                : countProvider.countBySearch(keyword);
+    }
+
     /**
      * 保存用户
      */
     @Transactional(rollbackFor = Exception.class)
     public UserAcct save(UserAcct userAcct) {
         // 检查用户名是否重复
-        UserAcct existingUser = userAcctMapper.selectByCustName(userAcct.getCustName());
+        UserAcct existingUser = findByCustName(userAcct.getCustName());
         if (existingUser != null) {
             throw new RuntimeException("用户名已存在");
         }
 
         // 插入用户
         userAcctMapper.insert(userAcct);
+        countProvider.invalidate();
         log.info("用户创建成功：CUST_ID = {}", userAcct.getCustId());
 
         return userAcct;
@@ -104,6 +164,9 @@ public class UserAcctServiceImpl implements UserAcctService {
         if (rows == 0) {
             throw new RuntimeException("更新失败");
         }
+        userAcctCache.invalidate(userAcct.getCustId());
+        // 昵称变化会影响搜索总数
+        countProvider.invalidate();
 
         log.info("用户更新成功：ID = {}", userAcct.getId());
         return findByCustId(userAcct.getId());
@@ -122,16 +185,28 @@ public class UserAcctServiceImpl implements UserAcctService {
         if (rows == 0) {
             throw new RuntimeException("删除失败");
         }
+        userAcctCache.invalidate(custId);
+        countProvider.invalidate();
 
         log.info("用户删除成功：ID = {}", custId);
     }
 
+    /**
+     * 批量导入用户，见 UserAcctBulkImporter
+     */
+    @Override
+    public BulkImportResult bulkImport(InputStream in, boolean ndjson) throws IOException {
+        return bulkImporter.importFrom(in, ndjson);
+    }
+
     @Override
     public int batchDelete(List<Long> custIds) {
         int rows = userAcctMapper.batchDelete(custIds);
         if (rows == 0) {
             throw new RuntimeException("删除失败");
         }
+        custIds.forEach(userAcctCache::invalidate);
+        countProvider.invalidate();
 
         log.info("用户删除成功：共 = {}个", rows);
         return rows;
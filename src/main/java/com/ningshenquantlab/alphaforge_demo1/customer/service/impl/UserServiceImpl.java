@@ -1,5 +1,7 @@
 package com.ningshenquantlab.alphaforge_demo1.customer.service.impl;
 
+import com.ningshenquantlab.alphaforge_demo1.common.PageCursor;
+import com.ningshenquantlab.alphaforge_demo1.common.PageResult;
 import com.ningshenquantlab.alphaforge_demo1.customer.dao.UserDao;
 import com.ningshenquantlab.alphaforge_demo1.customer.entity.User;
 import com.ningshenquantlab.alphaforge_demo1.customer.service.UserService;
@@ -29,6 +31,9 @@ import java.util.List;
 @Slf4j
 @Service
 public class UserServiceImpl implements UserService {
+
+    // 用户列表游标的范围（排序键为 user.id）
+    private static final String CURSOR_SCOPE = "user";
     
     /**
      * 依赖注入：Service 需要用到 DAO
@@ -107,6 +112,33 @@ public class UserServiceImpl implements UserService {
         return userDao.search(keyword, offset, size);
     }
 
+    /**
+     * 游标分页查询用户
+     * 
+     * 业务逻辑：
+     * 1. 解码游标，得到上一页最后一个用户的 id
+     * 2. 多查一条（size + 1），据此判断是否还有下一页，多出的一条不返回
+     * 3. 有下一页时，用本页最后一个用户的 id 生成 nextCursor
+     */
+    @Override
+    public PageResult<User> findPageAfter(String after, Integer size, String keyword) {
+        log.debug("Service: 游标分页查询用户, after={}, size={}, keyword={}", after, size, keyword);
+
+        // 先校验 size，避免 size + 1 溢出、size - 1 越界
+        PageResult.checkSize(size);
+        Long afterId = PageCursor.decode(CURSOR_SCOPE, after);
+        List<User> users = keyword == null || keyword.trim().isEmpty()
+                ? userDao.findAfter(afterId, size + 1)
+                : userDao.searchAfter(keyword, afterId, size + 1);
+
+        String nextCursor = null;
+        if (users.size() > size) {
+            users = users.subList(0, size);
+            nextCursor = PageCursor.encode(CURSOR_SCOPE, users.get(size - 1).getId());
+        }
+        return new PageResult<>(users, size, nextCursor);
+    }
+
     /**
      * 统计用户总数
      */
@@ -2,6 +2,8 @@ package com.ningshenquantlab.alphaforge_demo1.exception;
 
 
 import com.ningshenquantlab.alphaforge_demo1.common.Result;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.BindException;
 import org.springframework.validation.FieldError;
@@ -52,6 +54,18 @@ public class GlobalExceptionHandler {
         return Result.error(400, message);
     }
 
+    /**
+     * 处理方法参数校验异常（类上标注 @Validated，@RequestParam、@PathVariable 上的约束）
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public Result<?> handleConstraintViolationException(ConstraintViolationException e) {
+        String message = e.getConstraintViolations().stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining(", "));
+        log.error("参数校验异常: {}", message);
+        return Result.error(400, message);
+    }
+
     /**
      * 处理空指针异常
      */
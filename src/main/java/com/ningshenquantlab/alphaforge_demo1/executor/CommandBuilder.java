@@ -43,4 +43,23 @@ public class CommandBuilder {
 
         return command;
     }
+
+    /**
+     * 构建特征计算参数（不含解释器和脚本路径，供 PythonExecutor 使用）
+     * 示例：calc --start 20250301 --end 20250305 --force
+     */
+    public List<String> buildFeatureCalcArgs(String startDate, String endDate, boolean force) {
+        List<String> args = new ArrayList<>();
+        args.add("calc");
+        args.add("--start");
+        args.add(startDate);
+        args.add("--end");
+        args.add(endDate);
+
+        if (force) {
+            args.add("--force");
+        }
+
+        return args;
+    }
 }
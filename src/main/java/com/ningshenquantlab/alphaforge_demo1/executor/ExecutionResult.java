@@ -0,0 +1,34 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//执行结果封装
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Python 脚本执行结果
+ */
+@Data
+@NoArgsConstructor
+public class ExecutionResult {
+    private Long taskId;
+    private String scriptName;
+    private List<String> command;      // 实际执行的完整命令
+    private Long pid;                  // 子进程 PID，启动失败时为 null
+    private Integer exitCode;          // 退出码，启动失败时为 null
+    private boolean success;           // 退出码为 0 视为成功
+    private String stdout;             // 标准输出（只保留最近的输出，见 python.execution.log-tail-*）
+    private String stderr;             // 标准错误（只保留最近的输出）
+    private Long stdoutBytes;          // stdout 累计字节数
+    private Long stderrBytes;          // stderr 累计字节数
+    private Long stdoutLines;          // stdout 累计行数
+    private Long stderrLines;          // stderr 累计行数
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Long durationMillis;       // 执行时长（毫秒）
+    private Long cpuMillis;            // 本任务消耗的 CPU 时间（毫秒），独立进程退出后无法再读取，为退出前最后一次读到的值；未能启动时为 null
+    private String errorMessage;       // 启动失败等非脚本本身的错误信息
+    private LimitViolation limitViolation;  // 因超出运行时长或资源上限被终止时的原因，否则为 null
+}
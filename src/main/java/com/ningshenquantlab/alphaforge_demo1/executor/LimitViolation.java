@@ -0,0 +1,10 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//资源限制违规
+
+/**
+ * 进程因超出限制被终止的原因
+ * @param reason 写入 task_record.error_message 的说明
+ * @param timeout 是否为超时（运行时长或 CPU 时间），任务置为 TIMEOUT；否则（内存超限）置为 FAILED
+ */
+public record LimitViolation(String reason, boolean timeout) {
+}
@@ -1,23 +1,310 @@
 package com.ningshenquantlab.alphaforge_demo1.executor;
 //本地 Python 执行器实现
-public class LocalPythonExecutor implements PythonExecutor{
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskStatusEnum;
+import com.ningshenquantlab.alphaforge_demo1.config.PythonConfig;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskExitedEvent;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地 Python 执行器
+ *
+ * 执行模型（非阻塞）：
+ * - 进程退出由 Process.onExit() 通知，不占用等待线程
+ * - stdout/stderr 交给 StreamPump 的共享抽取线程轮询读取，不为每个流单独开线程
+ * - 结果组装和下游回调在 processCallbackExecutor 上执行
+ * 因此本执行器自身占用的线程数是固定的，与并发子进程数无关
+ * （JDK 内部仍会为每个子进程保留一个小栈的 process reaper 线程，这部分无法避免）
+ *
+ * 配置在 python.worker-pool.scripts 中的脚本交给 PythonWorkerPool 的常驻进程执行，跳过解释器启动和 import
+ */
+@Slf4j
+@Component
+public class LocalPythonExecutor implements PythonExecutor {
+
+    private final PythonConfig pythonConfig;
+    private final ProcessManager processManager;
+    private final StreamPump streamPump;
+    private final PythonWorkerPool workerPool;
+    private final ExecutorService processCallbackExecutor;
+    // 延迟获取：监听器（如 TaskLogService）本身可能依赖执行器
+    private final ObjectProvider<OutputListener> outputListeners;
+    private final ObjectProvider<ProgressListener> progressListeners;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // 未关联 task_record 的临时任务使用负数ID，避免与数据库自增ID冲突
+    private final AtomicLong adHocTaskId = new AtomicLong();
+
+    // 运行中任务的输出收集器
+    private final ConcurrentMap<Long, OutputCollector> outputs = new ConcurrentHashMap<>();
+    // 交给常驻进程执行、尚未结束的任务
+    private final Set<Long> pooledTasks = ConcurrentHashMap.newKeySet();
+    // 已结束任务的累计输出字节数、行数
+    private final Map<LogTypeEnum, LongAdder> finishedBytes = new EnumMap<>(LogTypeEnum.class);
+    private final Map<LogTypeEnum, LongAdder> finishedLines = new EnumMap<>(LogTypeEnum.class);
+
+    @Autowired
+    public LocalPythonExecutor(PythonConfig pythonConfig,
+                               ProcessManager processManager,
+                               StreamPump streamPump,
+                               PythonWorkerPool workerPool,
+                               @Qualifier("processCallbackExecutor") ExecutorService processCallbackExecutor,
+                               ObjectProvider<OutputListener> outputListeners,
+                               ObjectProvider<ProgressListener> progressListeners,
+                               ApplicationEventPublisher eventPublisher) {
+        this.pythonConfig = pythonConfig;
+        this.outputListeners = outputListeners;
+        this.progressListeners = progressListeners;
+        this.eventPublisher = eventPublisher;
+        this.processManager = processManager;
+        this.streamPump = streamPump;
+        this.workerPool = workerPool;
+        this.processCallbackExecutor = processCallbackExecutor;
+        for (LogTypeEnum type : LogTypeEnum.values()) {
+            finishedBytes.put(type, new LongAdder());
+            finishedLines.put(type, new LongAdder());
+        }
+    }
+
     @Override
     public ExecutionResult executeSync(String scriptName, List<String> args) {
-        return null;
+        return executeAsync(scriptName, args).join();
     }
 
     @Override
     public CompletableFuture<ExecutionResult> executeAsync(String scriptName, List<String> args) {
-        return null;
+        return executeAsync(-adHocTaskId.incrementAndGet(), scriptName, args);
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> executeAsync(Long taskId, String scriptName, List<String> args) {
+        List<String> command = buildCommand(scriptName, args);
+        if (workerPool.supports(scriptName)) {
+            return executePooled(taskId, scriptName, args, command);
+        }
+        ProcessBuilder builder = new ProcessBuilder(command);
+        if (pythonConfig.getScriptPath() != null) {
+            builder.directory(new File(pythonConfig.getScriptPath()));
+        }
+        // 关闭 Python 的输出缓冲，保证日志实时可见；统一按 UTF-8 输出
+        builder.environment().put("PYTHONUNBUFFERED", "1");
+        builder.environment().put("PYTHONIOENCODING", "utf-8");
+
+        LocalDateTime startTime = LocalDateTime.now();
+        Process process;
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            log.error("启动 Python 进程失败: taskId={}, command={}", taskId, command, e);
+            ExecutionResult result = newResult(taskId, scriptName, command, startTime);
+            result.setEndTime(LocalDateTime.now());
+            result.setDurationMillis(0L);
+            result.setErrorMessage("启动 Python 进程失败: " + e.getMessage());
+            return CompletableFuture.completedFuture(exited(result));
+        }
+
+        ManagedProcess managed = processManager.register(taskId, process, command);
+        try {
+            // 脚本不从 stdin 读取数据，直接关闭
+            process.getOutputStream().close();
+        } catch (IOException ignored) {
+            // 关闭失败不影响执行
+        }
+
+        OutputCollector output = newOutput(taskId);
+        CompletableFuture<Void> drained = CompletableFuture.allOf(
+                streamPump.register(process, process.getInputStream(), output.stdout()),
+                streamPump.register(process, process.getErrorStream(), output.stderr()));
+
+        return process.onExit()
+                .thenCombine(drained, (p, v) -> p)
+                .handleAsync((p, ex) -> {
+                    processManager.unregister(managed);
+                    ExecutionResult result = newResult(taskId, scriptName, command, managed.getStartTime());
+                    result.setPid(managed.pid());
+                    result.setEndTime(LocalDateTime.now());
+                    result.setDurationMillis(managed.elapsedMillis());
+                    result.setCpuMillis(managed.finalCpuMillis());
+                    fillOutput(result, output);
+                    if (ex != null) {
+                        result.setErrorMessage(ex.getMessage());
+                    } else {
+                        result.setExitCode(p.exitValue());
+                        result.setSuccess(p.exitValue() == 0);
+                    }
+                    result.setLimitViolation(managed.getViolation());
+                    log.info("子进程结束: taskId={}, pid={}, exitCode={}, duration={}ms",
+                            taskId, result.getPid(), result.getExitCode(), result.getDurationMillis());
+                    return exited(result);
+                }, processCallbackExecutor);
+    }
+
+    /**
+     * 交给常驻进程执行，输出同样写入 OutputCollector，结果格式与独立进程一致
+     */
+    private CompletableFuture<ExecutionResult> executePooled(Long taskId, String scriptName,
+                                                             List<String> args, List<String> command) {
+        LocalDateTime submitTime = LocalDateTime.now();
+        OutputCollector output = newOutput(taskId);
+        pooledTasks.add(taskId);
+        CompletableFuture<PythonWorkerPool.JobResult> future;
+        try {
+            future = workerPool.submit(taskId, scriptName, args, output.stdout(), output.stderr());
+        } catch (RuntimeException e) {
+            outputs.remove(taskId, output);
+            pooledTasks.remove(taskId);
+            throw e;
+        }
+        return future
+                .handleAsync((job, ex) -> {
+                    pooledTasks.remove(taskId);
+                    LocalDateTime endTime = LocalDateTime.now();
+                    LocalDateTime startTime = job != null ? job.getStartTime() : submitTime;
+                    ExecutionResult result = newResult(taskId, scriptName, command, startTime);
+                    result.setEndTime(endTime);
+                    result.setDurationMillis(Duration.between(startTime, endTime).toMillis());
+                    fillOutput(result, output);
+                    if (ex != null) {
+                        result.setErrorMessage(ex.getMessage());
+                    } else {
+                        result.setPid(job.getWorkerPid());
+                        result.setExitCode(job.getExitCode());
+                        result.setSuccess(job.getExitCode() == 0);
+                        result.setLimitViolation(job.getViolation());
+                        result.setCpuMillis(job.getCpuMillis());
+                    }
+                    log.info("常驻进程任务结束: taskId={}, pid={}, exitCode={}, duration={}ms",
+                            taskId, result.getPid(), result.getExitCode(), result.getDurationMillis());
+                    return exited(result);
+                }, processCallbackExecutor);
     }
 
     @Override
-    public void cancelTask(Long taskId) {
+    public long cancelTask(Long taskId) {
+        if (workerPool.cancelPending(taskId)) {
+            return -1;
+        }
+        // 常驻进程执行的任务终止的是工作进程，工作进程随后由进程池补充
+        long cpuMillis = processManager.destroy(taskId);
+        if (cpuMillis < 0) {
+            log.warn("取消任务失败，任务未在运行: taskId={}", taskId);
+        }
+        return cpuMillis;
+    }
 
+    @Override
+    public OutputCollector getOutput(Long taskId) {
+        return outputs.get(taskId);
     }
 
     @Override
     public TaskStatus getTaskStatus(Long taskId) {
-        return null;
+        boolean pooled = pooledTasks.contains(taskId);
+        ManagedProcess managed = processManager.get(taskId);
+        if (managed == null) {
+            // 常驻进程执行的任务还在等待空闲的工作进程
+            return pooled ? new TaskStatus(taskId, TaskStatusEnum.PENDING, null, null, null, true) : null;
+        }
+        return new TaskStatus(taskId, TaskStatusEnum.RUNNING, managed.pid(),
+                managed.getStartTime(), managed.elapsedMillis(), pooled);
+    }
+
+    @Override
+    public long totalOutputBytes(LogTypeEnum type) {
+        long total = finishedBytes.get(type).sum();
+        for (OutputCollector output : outputs.values()) {
+            total += output.getBytes(type);
+        }
+        return total;
+    }
+
+    @Override
+    public long totalOutputLines(LogTypeEnum type) {
+        long total = finishedLines.get(type).sum();
+        for (OutputCollector output : outputs.values()) {
+            total += output.getLines(type);
+        }
+        return total;
+    }
+
+    /**
+     * 发布进程退出事件
+     */
+    private ExecutionResult exited(ExecutionResult result) {
+        eventPublisher.publishEvent(new TaskExitedEvent(result.getTaskId(), result, result.getEndTime()));
+        return result;
+    }
+
+    /**
+     * 构建完整命令：解释器 + 脚本绝对路径 + 参数
+     */
+    private List<String> buildCommand(String scriptName, List<String> args) {
+        List<String> command = new ArrayList<>();
+        command.add(pythonConfig.getInterpreter());
+        command.add(Paths.get(pythonConfig.getScriptPath(), scriptName).toString());
+        if (args != null) {
+            command.addAll(args);
+        }
+        return command;
+    }
+
+    private ExecutionResult newResult(Long taskId, String scriptName, List<String> command, LocalDateTime startTime) {
+        ExecutionResult result = new ExecutionResult();
+        result.setTaskId(taskId);
+        result.setScriptName(scriptName);
+        result.setCommand(command);
+        result.setStartTime(startTime);
+        return result;
+    }
+
+    private OutputCollector newOutput(Long taskId) {
+        PythonConfig.Execution execution = pythonConfig.getExecution();
+        OutputCollector output = new OutputCollector(taskId, execution.getLogTailBytes(), execution.getLogTailLines());
+        outputListeners.orderedStream().forEach(output::addListener);
+        progressListeners.orderedStream().forEach(output::addProgressListener);
+        outputs.put(taskId, output);
+        return output;
+    }
+
+    /**
+     * 结果中只带收集器保留的最近输出和累计计数，不会拷贝完整输出
+     */
+    private void fillOutput(ExecutionResult result, OutputCollector output) {
+        outputs.remove(result.getTaskId(), output);
+        // 移除后再计入已结束的累计值：两步之间读取累计值会暂时少算本任务，但不会重复计算
+        for (LogTypeEnum type : LogTypeEnum.values()) {
+            finishedBytes.get(type).add(output.getBytes(type));
+            finishedLines.get(type).add(output.getLines(type));
+        }
+        result.setStdout(output.text(LogTypeEnum.STDOUT));
+        result.setStderr(output.text(LogTypeEnum.STDERR));
+        result.setStdoutBytes(output.getBytes(LogTypeEnum.STDOUT));
+        result.setStderrBytes(output.getBytes(LogTypeEnum.STDERR));
+        result.setStdoutLines(output.getLines(LogTypeEnum.STDOUT));
+        result.setStderrLines(output.getLines(LogTypeEnum.STDERR));
     }
 }
@@ -0,0 +1,64 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//受管子进程
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 受 ProcessManager 管理的子进程
+ */
+@Getter
+public class ManagedProcess {
+    private final Long taskId;
+    private final Process process;
+    private final List<String> command;
+    private final LocalDateTime startTime;
+    private final long startNanos;
+    // 登记时进程树已消耗的 CPU 时间（毫秒），常驻进程执行多个任务时只统计本任务的部分
+    private final long cpuBaseMillis;
+    // 因超出限制被终止的原因，未被终止时为 null
+    private volatile LimitViolation violation;
+    // 最近一次读到的本任务 CPU 时间（毫秒），进程退出后 /proc 中已读取不到
+    private volatile long lastCpuMillis;
+
+    public ManagedProcess(Long taskId, Process process, List<String> command) {
+        this.taskId = taskId;
+        this.process = process;
+        this.command = command;
+        this.startTime = LocalDateTime.now();
+        this.startNanos = System.nanoTime();
+        this.cpuBaseMillis = ProcFs.treeCpuMillis(process.toHandle());
+    }
+
+    public long pid() {
+        return process.pid();
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /**
+     * 本任务（登记之后）消耗的 CPU 时间
+     */
+    public long cpuMillis() {
+        long cpuMillis = Math.max(0, ProcFs.treeCpuMillis(process.toHandle()) - cpuBaseMillis);
+        if (cpuMillis > lastCpuMillis) {
+            lastCpuMillis = cpuMillis;
+        }
+        return cpuMillis;
+    }
+
+    /**
+     * 任务结束时本任务消耗的 CPU 时间：进程仍在（常驻进程）时重新读取，已退出时取最后一次读到的值（心跳或终止时）
+     */
+    public long finalCpuMillis() {
+        return Math.max(cpuMillis(), lastCpuMillis);
+    }
+
+    void setViolation(LimitViolation violation) {
+        this.violation = violation;
+    }
+}
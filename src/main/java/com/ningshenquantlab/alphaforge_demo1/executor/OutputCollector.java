@@ -1,5 +1,271 @@
 package com.ningshenquantlab.alphaforge_demo1.executor;
 //输出收集器
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个任务的输出收集器
+ *
+ * 模型训练脚本每分钟输出数 MB 的进度信息，如果按 BufferedReader.readLine() 每行生成一个 String，
+ * 堆上会产生大量短命对象。这里的做法：
+ * - stdout/stderr 各有一块固定大小的环形字节区（python.execution.log-tail-bytes），收到的字节原样拷入，不解码
+ * - 另有一个固定长度的行索引环（python.execution.log-tail-lines），只记录每行的起止偏移和序号
+ * - 只有调用 tail/text 读取时才把对应的字节解码为 UTF-8 字符串
+ * - 总字节数、总行数是累计计数器，读取不需要拷贝任何输出
+ * 超出容量的旧输出会被覆盖，收集器只保留最近的输出。
+ *
+ * '\n'、'\r' 都视为行结束（tqdm 等进度条用 '\r' 刷新同一行），"\r\n" 只算一次。
+ * 注册了 OutputListener 时，每行结束后解码一次并回调（用于日志落库等），没有监听器则不做任何解码。
+ *
+ * stdout 中以 "##PROGRESS " 开头的行是进度协议（见 ProgressListener）：注册了 ProgressListener 时，
+ * 行结束后先按字节比较前缀，命中则只解码 JSON 部分交给进度监听器，该行不进入行索引、不回调 OutputListener，
+ * 即从 tail/text/task_log 中剥离；未注册进度监听器时按普通输出处理。
+ */
 public class OutputCollector {
 
+    private static final byte[] PROGRESS_PREFIX = "##PROGRESS ".getBytes(StandardCharsets.UTF_8);
+
+    private final Long taskId;
+    private final AtomicLong seq = new AtomicLong();
+    private final StreamBuffer stdout;
+    private final StreamBuffer stderr;
+    private final List<OutputListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<ProgressListener> progressListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param tailBytes 每个流保留的最近输出字节数
+     * @param tailLines 每个流保留的最近行数
+     */
+    public OutputCollector(Long taskId, int tailBytes, int tailLines) {
+        this.taskId = taskId;
+        this.stdout = new StreamBuffer(LogTypeEnum.STDOUT, tailBytes, tailLines);
+        this.stderr = new StreamBuffer(LogTypeEnum.STDERR, tailBytes, tailLines);
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * 注册行监听器，需在进程启动（开始抽取输出）之前调用
+     */
+    public void addListener(OutputListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 注册进度监听器，需在进程启动（开始抽取输出）之前调用
+     */
+    public void addProgressListener(ProgressListener listener) {
+        progressListeners.add(listener);
+    }
+
+    public StreamSink stdout() {
+        return stdout;
+    }
+
+    public StreamSink stderr() {
+        return stderr;
+    }
+
+    /**
+     * 累计收到的字节数（包含已被覆盖的部分）
+     */
+    public long getBytes(LogTypeEnum type) {
+        return buffer(type).totalBytes();
+    }
+
+    /**
+     * 累计完成的行数（包含已被覆盖的部分）
+     */
+    public long getLines(LogTypeEnum type) {
+        return buffer(type).totalLines();
+    }
+
+    /**
+     * 最近 n 行输出，stdout/stderr 按到达顺序合并
+     */
+    public List<OutputLine> tail(int n) {
+        List<OutputLine> lines = new ArrayList<>();
+        stdout.tail(n, lines);
+        stderr.tail(n, lines);
+        lines.sort(Comparator.comparing(OutputLine::getSeq));
+        return lines.size() > n ? new ArrayList<>(lines.subList(lines.size() - n, lines.size())) : lines;
+    }
+
+    /**
+     * 某个流保留的全部输出（含未结束的最后一行），用于组装执行结果
+     */
+    public String text(LogTypeEnum type) {
+        return buffer(type).text();
+    }
+
+    private StreamBuffer buffer(LogTypeEnum type) {
+        return type == LogTypeEnum.STDERR ? stderr : stdout;
+    }
+
+    /**
+     * 单个流的环形缓冲区
+     * 写入由抽取线程串行调用，读取来自任意线程，统一用 synchronized 保护（每次写入一整块，而不是每行加锁）
+     */
+    private final class StreamBuffer implements StreamSink {
+        private final LogTypeEnum type;
+        private final byte[] arena;
+        private final long[] lineStarts;
+        private final long[] lineEnds;
+        private final long[] lineSeqs;
+
+        private long writePos;          // 累计写入字节数，即下一个字节的绝对偏移
+        private long lineCount;         // 累计完成行数
+        private long currentLineStart;  // 当前未结束行的起始绝对偏移
+        private boolean lastWasCr;
+
+        private StreamBuffer(LogTypeEnum type, int tailBytes, int tailLines) {
+            this.type = type;
+            this.arena = new byte[tailBytes];
+            this.lineStarts = new long[tailLines];
+            this.lineEnds = new long[tailLines];
+            this.lineSeqs = new long[tailLines];
+        }
+
+        @Override
+        public synchronized void onData(ByteBuffer data) {
+            while (data.hasRemaining()) {
+                int offset = (int) (writePos % arena.length);
+                int n = Math.min(arena.length - offset, data.remaining());
+                data.get(arena, offset, n);
+                // 先推进 writePos，扫描过程中回调监听器时 decode 才能正确判断哪些字节已被本次写入覆盖
+                long base = writePos;
+                writePos += n;
+                for (int i = 0; i < n; i++) {
+                    byte b = arena[offset + i];
+                    long abs = base + i;
+                    if (b == '\n' && lastWasCr && abs == currentLineStart) {
+                        // "\r\n" 的 '\n'，上一行已经在 '\r' 处结束
+                        currentLineStart = abs + 1;
+                    } else if (b == '\n' || b == '\r') {
+                        completeLine(abs);
+                    }
+                    lastWasCr = b == '\r';
+                }
+            }
+        }
+
+        @Override
+        public synchronized void onEof() {
+            if (writePos > currentLineStart) {
+                completeLine(writePos);
+            }
+        }
+
+        private void completeLine(long end) {
+            if (type == LogTypeEnum.STDOUT && !progressListeners.isEmpty() && isProgress(currentLineStart, end)) {
+                String payload = decode(currentLineStart + PROGRESS_PREFIX.length, end);
+                if (payload != null) {
+                    for (ProgressListener listener : progressListeners) {
+                        listener.onProgress(taskId, payload);
+                    }
+                }
+                currentLineStart = end + 1;
+                return;
+            }
+            int idx = (int) (lineCount % lineStarts.length);
+            lineStarts[idx] = currentLineStart;
+            lineEnds[idx] = end;
+            lineSeqs[idx] = seq.incrementAndGet();
+            lineCount++;
+            if (!listeners.isEmpty()) {
+                String content = decode(currentLineStart, end);
+                OutputLine line = new OutputLine(lineSeqs[idx], type, content == null ? "" : content);
+                for (OutputListener listener : listeners) {
+                    listener.onLine(taskId, line);
+                }
+            }
+            currentLineStart = end + 1;
+        }
+
+        /**
+         * [start, end) 是否以进度前缀开头，直接比较环形区中的字节，不解码
+         * 行首已被覆盖（单行超过环形区大小）时无法判断，按普通输出处理
+         */
+        private boolean isProgress(long start, long end) {
+            if (end - start < PROGRESS_PREFIX.length || start < writePos - arena.length) {
+                return false;
+            }
+            for (int i = 0; i < PROGRESS_PREFIX.length; i++) {
+                if (arena[(int) ((start + i) % arena.length)] != PROGRESS_PREFIX[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private synchronized long totalBytes() {
+            return writePos;
+        }
+
+        private synchronized long totalLines() {
+            return lineCount;
+        }
+
+        private synchronized void tail(int n, List<OutputLine> out) {
+            long first = Math.max(0, lineCount - Math.min(n, lineStarts.length));
+            for (long i = first; i < lineCount; i++) {
+                int idx = (int) (i % lineStarts.length);
+                String content = decode(lineStarts[idx], lineEnds[idx]);
+                if (content != null) {
+                    out.add(new OutputLine(lineSeqs[idx], type, content));
+                }
+            }
+        }
+
+        private synchronized String text() {
+            StringBuilder sb = new StringBuilder();
+            long first = Math.max(0, lineCount - lineStarts.length);
+            for (long i = first; i < lineCount; i++) {
+                int idx = (int) (i % lineStarts.length);
+                String content = decode(lineStarts[idx], lineEnds[idx]);
+                if (content != null) {
+                    sb.append(content).append('\n');
+                }
+            }
+            if (writePos > currentLineStart) {
+                sb.append(decode(currentLineStart, writePos));
+            }
+            return sb.toString();
+        }
+
+        /**
+         * 解码 [start, end) 区间的字节，已被覆盖的部分截掉，完全被覆盖返回 null
+         */
+        private String decode(long start, long end) {
+            long oldest = writePos - arena.length;
+            if (end <= oldest) {
+                return null;
+            }
+            start = Math.max(start, oldest);
+            int len = (int) (end - start);
+            if (len <= 0) {
+                return "";
+            }
+            int from = (int) (start % arena.length);
+            if (from + len <= arena.length) {
+                return new String(arena, from, len, StandardCharsets.UTF_8);
+            }
+            // 跨越环形区末尾，拼成连续字节后再解码
+            byte[] joined = new byte[len];
+            int head = arena.length - from;
+            System.arraycopy(arena, from, joined, 0, head);
+            System.arraycopy(arena, 0, joined, head, len - head);
+            return new String(joined, 0, len, StandardCharsets.UTF_8);
+        }
+    }
 }
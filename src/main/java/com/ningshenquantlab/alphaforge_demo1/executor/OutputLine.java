@@ -0,0 +1,19 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//输出行
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 子进程输出的一行（只在读取时才从字节解码生成）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutputLine {
+    private Long seq;            // 同一任务内 stdout/stderr 共用的递增序号，反映输出到达顺序
+    private LogTypeEnum type;    // STDOUT / STDERR
+    private String content;      // 不含行尾换行符
+}
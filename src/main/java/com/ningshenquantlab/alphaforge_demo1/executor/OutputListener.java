@@ -0,0 +1,15 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//输出行监听器
+
+/**
+ * 子进程输出行监听器
+ * 实现为 Spring Bean 即可自动挂到每个任务的 OutputCollector 上。
+ * 回调发生在 StreamPump 抽取线程上，实现方只能做非阻塞操作（如放入队列），不能直接写库
+ */
+public interface OutputListener {
+
+    /**
+     * 任务输出了完整的一行
+     */
+    void onLine(Long taskId, OutputLine line);
+}
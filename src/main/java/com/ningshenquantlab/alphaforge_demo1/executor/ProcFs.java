@@ -0,0 +1,142 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//进程资源读取（/proc）
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 从 Linux /proc 文件系统读取进程资源信息
+ * 非 Linux 系统（如 Windows 开发环境）没有 /proc，所有方法返回 -1
+ */
+public final class ProcFs {
+
+    // /proc/<pid>/stat 中 CPU 时间的单位（USER_HZ），Linux 对用户态固定为 100
+    private static final long TICKS_PER_SECOND = 100;
+
+    private ProcFs() {
+    }
+
+    /**
+     * 读取进程累计 CPU 时间（/proc/<pid>/stat 的 utime + stime）
+     * @return 毫秒数，读取失败返回 -1
+     */
+    public static long cpuMillis(long pid) {
+        try {
+            String stat = Files.readString(Paths.get("/proc", String.valueOf(pid), "stat"));
+            // 格式：pid (comm) state ppid ...，comm 中可能有空格和括号，从最后一个 ')' 之后开始按空格切分
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            // fields[0] 为第 3 个字段 state，utime/stime 为第 14/15 个字段
+            long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+            return ticks * 1000 / TICKS_PER_SECOND;
+        } catch (IOException | RuntimeException e) {
+            // 进程已退出或不是 Linux
+        }
+        return -1;
+    }
+
+    /**
+     * 进程及其所有子孙进程（脚本可能通过 multiprocessing 再启动子进程）的常驻内存之和
+     * @return 字节数，读取不到根进程时返回 -1
+     */
+    public static long treeRssBytes(ProcessHandle root) {
+        long total = rssBytes(root.pid());
+        if (total < 0) {
+            return -1;
+        }
+        for (ProcessHandle child : (Iterable<ProcessHandle>) root.descendants()::iterator) {
+            long rss = rssBytes(child.pid());
+            if (rss > 0) {
+                total += rss;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 进程及其所有子孙进程的累计 CPU 时间之和；没有 /proc 时改用 ProcessHandle.Info，读取不到的进程记为 0
+     * 已退出的子孙进程不再计入
+     * @return 毫秒数
+     */
+    public static long treeCpuMillis(ProcessHandle root) {
+        long total = cpuMillis(root);
+        for (ProcessHandle child : (Iterable<ProcessHandle>) root.descendants()::iterator) {
+            total += cpuMillis(child);
+        }
+        return total;
+    }
+
+    private static long cpuMillis(ProcessHandle handle) {
+        long millis = cpuMillis(handle.pid());
+        if (millis >= 0) {
+            return millis;
+        }
+        return handle.info().totalCpuDuration().map(Duration::toMillis).orElse(0L);
+    }
+
+    /**
+     * 读取进程常驻内存（VmRSS）
+     * @return 字节数，读取失败返回 -1
+     */
+    public static long rssBytes(long pid) {
+        Path status = Paths.get("/proc", String.valueOf(pid), "status");
+        try {
+            List<String> lines = Files.readAllLines(status);
+            for (String line : lines) {
+                if (line.startsWith("VmRSS:")) {
+                    // 格式：VmRSS:    123456 kB
+                    String value = line.substring("VmRSS:".length()).trim();
+                    return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 进程已退出或不是 Linux
+        }
+        return -1;
+    }
+
+    /**
+     * 读取系统 CPU 累计时间（/proc/stat 第一行，单位 jiffies）
+     * @return {空闲时间（idle + iowait）, 总时间}，读取失败返回 null
+     */
+    public static long[] systemCpuTimes() {
+        try (var lines = Files.lines(Paths.get("/proc/stat"))) {
+            String first = lines.findFirst().orElse("");
+            // 格式：cpu  user nice system idle iowait irq softirq steal ...
+            String[] fields = first.trim().split("\\s+");
+            if (fields.length < 5 || !"cpu".equals(fields[0])) {
+                return null;
+            }
+            long total = 0;
+            for (int i = 1; i < fields.length && i <= 8; i++) {
+                total += Long.parseLong(fields[i]);
+            }
+            long idle = Long.parseLong(fields[4]) + (fields.length > 5 ? Long.parseLong(fields[5]) : 0);
+            return new long[]{idle, total};
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取 /proc/meminfo 中的一项（如 MemTotal、MemAvailable）
+     * @return 字节数，读取失败返回 -1
+     */
+    public static long memInfoBytes(String key) {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/meminfo"))) {
+                if (line.startsWith(key + ":")) {
+                    // 格式：MemAvailable:   12345678 kB
+                    String value = line.substring(key.length() + 1).trim();
+                    return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 不是 Linux
+        }
+        return -1;
+    }
+}
@@ -1,4 +1,265 @@
 package com.ningshenquantlab.alphaforge_demo1.executor;
 //进程管理器
+
+import com.ningshenquantlab.alphaforge_demo1.config.PythonConfig;
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskHeartbeatEvent;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskStartedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 进程管理器
+ * 维护 taskId -> 子进程 的映射，负责进程登记、查询和终止
+ *
+ * 终止按进程树进行：脚本通过 multiprocessing 启动的子进程不会随父进程退出，只结束父进程会留下长时间占用 CPU 的孤儿进程。
+ * - 先取得整棵进程树（ProcessHandle.descendants）再发信号，父进程退出后子进程被 init 收养，之后无法再从父进程找到
+ * - 对整棵树发送 SIGTERM（ProcessHandle.destroy），脚本可以在宽限期内自行清理
+ * - python.execution.cancel-grace-ms 之后仍未退出的进程（含宽限期内新启动的子进程）强制结束（SIGKILL）
+ *
+ * 运行时长和资源上限：monitorScheduler 每隔 python.execution.limit-check-interval-ms 检查一遍所有登记的进程，
+ * 所有任务共用这一个定时检查，不为每个任务单独安排线程或定时器：
+ * - 运行时长超过 python.execution.timeout 秒
+ * - 进程树 CPU 时间（/proc/<pid>/stat 的 utime + stime）超过 python.execution.max-cpu-seconds
+ * - 进程树常驻内存（/proc/<pid>/status 的 VmRSS）超过 python.execution.max-rss-mb
+ * 超出时按进程树终止，原因记在 ManagedProcess.violation 上，由执行器带入执行结果
+ *
+ * 同一遍检查中为每个未超限的进程发布 TaskHeartbeatEvent（运行时长、CPU 时间、常驻内存），进程登记时发布 TaskStartedEvent
+ */
+@Slf4j
+@Component
 public class ProcessManager {
+
+    private final ConcurrentMap<Long, ManagedProcess> processes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService monitorScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PythonConfig.Execution execution;
+    private final long graceMillis;
+
+    @Autowired
+    public ProcessManager(PythonConfig pythonConfig,
+                          @Qualifier("monitorScheduler") ScheduledExecutorService monitorScheduler,
+                          ApplicationEventPublisher eventPublisher) {
+        this.monitorScheduler = monitorScheduler;
+        this.eventPublisher = eventPublisher;
+        this.execution = pythonConfig.getExecution();
+        this.graceMillis = execution.getCancelGraceMs();
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = execution.getLimitCheckIntervalMs();
+        monitorScheduler.scheduleWithFixedDelay(this::checkLimitsSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 登记一个已启动的子进程
+     * @throws BusinessException 同一个 taskId 已有进程在运行时抛出（新进程会被终止）
+     */
+    public ManagedProcess register(Long taskId, Process process, List<String> command) {
+        ManagedProcess managed = tryRegister(taskId, process, command);
+        if (managed == null) {
+            process.destroyForcibly();
+            throw new BusinessException("任务已在运行：taskId = " + taskId);
+        }
+        return managed;
+    }
+
+    /**
+     * 登记一个任务，同一个 taskId 已有进程在运行时返回 null，不终止进程
+     * 用于多个任务共享的进程（常驻 Python 进程），登记冲突只拒绝该任务
+     */
+    public ManagedProcess tryRegister(Long taskId, Process process, List<String> command) {
+        ManagedProcess managed = new ManagedProcess(taskId, process, command);
+        if (processes.putIfAbsent(taskId, managed) != null) {
+            return null;
+        }
+        log.info("子进程已启动: taskId={}, pid={}", taskId, managed.pid());
+        eventPublisher.publishEvent(new TaskStartedEvent(taskId, managed.pid(), command, managed.getStartTime()));
+        return managed;
+    }
+
+    /**
+     * 移除登记（只有登记的仍是同一个进程时才移除）
+     */
+    public void unregister(ManagedProcess managed) {
+        processes.remove(managed.getTaskId(), managed);
+    }
+
+    public ManagedProcess get(Long taskId) {
+        return processes.get(taskId);
+    }
+
+    public boolean isRunning(Long taskId) {
+        return processes.containsKey(taskId);
+    }
+
+    public Collection<ManagedProcess> list() {
+        return processes.values();
+    }
+
+    public int runningCount() {
+        return processes.size();
+    }
+
+    /**
+     * 终止任务对应的子进程及其所有子孙进程
+     * @return 本任务消耗的 CPU 时间（毫秒，常驻进程不含之前执行的任务），没有正在运行的进程时返回 -1
+     */
+    public long destroy(Long taskId) {
+        ManagedProcess managed = processes.get(taskId);
+        if (managed == null) {
+            return -1;
+        }
+        log.info("终止子进程: taskId={}, pid={}", taskId, managed.pid());
+        long cpuMillis = managed.cpuMillis();
+        terminate(managed.getProcess().toHandle());
+        return cpuMillis;
+    }
+
+    /**
+     * 终止进程树：先发送 SIGTERM，宽限期后强制结束仍存活的进程，本方法不等待进程退出
+     * 也用于服务重启后接管的进程（不是本服务的子进程，没有 Process 对象）
+     * @return 进程树已消耗的 CPU 时间（毫秒），读取不到时记为 0
+     */
+    public long terminate(ProcessHandle root) {
+        List<ProcessHandle> tree = tree(root);
+        long cpuMillis = cpuMillis(tree);
+        tree.forEach(ProcessHandle::destroy);
+        monitorScheduler.schedule(() -> forceKill(root, tree), graceMillis, TimeUnit.MILLISECONDS);
+        return cpuMillis;
+    }
+
+    /**
+     * 应用关闭时终止所有运行中的子进程树，避免留下孤儿进程
+     * 关闭时调度线程随后也会停止，因此在这里同步等待宽限期再强制结束
+     */
+    @PreDestroy
+    public void destroyAll() {
+        List<ProcessHandle> roots = new ArrayList<>();
+        List<List<ProcessHandle>> trees = new ArrayList<>();
+        for (ManagedProcess managed : processes.values()) {
+            log.warn("应用关闭，终止子进程: taskId={}, pid={}", managed.getTaskId(), managed.pid());
+            ProcessHandle root = managed.getProcess().toHandle();
+            List<ProcessHandle> tree = tree(root);
+            tree.forEach(ProcessHandle::destroy);
+            roots.add(root);
+            trees.add(tree);
+        }
+        if (roots.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(roots.stream().map(ProcessHandle::onExit).toArray(CompletableFuture[]::new))
+                    .get(graceMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // 宽限期内未全部退出，下面强制结束
+        }
+        for (int i = 0; i < roots.size(); i++) {
+            forceKill(roots.get(i), trees.get(i));
+        }
+    }
+
+    /**
+     * 检查所有登记的进程是否超出运行时长或资源上限，超出的按进程树终止，未超出的发布心跳
+     */
+    void checkLimits() {
+        long timeoutMillis = execution.getTimeout() == null ? 0 : execution.getTimeout() * 1000L;
+        Long maxCpuSeconds = execution.getMaxCpuSeconds();
+        Long maxRssMb = execution.getMaxRssMb();
+        for (ManagedProcess managed : processes.values()) {
+            if (managed.getViolation() != null) {
+                // 已在终止中
+                continue;
+            }
+            LimitViolation violation = null;
+            long elapsed = managed.elapsedMillis();
+            long cpuMillis = managed.cpuMillis();
+            long rss = ProcFs.treeRssBytes(managed.getProcess().toHandle());
+            if (timeoutMillis > 0 && elapsed > timeoutMillis) {
+                violation = new LimitViolation(String.format("执行超时：已运行 %d 秒，上限 %d 秒",
+                        elapsed / 1000, execution.getTimeout()), true);
+            } else if (maxCpuSeconds != null && cpuMillis > maxCpuSeconds * 1000) {
+                violation = new LimitViolation(String.format("CPU 时间超限：已使用 %d 秒，上限 %d 秒",
+                        cpuMillis / 1000, maxCpuSeconds), true);
+            } else if (maxRssMb != null && rss > maxRssMb * 1024 * 1024) {
+                violation = new LimitViolation(String.format("内存超限：常驻内存 %dMB，上限 %dMB",
+                        rss / 1024 / 1024, maxRssMb), false);
+            }
+            if (violation == null) {
+                eventPublisher.publishEvent(new TaskHeartbeatEvent(managed.getTaskId(), managed.pid(), elapsed,
+                        cpuMillis, rss, LocalDateTime.now()));
+            } else if (processes.get(managed.getTaskId()) == managed) {
+                managed.setViolation(violation);
+                log.warn("子进程超出限制，终止进程树: taskId={}, pid={}, {}", managed.getTaskId(), managed.pid(),
+                        violation.reason());
+                terminate(managed.getProcess().toHandle());
+            }
+        }
+    }
+
+    private void checkLimitsSafely() {
+        try {
+            checkLimits();
+        } catch (RuntimeException e) {
+            log.warn("检查子进程运行限制失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 强制结束进程树中仍存活的进程（终止时记录的进程 + 根进程当前的子孙进程）
+     */
+    private void forceKill(ProcessHandle root, List<ProcessHandle> snapshot) {
+        List<ProcessHandle> alive = new ArrayList<>(snapshot);
+        if (root.isAlive()) {
+            root.descendants().forEach(alive::add);
+        }
+        int killed = 0;
+        for (ProcessHandle handle : alive) {
+            if (handle.isAlive() && handle.destroyForcibly()) {
+                killed++;
+            }
+        }
+        if (killed > 0) {
+            log.warn("进程在宽限期 {}ms 内未退出，已强制结束: pid={}, 强制结束进程数={}", graceMillis, root.pid(), killed);
+        }
+    }
+
+    /**
+     * 根进程及其所有子孙进程，子孙进程在前（先结束子孙，父进程不会在清理时再启动新的子进程）
+     */
+    private static List<ProcessHandle> tree(ProcessHandle root) {
+        List<ProcessHandle> tree = new ArrayList<>();
+        root.descendants().forEach(tree::add);
+        tree.add(root);
+        return tree;
+    }
+
+    private static long cpuMillis(List<ProcessHandle> tree) {
+        long total = 0;
+        for (ProcessHandle handle : tree) {
+            total += handle.info().totalCpuDuration().map(Duration::toMillis).orElse(0L);
+        }
+        return total;
+    }
 }
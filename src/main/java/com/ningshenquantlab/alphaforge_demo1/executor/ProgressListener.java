@@ -0,0 +1,22 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//进度行监听器
+
+/**
+ * 脚本进度行监听器
+ *
+ * 进度协议：脚本在 stdout 输出一行 "##PROGRESS " + JSON，例如
+ *   print('##PROGRESS {"percent": 42.5, "current": 85, "total": 200, "stage": "计算因子", "message": "600519.SH"}', flush=True)
+ * 字段均可省略：percent（0~100）、current / total（已完成 / 总数，缺少 percent 时据此计算）、stage、message、eta（剩余秒数）。
+ * OutputCollector 识别到进度行后只回调本监听器，不计入输出行、不回调 OutputListener，因此不会写入 task_log。
+ *
+ * 实现为 Spring Bean 即可自动挂到每个任务的 OutputCollector 上。
+ * 回调发生在 StreamPump 抽取线程上，实现方只能做非阻塞操作，JSON 解析等尽量推迟到读取时
+ */
+public interface ProgressListener {
+
+    /**
+     * 任务输出了一行进度
+     * @param payload 去掉 "##PROGRESS " 前缀后的内容（未校验的 JSON 文本）
+     */
+    void onProgress(Long taskId, String payload);
+}
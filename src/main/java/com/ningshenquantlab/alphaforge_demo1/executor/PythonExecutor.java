@@ -1,5 +1,12 @@
 package com.ningshenquantlab.alphaforge_demo1.executor;
 //Python 执行器接口
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskStatus;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Python 脚本执行器接口
  */
@@ -17,20 +24,49 @@ public interface PythonExecutor {
      * 异步执行 Python 脚本
      * @param scriptName 脚本名称
      * @param args 参数列表
-     * @return 任务ID
+     * @return 执行结果 Future，进程退出且输出读完后完成
      */
     CompletableFuture<ExecutionResult> executeAsync(String scriptName, List<String> args);
 
     /**
-     * 取消正在执行的任务
+     * 以指定任务ID异步执行 Python 脚本，之后可以通过该任务ID取消或查询状态
+     * @param taskId 任务ID（对应 task_record.id）
+     * @param scriptName 脚本名称
+     * @param args 参数列表
+     * @return 执行结果 Future，进程退出且输出读完后完成
+     */
+    CompletableFuture<ExecutionResult> executeAsync(Long taskId, String scriptName, List<String> args);
+
+    /**
+     * 取消正在执行的任务：终止任务的整棵进程树（先 SIGTERM，宽限期后强制结束），不等待进程退出
+     * @param taskId 任务ID
+     * @return 被终止的进程树已消耗的 CPU 时间（毫秒），任务还未分配到进程或已结束时返回 -1
+     */
+    long cancelTask(Long taskId);
+
+    /**
+     * 获取运行中任务的输出收集器，可读取最近输出和累计字节数/行数
      * @param taskId 任务ID
+     * @return 输出收集器，任务不在本执行器中运行时返回 null
      */
-    void cancelTask(Long taskId);
+    OutputCollector getOutput(Long taskId);
 
     /**
      * 获取任务状态
+     * 由常驻进程执行的任务 pooled=true，pid 是多个任务共享的工作进程，不能用来跟踪任务；还在等待工作进程时状态为 PENDING、pid 为 null
      * @param taskId 任务ID
-     * @return 任务状态
+     * @return 任务状态，任务不在本执行器中运行时返回 null
      */
     TaskStatus getTaskStatus(Long taskId);
+
+    /**
+     * 本执行器启动以来所有任务累计输出的字节数（已结束的任务 + 运行中任务当前的累计值）
+     * 任务结束的瞬间可能暂时少算该任务，作为计数器指标使用时调用方需取历史最大值
+     */
+    long totalOutputBytes(LogTypeEnum type);
+
+    /**
+     * 本执行器启动以来所有任务累计输出的行数，同 totalOutputBytes
+     */
+    long totalOutputLines(LogTypeEnum type);
 }
@@ -0,0 +1,525 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//常驻 Python 工作进程池
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ningshenquantlab.alphaforge_demo1.config.PythonConfig;
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 常驻 Python 工作进程池
+ *
+ * 每次 ProcessBuilder 启动脚本都要重新启动解释器并 import pandas/numpy/quantification_stock，耗时数秒，
+ * 日期范围较短的任务启动时间甚至超过计算时间。
+ *
+ * 这里为 python.worker-pool.scripts 中的每个脚本预先启动 N 个常驻进程（resources/python/quant_worker.py），
+ * 进程启动时预加载脚本依赖，之后任务以帧的形式通过 stdin 下发，输出同样以帧的形式从 stdout 返回：
+ * - 帧格式：4 字节大端长度（含类型字节） + 1 字节类型 + 负载，类型定义见 quant_worker.py
+ * - 工作进程的 stdout/stderr 同样交给 StreamPump 抽取，不额外占用线程
+ * - 进程执行满 max-jobs-per-worker 个任务或常驻内存超过 max-rss-mb 后回收（关闭 stdin 让其自然退出），并补充新进程
+ * - 执行中的任务会以工作进程登记到 ProcessManager，取消任务即终止该工作进程
+ */
+@Slf4j
+@Component
+public class PythonWorkerPool {
+
+    private static final String BOOTSTRAP_RESOURCE = "python/quant_worker.py";
+    private static final int HEADER_SIZE = 5;
+
+    private static final byte FRAME_JOB = 'J';
+    private static final byte FRAME_READY = 'R';
+    private static final byte FRAME_STDOUT = 'O';
+    private static final byte FRAME_STDERR = 'E';
+    private static final byte FRAME_DONE = 'D';
+
+    private final PythonConfig pythonConfig;
+    private final ProcessManager processManager;
+    private final StreamPump streamPump;
+    private final ExecutorService processCallbackExecutor;
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentMap<String, WorkerGroup> groups = new ConcurrentHashMap<>();
+    private volatile Path bootstrapScript;
+    private volatile boolean shuttingDown;
+
+    @Autowired
+    public PythonWorkerPool(PythonConfig pythonConfig,
+                            ProcessManager processManager,
+                            StreamPump streamPump,
+                            @Qualifier("processCallbackExecutor") ExecutorService processCallbackExecutor,
+                            ObjectMapper objectMapper) {
+        this.pythonConfig = pythonConfig;
+        this.processManager = processManager;
+        this.streamPump = streamPump;
+        this.processCallbackExecutor = processCallbackExecutor;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 启动时预热所有配置的脚本，解释器路径配置错误时只记录日志，不影响应用启动
+     */
+    @PostConstruct
+    public void warmUp() {
+        if (!Boolean.TRUE.equals(pythonConfig.getWorkerPool().getEnabled())) {
+            return;
+        }
+        for (String scriptName : pythonConfig.getWorkerPool().getScripts()) {
+            try {
+                group(scriptName).ensureCapacity();
+            } catch (RuntimeException e) {
+                log.error("常驻进程预热失败: script={}", scriptName, e);
+            }
+        }
+    }
+
+    /**
+     * 该脚本是否由常驻进程执行
+     */
+    public boolean supports(String scriptName) {
+        PythonConfig.WorkerPool config = pythonConfig.getWorkerPool();
+        return Boolean.TRUE.equals(config.getEnabled()) && config.getScripts().contains(scriptName);
+    }
+
+    /**
+     * 提交任务到常驻进程
+     *
+     * @param stdout 任务 stdout 消费者
+     * @param stderr 任务 stderr 消费者
+     * @return 任务结束时完成；工作进程在任务执行中退出时以该进程的退出码完成
+     * @throws BusinessException 同一个 taskId 已有任务在运行时抛出
+     */
+    public CompletableFuture<JobResult> submit(Long taskId, String scriptName, List<String> args,
+                                               StreamSink stdout, StreamSink stderr) {
+        if (processManager.isRunning(taskId)) {
+            throw new BusinessException("任务已在运行：taskId = " + taskId);
+        }
+        Job job = new Job(taskId, args, stdout, stderr);
+        WorkerGroup group = group(scriptName);
+        group.ensureCapacity();
+        group.enqueue(job);
+        return job.future;
+    }
+
+    /**
+     * 取消排队中（尚未分配到工作进程）的任务
+     * @return 是否找到并取消了该任务
+     */
+    public boolean cancelPending(Long taskId) {
+        for (WorkerGroup group : groups.values()) {
+            Job job = group.removePending(taskId);
+            if (job != null) {
+                job.future.completeExceptionally(new CancellationException("任务已取消：taskId = " + taskId));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        for (WorkerGroup group : groups.values()) {
+            group.shutdown();
+        }
+    }
+
+    private WorkerGroup group(String scriptName) {
+        return groups.computeIfAbsent(scriptName, WorkerGroup::new);
+    }
+
+    /**
+     * 把内置的 quant_worker.py 释放到临时目录（打成 jar 后 classpath 资源无法直接给解释器使用）
+     */
+    private Path bootstrapScript() {
+        Path script = bootstrapScript;
+        if (script == null) {
+            synchronized (this) {
+                script = bootstrapScript;
+                if (script == null) {
+                    try (InputStream in = new ClassPathResource(BOOTSTRAP_RESOURCE).getInputStream()) {
+                        script = Files.createTempFile("quant_worker", ".py");
+                        Files.copy(in, script, StandardCopyOption.REPLACE_EXISTING);
+                        script.toFile().deleteOnExit();
+                        bootstrapScript = script;
+                    } catch (IOException e) {
+                        throw new IllegalStateException("释放常驻进程启动脚本失败", e);
+                    }
+                }
+            }
+        }
+        return script;
+    }
+
+    /**
+     * 常驻进程中的任务结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class JobResult {
+        private final long workerPid;
+        private final int exitCode;
+        private final LocalDateTime startTime;   // 实际开始在工作进程中执行的时间
+        private final LimitViolation violation;  // 因超出运行时长或资源上限被终止时的原因
+        private final long cpuMillis;            // 本任务消耗的 CPU 时间（毫秒，不含工作进程之前执行的任务）
+    }
+
+    private static final class Job {
+        private final Long taskId;
+        private final List<String> args;
+        private final StreamSink stdout;
+        private final StreamSink stderr;
+        private final CompletableFuture<JobResult> future = new CompletableFuture<>();
+        private LocalDateTime startTime;
+        private ManagedProcess managed;
+
+        private Job(Long taskId, List<String> args, StreamSink stdout, StreamSink stderr) {
+            this.taskId = taskId;
+            this.args = args;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+
+        /**
+         * 任务输出结束：交出最后一行没有换行符的输出（与独立进程模式下 StreamPump 读到 EOF 时一致）
+         */
+        private void finishOutput() {
+            stdout.onEof();
+            stderr.onEof();
+        }
+    }
+
+    /**
+     * 同一脚本的一组常驻进程，所有状态变更都在 synchronized(this) 下进行
+     */
+    private final class WorkerGroup {
+        private final String scriptName;
+        private final List<Worker> workers = new ArrayList<>();
+        private final Deque<Worker> idle = new ArrayDeque<>();
+        private final Deque<Job> pending = new ArrayDeque<>();
+
+        private WorkerGroup(String scriptName) {
+            this.scriptName = scriptName;
+        }
+
+        /**
+         * 补足常驻进程数量
+         */
+        private synchronized void ensureCapacity() {
+            int target = pythonConfig.getWorkerPool().getWorkersPerScript();
+            while (!shuttingDown && workers.size() < target) {
+                workers.add(spawn());
+            }
+        }
+
+        private Worker spawn() {
+            List<String> command = new ArrayList<>();
+            command.add(pythonConfig.getInterpreter());
+            command.add("-u");
+            command.add(bootstrapScript().toString());
+            command.add(Paths.get(pythonConfig.getScriptPath(), scriptName).toString());
+            ProcessBuilder builder = new ProcessBuilder(command);
+            if (pythonConfig.getScriptPath() != null) {
+                builder.directory(new File(pythonConfig.getScriptPath()));
+            }
+            builder.environment().put("PYTHONIOENCODING", "utf-8");
+            Process process;
+            try {
+                process = builder.start();
+            } catch (IOException e) {
+                throw new IllegalStateException("启动常驻 Python 进程失败: " + command, e);
+            }
+            Worker worker = new Worker(this, process, command);
+            CompletableFuture<Void> stdoutDrained = streamPump.register(process, process.getInputStream(), worker);
+            streamPump.register(process, process.getErrorStream(), worker.stderrSink());
+            // 等 stdout 读空后再处理退出，保证进程退出前写出的结束帧已经被解析
+            process.onExit()
+                    .thenCombine(stdoutDrained, (p, v) -> p)
+                    .thenRunAsync(() -> onWorkerExit(worker), processCallbackExecutor);
+            log.info("常驻 Python 进程已启动: script={}, pid={}", scriptName, process.pid());
+            return worker;
+        }
+
+        private void enqueue(Job job) {
+            Worker worker;
+            synchronized (this) {
+                worker = idle.pollFirst();
+                if (worker == null) {
+                    pending.addLast(job);
+                    return;
+                }
+            }
+            dispatch(worker, job);
+        }
+
+        private synchronized Job removePending(Long taskId) {
+            for (Iterator<Job> it = pending.iterator(); it.hasNext(); ) {
+                Job job = it.next();
+                if (job.taskId.equals(taskId)) {
+                    it.remove();
+                    return job;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 工作进程空闲（预加载完成或上一个任务结束），分配下一个排队任务
+         */
+        private void release(Worker worker) {
+            Job job;
+            synchronized (this) {
+                job = pending.pollFirst();
+                if (job == null) {
+                    idle.addLast(worker);
+                    return;
+                }
+            }
+            dispatch(worker, job);
+        }
+
+        private void dispatch(Worker worker, Job job) {
+            job.startTime = LocalDateTime.now();
+            // 不能用 register：登记冲突时会终止进程，而这里是共享的工作进程
+            ManagedProcess managed = processManager.tryRegister(job.taskId, worker.process, worker.command(job));
+            if (managed == null) {
+                // 同一任务在其他地方已启动，拒绝该任务，工作进程继续分配下一个
+                job.future.completeExceptionally(new BusinessException("任务已在运行：taskId = " + job.taskId));
+                release(worker);
+                return;
+            }
+            job.managed = managed;
+            worker.current = job;
+            try {
+                byte[] payload = objectMapper.writeValueAsBytes(Map.of("args", job.args));
+                ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+                frame.putInt(payload.length + 1).put(FRAME_JOB).put(payload);
+                OutputStream stdin = worker.process.getOutputStream();
+                stdin.write(frame.array());
+                stdin.flush();
+            } catch (IOException e) {
+                // 写入失败说明工作进程已退出，任务由 onWorkerExit 统一处理
+                log.warn("任务下发到常驻进程失败: taskId={}, pid={}", job.taskId, worker.process.pid(), e);
+                worker.process.destroyForcibly();
+            }
+        }
+
+        /**
+         * 任务结束：完成 Future，按任务数和内存判断是否回收该进程
+         */
+        private void onJobDone(Worker worker, int exitCode) {
+            Job job = worker.takeCurrent();
+            worker.jobsDone++;
+            if (job != null) {
+                processManager.unregister(job.managed);
+                job.finishOutput();
+                job.future.complete(new JobResult(worker.process.pid(), exitCode, job.startTime,
+                        job.managed.getViolation(), job.managed.finalCpuMillis()));
+            }
+
+            PythonConfig.WorkerPool config = pythonConfig.getWorkerPool();
+            long rss = ProcFs.rssBytes(worker.process.pid());
+            if (worker.jobsDone >= config.getMaxJobsPerWorker()
+                    || (rss > 0 && rss > config.getMaxRssMb() * 1024 * 1024)) {
+                log.info("回收常驻 Python 进程: script={}, pid={}, jobs={}, rss={}MB",
+                        scriptName, worker.process.pid(), worker.jobsDone, rss / 1024 / 1024);
+                worker.retire();
+                return;
+            }
+            release(worker);
+        }
+
+        private void onWorkerExit(Worker worker) {
+            List<Job> orphans = new ArrayList<>();
+            synchronized (this) {
+                workers.remove(worker);
+                idle.remove(worker);
+                if (!worker.ready && !worker.retired) {
+                    // 预加载阶段就退出，多半是解释器或脚本路径配置错误，不再自动补充，避免无限重启
+                    log.error("常驻 Python 进程启动失败: script={}, pid={}, exitCode={}",
+                            scriptName, worker.process.pid(), worker.process.exitValue());
+                    if (workers.isEmpty()) {
+                        orphans.addAll(pending);
+                        pending.clear();
+                    }
+                }
+            }
+            Job job = worker.takeCurrent();
+            if (job != null) {
+                processManager.unregister(job.managed);
+                log.warn("常驻 Python 进程在任务执行中退出: taskId={}, pid={}, exitCode={}",
+                        job.taskId, worker.process.pid(), worker.process.exitValue());
+                // 进程中途退出时最后一行（如被截断的异常栈）通常没有换行符
+                job.finishOutput();
+                job.future.complete(new JobResult(worker.process.pid(), worker.process.exitValue(), job.startTime,
+                        job.managed.getViolation(), job.managed.finalCpuMillis()));
+            }
+            for (Job orphan : orphans) {
+                orphan.future.completeExceptionally(new IllegalStateException("常驻 Python 进程启动失败"));
+            }
+            if (worker.ready || worker.retired) {
+                ensureCapacity();
+            }
+        }
+
+        private synchronized void shutdown() {
+            for (Worker worker : workers) {
+                worker.retire();
+            }
+        }
+    }
+
+    /**
+     * 单个常驻进程，同时作为其 stdout 的帧解码器
+     * 解码回调由 StreamPump 抽取线程串行调用，stdout/stderr 数据帧直接转交给当前任务的消费者，不做拷贝
+     */
+    private final class Worker implements StreamSink {
+        private final WorkerGroup group;
+        private final Process process;
+        private final List<String> baseCommand;
+        private volatile boolean ready;
+        private volatile boolean retired;
+        private volatile Job current;
+        private int jobsDone;
+
+        // 帧解码状态
+        private final byte[] header = new byte[HEADER_SIZE];
+        private int headerPos;
+        private int payloadRemaining;
+        private byte frameType;
+        private final ByteArrayOutputStream control = new ByteArrayOutputStream();
+
+        private Worker(WorkerGroup group, Process process, List<String> baseCommand) {
+            this.group = group;
+            this.process = process;
+            this.baseCommand = baseCommand;
+        }
+
+        private List<String> command(Job job) {
+            List<String> command = new ArrayList<>(baseCommand);
+            command.addAll(job.args);
+            return command;
+        }
+
+        /**
+         * 取出并清空当前任务；任务结束和进程退出两条路径都会调用，保证任务只被完成一次
+         */
+        private synchronized Job takeCurrent() {
+            Job job = current;
+            current = null;
+            return job;
+        }
+
+        /**
+         * 关闭 stdin，工作进程读到 EOF 后自行退出
+         */
+        private void retire() {
+            retired = true;
+            try {
+                process.getOutputStream().close();
+            } catch (IOException e) {
+                process.destroy();
+            }
+        }
+
+        private StreamSink stderrSink() {
+            // 任务之外的 stderr（预加载异常、C 扩展直接写 fd 的输出）转到任务消费者或应用日志
+            return data -> {
+                Job job = current;
+                if (job != null) {
+                    job.stderr.onData(data);
+                } else {
+                    log.warn("常驻 Python 进程输出[pid={}]: {}", process.pid(),
+                            StandardCharsets.UTF_8.decode(data).toString().trim());
+                }
+            };
+        }
+
+        @Override
+        public void onData(ByteBuffer data) {
+            while (data.hasRemaining()) {
+                if (headerPos < HEADER_SIZE) {
+                    int n = Math.min(HEADER_SIZE - headerPos, data.remaining());
+                    data.get(header, headerPos, n);
+                    headerPos += n;
+                    if (headerPos == HEADER_SIZE) {
+                        payloadRemaining = ByteBuffer.wrap(header).getInt() - 1;
+                        frameType = header[4];
+                        control.reset();
+                        if (payloadRemaining == 0) {
+                            onFrame();
+                        }
+                    }
+                    continue;
+                }
+                int n = Math.min(payloadRemaining, data.remaining());
+                int start = data.position();
+                int limit = data.limit();
+                Job job = current;
+                if ((frameType == FRAME_STDOUT || frameType == FRAME_STDERR) && job != null) {
+                    // 把 data 临时限制在本帧负载范围内直接交给任务消费者
+                    data.limit(start + n);
+                    (frameType == FRAME_STDOUT ? job.stdout : job.stderr).onData(data);
+                    data.limit(limit);
+                } else {
+                    // 控制帧负载，或没有当前任务时的输出（预加载阶段 READY 之前的 print 等），整帧收齐后在 onFrame 中处理
+                    for (int i = 0; i < n; i++) {
+                        control.write(data.get(start + i));
+                    }
+                }
+                data.position(start + n);
+                payloadRemaining -= n;
+                if (payloadRemaining == 0) {
+                    onFrame();
+                }
+            }
+        }
+
+        private void onFrame() {
+            headerPos = 0;
+            if (frameType == FRAME_READY) {
+                ready = true;
+                log.info("常驻 Python 进程预加载完成: script={}, pid={}", group.scriptName, process.pid());
+                processCallbackExecutor.execute(() -> group.release(this));
+            } else if (frameType == FRAME_DONE) {
+                int exitCode = Integer.parseInt(control.toString(StandardCharsets.US_ASCII).trim());
+                processCallbackExecutor.execute(() -> group.onJobDone(this, exitCode));
+            } else if ((frameType == FRAME_STDOUT || frameType == FRAME_STDERR) && control.size() > 0) {
+                // 任务之外的输出与 stderrSink 一样转到应用日志
+                log.warn("常驻 Python 进程输出[pid={}]: {}", process.pid(),
+                        control.toString(StandardCharsets.UTF_8).trim());
+            }
+        }
+    }
+}
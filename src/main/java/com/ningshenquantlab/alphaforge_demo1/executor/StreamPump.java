@@ -0,0 +1,184 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//输出流抽取器
+
+import com.ningshenquantlab.alphaforge_demo1.config.PythonConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 子进程输出流抽取器
+ *
+ * 常见的 ProcessBuilder 写法每个子进程要占 3 个平台线程：waitFor 一个、stdout 一个、stderr 一个，
+ * 并发上百个子进程时线程数先于 CPU 成为瓶颈。
+ *
+ * 这里的做法：
+ * 1. 固定数量的抽取通道（lane），数量等于 python.execution.drain-threads，每个通道在共享调度线程池上周期运行
+ * 2. 每个输出流注册时按轮询分配到某个通道，通道每轮只读取 available() 已就绪的字节，永远不会阻塞在某个管道上
+ *    读取通过 ReadableByteChannel 写入通道复用的直接缓冲区（大小为 python.execution.log-buffer-size），
+ *    消费者直接从该缓冲区取字节，读取过程不产生新对象
+ * 3. 子进程退出且管道读空后，该流从通道中移除并完成对应的 CompletableFuture
+ *
+ * 子进程数量增加只会增加通道的轮询列表长度，不会增加线程数。
+ */
+@Slf4j
+@Component
+public class StreamPump {
+
+    // 单个流每轮最多读取的字节数，防止某个输出特别多的子进程饿死同通道的其它流
+    private static final int MAX_BYTES_PER_TICK = 256 * 1024;
+
+    private final Lane[] lanes;
+    private final AtomicInteger nextLane = new AtomicInteger();
+
+    @Autowired
+    public StreamPump(@Qualifier("streamPumpScheduler") ScheduledExecutorService streamPumpScheduler,
+                      PythonConfig pythonConfig) {
+        PythonConfig.Execution execution = pythonConfig.getExecution();
+        long interval = execution.getDrainIntervalMs();
+        this.lanes = new Lane[execution.getDrainThreads()];
+        for (int i = 0; i < lanes.length; i++) {
+            Lane lane = new Lane(execution.getLogBufferSize());
+            lanes[i] = lane;
+            streamPumpScheduler.scheduleWithFixedDelay(lane::tick, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        log.info("StreamPump 启动: lanes={}, interval={}ms", lanes.length, interval);
+    }
+
+    /**
+     * 注册一个需要抽取的输出流
+     *
+     * @param process 所属子进程，用于判断流是否已经不会再有新数据
+     * @param in      子进程的 stdout 或 stderr
+     * @param sink    数据消费者
+     * @return 流读空并关闭后完成的 Future
+     */
+    public CompletableFuture<Void> register(Process process, InputStream in, StreamSink sink) {
+        Target target = new Target(process, in, sink);
+        lanes[Math.floorMod(nextLane.getAndIncrement(), lanes.length)].targets.add(target);
+        return target.drained;
+    }
+
+    /**
+     * 当前正在抽取的流数量
+     */
+    public int activeStreams() {
+        int count = 0;
+        for (Lane lane : lanes) {
+            count += lane.targets.size();
+        }
+        return count;
+    }
+
+    private static final class Target {
+        private final Process process;
+        private final InputStream in;
+        private final ReadableByteChannel channel;
+        private final StreamSink sink;
+        private final CompletableFuture<Void> drained = new CompletableFuture<>();
+
+        private Target(Process process, InputStream in, StreamSink sink) {
+            this.process = process;
+            this.in = in;
+            this.channel = Channels.newChannel(in);
+            this.sink = sink;
+        }
+    }
+
+    /**
+     * 抽取通道：同一时刻只会被一个线程执行（scheduleWithFixedDelay 保证），因此读缓冲区可以复用
+     */
+    private static final class Lane {
+        private final Queue<Target> targets = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer buffer;
+
+        private Lane(int bufferSize) {
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        private void tick() {
+            // 周期任务抛出异常会被调度器静默取消，这里必须兜底
+            try {
+                for (Iterator<Target> it = targets.iterator(); it.hasNext(); ) {
+                    Target target = it.next();
+                    if (pump(target)) {
+                        it.remove();
+                    }
+                }
+            } catch (Throwable e) {
+                log.error("输出流抽取异常", e);
+            }
+        }
+
+        /**
+         * @return true 表示该流已结束，可以移除
+         */
+        private boolean pump(Target target) {
+            try {
+                // 先判断是否退出再读取：进程退出前写入的字节此时一定已经在管道里
+                boolean exited = !target.process.isAlive();
+                int total = 0;
+                int available;
+                while (total < MAX_BYTES_PER_TICK && (available = target.in.available()) > 0) {
+                    // 只读取已就绪的字节数，保证 channel.read 不会阻塞
+                    buffer.clear();
+                    buffer.limit(Math.min(available, buffer.capacity()));
+                    int read = target.channel.read(buffer);
+                    if (read < 0) {
+                        finish(target);
+                        return true;
+                    }
+                    buffer.flip();
+                    deliver(target);
+                    total += read;
+                }
+                if (exited && target.in.available() <= 0) {
+                    finish(target);
+                    return true;
+                }
+                return false;
+            } catch (IOException e) {
+                // 流已被关闭（例如进程被强制终止），视为结束
+                log.debug("输出流已关闭: pid={}, {}", target.process.pid(), e.getMessage());
+                finish(target);
+                return true;
+            }
+        }
+
+        private void deliver(Target target) {
+            try {
+                target.sink.onData(buffer);
+            } catch (RuntimeException e) {
+                log.error("输出消费者处理异常: pid={}", target.process.pid(), e);
+            }
+        }
+
+        private void finish(Target target) {
+            try {
+                target.channel.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响结果
+            }
+            try {
+                target.sink.onEof();
+            } catch (RuntimeException e) {
+                log.error("输出消费者结束回调异常: pid={}", target.process.pid(), e);
+            }
+            target.drained.complete(null);
+        }
+    }
+}
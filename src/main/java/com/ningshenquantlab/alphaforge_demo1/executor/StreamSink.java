@@ -0,0 +1,24 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+//输出流消费者
+
+import java.nio.ByteBuffer;
+
+/**
+ * 子进程输出流消费者
+ * 由 StreamPump 的抽取线程回调，实现方不能在回调中做阻塞操作（如写库），否则会拖慢所有子进程的输出抽取
+ */
+public interface StreamSink {
+
+    /**
+     * 收到一段输出字节（data 的 position 到 limit 之间）
+     * 注意：data 是抽取线程复用的缓冲区，回调返回后内容即失效，需要保留时必须自行拷贝；
+     * 回调结束后调用方会自行恢复 position/limit，实现方不需要消费完
+     */
+    void onData(ByteBuffer data);
+
+    /**
+     * 输出流结束（子进程退出且管道已读空，或流被关闭）
+     */
+    default void onEof() {
+    }
+}
@@ -0,0 +1,22 @@
+package com.ningshenquantlab.alphaforge_demo1.executor.event;
+//任务生命周期事件
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务生命周期事件，由执行器通过 Spring ApplicationEventPublisher 发布
+ *
+ * 发布方是输出抽取线程、进程回调线程和监控线程，订阅方必须用 @Async("taskEventExecutor") @EventListener 订阅，
+ * 不能在发布线程上做耗时操作（如访问数据库）。taskEventExecutor 只有一个线程，事件按发布顺序处理；
+ * 队列满时丢弃事件，事件只用于监控和告警，任务状态以 task_record 为准
+ *
+ * 例外：订阅方按任务ID保存在内存中的状态，须在 TaskExitedEvent 上用不带 @Async 的 @EventListener 在发布线程上移除
+ * （只做 Map 移除这类开销很小的操作），否则退出事件被丢弃时条目不会再被移除；
+ * 心跳处理须判断进程仍在运行，避免清理之后才处理到的心跳重新写入
+ */
+public interface TaskEvent {
+
+    Long taskId();
+
+    LocalDateTime time();
+}
@@ -0,0 +1,13 @@
+package com.ningshenquantlab.alphaforge_demo1.executor.event;
+//任务进程已退出事件
+
+import com.ningshenquantlab.alphaforge_demo1.executor.ExecutionResult;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务进程已退出（或启动失败），result 与 executeAsync 返回的结果相同
+ * 任务之后可能被自动重试，是否进入终态以 task_record 为准
+ */
+public record TaskExitedEvent(Long taskId, ExecutionResult result, LocalDateTime time) implements TaskEvent {
+}
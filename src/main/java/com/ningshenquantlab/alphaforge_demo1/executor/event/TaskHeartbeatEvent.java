@@ -0,0 +1,14 @@
+package com.ningshenquantlab.alphaforge_demo1.executor.event;
+//任务心跳事件
+
+import java.time.LocalDateTime;
+
+/**
+ * 运行中任务的心跳，每隔 python.execution.limit-check-interval-ms 每个运行中的任务发布一次
+ * @param elapsedMillis 已运行时长（毫秒）
+ * @param cpuMillis 本任务进程树已消耗的 CPU 时间（毫秒）
+ * @param rssBytes 进程树常驻内存（字节），读取不到时为 -1
+ */
+public record TaskHeartbeatEvent(Long taskId, long pid, long elapsedMillis, long cpuMillis, long rssBytes,
+                                 LocalDateTime time) implements TaskEvent {
+}
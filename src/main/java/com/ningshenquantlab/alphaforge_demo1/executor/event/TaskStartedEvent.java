@@ -0,0 +1,12 @@
+package com.ningshenquantlab.alphaforge_demo1.executor.event;
+//任务进程已启动事件
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 任务进程已启动（独立进程启动后，或任务分配到常驻进程后）
+ * @param pid 执行任务的进程PID（常驻进程执行时为工作进程的PID）
+ */
+public record TaskStartedEvent(Long taskId, long pid, List<String> command, LocalDateTime time) implements TaskEvent {
+}
@@ -1,4 +1,84 @@
 package com.ningshenquantlab.alphaforge_demo1.monitor;
 //告警服务（可选）
+
+import com.ningshenquantlab.alphaforge_demo1.config.PythonConfig;
+import com.ningshenquantlab.alphaforge_demo1.executor.ExecutionResult;
+import com.ningshenquantlab.alphaforge_demo1.executor.ProcessManager;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskExitedEvent;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskHeartbeatEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 告警服务
+ * 订阅执行器发布的任务事件，以下情况发出告警（目前只写 WARN 日志，接入通知渠道时扩展 alert 方法）：
+ * - 任务运行时长超过 python.execution.timeout 的 task.alert.long-running-ratio（每次执行只告警一次）
+ * - 任务因超出运行时长或资源上限被终止
+ */
+@Slf4j
+@Service
 public class AlertService {
+
+    private final ProcessManager processManager;
+    private final boolean enabled;
+    private final long longRunningMillis;
+
+    // 本次执行已发出长时间运行告警的任务
+    private final Set<Long> longRunningAlerted = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public AlertService(PythonConfig pythonConfig, ProcessManager processManager,
+                        @Value("${task.alert.enabled:true}") boolean enabled,
+                        @Value("${task.alert.long-running-ratio:0.8}") double longRunningRatio) {
+        Integer timeout = pythonConfig.getExecution().getTimeout();
+        this.processManager = processManager;
+        this.enabled = enabled;
+        this.longRunningMillis = timeout == null || timeout <= 0 ? 0 : (long) (timeout * 1000L * longRunningRatio);
+    }
+
+    @Async("taskEventExecutor")
+    @EventListener
+    public void onHeartbeat(TaskHeartbeatEvent event) {
+        if (enabled && longRunningMillis > 0 && event.elapsedMillis() > longRunningMillis
+                && longRunningAlerted.add(event.taskId())) {
+            // 退出清理在发布线程上执行，进程已退出后才处理到的心跳撤销登记（先登记再判断，与 clearOnExit 的移除不会错过）
+            if (!processManager.isRunning(event.taskId())) {
+                longRunningAlerted.remove(event.taskId());
+                return;
+            }
+            alert(event.taskId(), String.format("任务已运行 %d 秒，接近超时上限，CPU 时间 %d 秒，常驻内存 %dMB",
+                    event.elapsedMillis() / 1000, event.cpuMillis() / 1000, Math.max(0, event.rssBytes()) / 1024 / 1024));
+        }
+    }
+
+    /**
+     * 退出清理只是一次移除，直接在发布线程上执行，不经过 taskEventExecutor，事件队列满时也不会丢失
+     */
+    @EventListener
+    public void clearOnExit(TaskExitedEvent event) {
+        longRunningAlerted.remove(event.taskId());
+    }
+
+    @Async("taskEventExecutor")
+    @EventListener
+    public void onExited(TaskExitedEvent event) {
+        ExecutionResult result = event.result();
+        if (enabled && result.getLimitViolation() != null) {
+            alert(event.taskId(), "任务被终止: " + result.getLimitViolation().reason());
+        }
+    }
+
+    /**
+     * 发出告警
+     */
+    public void alert(Long taskId, String message) {
+        log.warn("[告警] taskId={}, {}", taskId, message);
+    }
 }
@@ -0,0 +1,118 @@
+package com.ningshenquantlab.alphaforge_demo1.monitor;
+//任务进度跟踪
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ningshenquantlab.alphaforge_demo1.executor.ManagedProcess;
+import com.ningshenquantlab.alphaforge_demo1.executor.ProcessManager;
+import com.ningshenquantlab.alphaforge_demo1.executor.ProgressListener;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskExitedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 任务进度跟踪
+ *
+ * 每个运行中任务只保留最近一次进度行，查询任务状态时直接读内存，不查 task_log：
+ * - 抽取线程上只把原始 JSON 文本和收到时的已运行时长放入 ConcurrentMap（覆盖上一条），不做解析，
+ *   脚本高频输出进度（如每处理一只股票一行）时开销只是一次 put
+ * - 读取时才解析 JSON，并在脚本没有给出 eta 时按 已运行时长 × (100 - percent) / percent 估算剩余时间
+ * - 任务退出后删除，进度不持久化
+ */
+@Slf4j
+@Component
+public class ProgressTracker implements ProgressListener {
+
+    private final ProcessManager processManager;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<Long, Raw> latest = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProgressTracker(ProcessManager processManager, ObjectMapper objectMapper) {
+        this.processManager = processManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void onProgress(Long taskId, String payload) {
+        ManagedProcess managed = processManager.get(taskId);
+        long elapsedMillis = managed == null ? -1 : managed.elapsedMillis();
+        latest.put(taskId, new Raw(payload, elapsedMillis, LocalDateTime.now()));
+    }
+
+    /**
+     * 退出清理直接在发布线程上执行，不经过 taskEventExecutor，事件队列满时也不会丢失；
+     * 进度行由抽取线程写入，输出抽取完成后才发布退出事件，移除之后不会再写入
+     */
+    @EventListener
+    public void onExited(TaskExitedEvent event) {
+        latest.remove(event.taskId());
+    }
+
+    /**
+     * 任务最近一次上报的进度
+     * @return 任务不在运行、未上报过进度或进度行不是合法 JSON 时返回 null
+     */
+    public TaskProgress get(Long taskId) {
+        Raw raw = latest.get(taskId);
+        if (raw == null) {
+            return null;
+        }
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(raw.payload);
+        } catch (JsonProcessingException e) {
+            log.debug("进度行不是合法 JSON: taskId={}, payload={}", taskId, raw.payload);
+            return null;
+        }
+        if (node == null || !node.isObject()) {
+            return null;
+        }
+        TaskProgress progress = new TaskProgress();
+        progress.setCurrent(longValue(node, "current"));
+        progress.setTotal(longValue(node, "total"));
+        progress.setStage(textValue(node, "stage"));
+        progress.setMessage(textValue(node, "message"));
+        progress.setUpdateTime(raw.time);
+
+        Double percent = node.path("percent").isNumber() ? node.path("percent").asDouble() : null;
+        if (percent == null && progress.getCurrent() != null && progress.getTotal() != null && progress.getTotal() > 0) {
+            percent = progress.getCurrent() * 100.0 / progress.getTotal();
+        }
+        if (percent != null) {
+            percent = Math.max(0, Math.min(100, percent));
+        }
+        progress.setPercent(percent);
+
+        Long eta = longValue(node, "eta");
+        if (eta == null && percent != null && percent > 0 && raw.elapsedMillis >= 0) {
+            eta = (long) (raw.elapsedMillis / 1000.0 * (100 - percent) / percent);
+        }
+        progress.setEtaSeconds(eta);
+        return progress;
+    }
+
+    private static Long longValue(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isNumber() ? value.asLong() : null;
+    }
+
+    private static String textValue(JsonNode node, String field) {
+        JsonNode value = node.path(field);
+        return value.isValueNode() && !value.isNull() ? value.asText() : null;
+    }
+
+    /**
+     * 未解析的进度行
+     * @param elapsedMillis 收到时任务已运行的毫秒数，未知时为 -1
+     */
+    private record Raw(String payload, long elapsedMillis, LocalDateTime time) {
+    }
+}
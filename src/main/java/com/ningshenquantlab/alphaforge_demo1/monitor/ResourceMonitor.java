@@ -1,4 +1,121 @@
 package com.ningshenquantlab.alphaforge_demo1.monitor;
 //资源监控（CPU、内存）
+
+import com.ningshenquantlab.alphaforge_demo1.config.TaskQueueConfig;
+import com.ningshenquantlab.alphaforge_demo1.executor.ManagedProcess;
+import com.ningshenquantlab.alphaforge_demo1.executor.ProcFs;
+import com.ningshenquantlab.alphaforge_demo1.executor.ProcessManager;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 资源监控
+ *
+ * 按 task.queue.admission.sample-interval-ms 周期采样，调用方只读取最近一次的结果，不会触发 IO：
+ * - 系统 CPU：/proc/stat 两次采样之间的非空闲时间占比
+ * - 系统内存：/proc/meminfo 的 MemTotal / MemAvailable
+ * - 任务内存：ProcessManager 中每个任务进程及其所有子进程（ProcessHandle.descendants）的 VmRSS 之和
+ * 没有 /proc 的系统（Windows 开发环境）改用 OperatingSystemMXBean 读取 CPU 和内存，任务内存记为 -1。
+ */
+@Slf4j
+@Component
 public class ResourceMonitor {
+
+    private final ProcessManager processManager;
+    private final TaskQueueConfig taskQueueConfig;
+    private final ScheduledExecutorService monitorScheduler;
+
+    private volatile ResourceSnapshot snapshot;
+    // 上一次采样的 CPU 时间，只由采样线程访问
+    private long[] lastCpuTimes;
+
+    @Autowired
+    public ResourceMonitor(ProcessManager processManager,
+                           TaskQueueConfig taskQueueConfig,
+                           @Qualifier("monitorScheduler") ScheduledExecutorService monitorScheduler) {
+        this.processManager = processManager;
+        this.taskQueueConfig = taskQueueConfig;
+        this.monitorScheduler = monitorScheduler;
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = taskQueueConfig.getAdmission().getSampleIntervalMs();
+        monitorScheduler.scheduleWithFixedDelay(this::sampleSafely, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 最近一次采样结果，尚未完成第一次采样时返回 null
+     */
+    public ResourceSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 最近一次采样中该任务进程（含子进程）的常驻内存
+     * @return 字节数，未知时返回 -1
+     */
+    public long taskRssBytes(Long taskId) {
+        ResourceSnapshot current = snapshot;
+        if (current == null) {
+            return -1;
+        }
+        return current.getTaskRssBytes().getOrDefault(taskId, -1L);
+    }
+
+    private void sampleSafely() {
+        try {
+            snapshot = sample();
+        } catch (RuntimeException e) {
+            log.warn("资源采样失败: {}", e.getMessage());
+        }
+    }
+
+    private ResourceSnapshot sample() {
+        double cpuUsage = -1;
+        long[] cpuTimes = ProcFs.systemCpuTimes();
+        if (cpuTimes != null) {
+            if (lastCpuTimes != null && cpuTimes[1] > lastCpuTimes[1]) {
+                long idle = cpuTimes[0] - lastCpuTimes[0];
+                long total = cpuTimes[1] - lastCpuTimes[1];
+                cpuUsage = 1.0 - (double) idle / total;
+            }
+            lastCpuTimes = cpuTimes;
+        }
+
+        long totalMemory = ProcFs.memInfoBytes("MemTotal");
+        long availableMemory = ProcFs.memInfoBytes("MemAvailable");
+        if (cpuTimes == null || totalMemory < 0 || availableMemory < 0) {
+            if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+                if (cpuTimes == null) {
+                    cpuUsage = os.getCpuLoad();
+                }
+                if (totalMemory < 0 || availableMemory < 0) {
+                    totalMemory = os.getTotalMemorySize();
+                    availableMemory = os.getFreeMemorySize();
+                }
+            }
+        }
+
+        Map<Long, Long> taskRss = new HashMap<>();
+        long childRss = 0;
+        for (ManagedProcess managed : processManager.list()) {
+            long rss = ProcFs.treeRssBytes(managed.getProcess().toHandle());
+            if (rss >= 0) {
+                taskRss.put(managed.getTaskId(), rss);
+                childRss += rss;
+            }
+        }
+        return new ResourceSnapshot(LocalDateTime.now(), cpuUsage, totalMemory, availableMemory, childRss, taskRss);
+    }
 }
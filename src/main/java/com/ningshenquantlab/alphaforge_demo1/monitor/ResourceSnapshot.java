@@ -0,0 +1,24 @@
+package com.ningshenquantlab.alphaforge_demo1.monitor;
+//资源采样结果
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 一次资源采样的结果，无法读取的项为 -1
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceSnapshot {
+    private LocalDateTime sampleTime;
+    private double cpuUsage;                 // 系统 CPU 使用率（0~1）
+    private long totalMemoryBytes;           // 系统总内存
+    private long availableMemoryBytes;       // 系统可用内存（MemAvailable，含可回收的页缓存）
+    private long childRssBytes;              // 所有运行中任务进程（含其子进程）的常驻内存合计
+    private Map<Long, Long> taskRssBytes;    // 各任务进程（含其子进程）的常驻内存，key 为任务ID
+}
@@ -0,0 +1,220 @@
+package com.ningshenquantlab.alphaforge_demo1.monitor;
+//任务执行指标
+
+import com.ningshenquantlab.alphaforge_demo1.async.QueuedTask;
+import com.ningshenquantlab.alphaforge_demo1.async.TaskQueue;
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.executor.ExecutionResult;
+import com.ningshenquantlab.alphaforge_demo1.executor.ProcessManager;
+import com.ningshenquantlab.alphaforge_demo1.executor.PythonExecutor;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskExitedEvent;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskHeartbeatEvent;
+import com.ningshenquantlab.alphaforge_demo1.quant.dao.TaskStatusCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 任务执行指标（Micrometer），由 /actuator/prometheus 暴露
+ *
+ * 标签只取取值有限的维度：任务类型、脚本名（python.scripts 中配置的几个）、退出码、输出流，不带任务ID，
+ * 单个任务进程的资源占用以分布（直方图）的形式统计，不为每个进程生成时间序列
+ *
+ * - quant.task.queue.depth / quant.task.running{type}：各通道排队中、运行中的任务数（采集时读取 TaskQueue）
+ * - quant.task.queue.wait{type, script}：入队到出队的时长
+ * - quant.task.run{script, outcome}：进程运行时长，outcome 为 success / failed / killed（超限被终止）/ error（未能启动）
+ * - quant.task.exit{script, code}：按退出码计数，未能启动时 code 为 none
+ * - quant.task.output.bytes / quant.task.output.lines{stream}：累计输出量，每秒输出量用 rate() 计算
+ * - quant.process.children：运行中的任务进程数
+ * - quant.process.child.rss：每次心跳时单个任务进程树的常驻内存分布
+ * - quant.process.child.cpu：所有任务进程树累计消耗的 CPU 时间（按心跳间的增量累加，进程退出时补上最后一段）
+ * - quant.task.retry.waiting：等待自动重试的任务数
+ * - quant.task.status.cache{result}：任务状态缓存命中 / 未命中次数
+ */
+@Component
+public class TaskMetrics {
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry registry;
+    private final ProcessManager processManager;
+    // 运行中任务已计入 childCpu 的 CPU 时间，key 为任务ID，进程退出时移除
+    private final ConcurrentMap<Long, Long> lastCpuMillis = new ConcurrentHashMap<>();
+    private final DistributionSummary childRss;
+    private final Counter childCpu;
+    // FunctionCounter 只弱引用取值对象，这里持有强引用
+    private final List<MonotonicValue> outputTotals = new ArrayList<>();
+
+    @Autowired
+    public TaskMetrics(MeterRegistry registry,
+                       TaskQueue taskQueue,
+                       ProcessManager processManager,
+                       PythonExecutor pythonExecutor,
+                       TaskMonitor taskMonitor,
+                       TaskStatusCache taskStatusCache) {
+        this.registry = registry;
+        this.processManager = processManager;
+        for (TaskTypeEnum type : TaskTypeEnum.values()) {
+            Gauge.builder("quant.task.queue.depth", taskQueue, queue -> queue.pendingCount(type))
+                    .tag("type", type.name())
+                    .description("排队中的任务数")
+                    .register(registry);
+            Gauge.builder("quant.task.running", taskQueue, queue -> queue.runningCount(type))
+                    .tag("type", type.name())
+                    .description("运行中的任务数")
+                    .register(registry);
+        }
+        for (LogTypeEnum stream : new LogTypeEnum[]{LogTypeEnum.STDOUT, LogTypeEnum.STDERR}) {
+            String tag = stream.name().toLowerCase();
+            MonotonicValue bytes = new MonotonicValue(() -> pythonExecutor.totalOutputBytes(stream));
+            MonotonicValue lines = new MonotonicValue(() -> pythonExecutor.totalOutputLines(stream));
+            outputTotals.add(bytes);
+            outputTotals.add(lines);
+            FunctionCounter.builder("quant.task.output.bytes", bytes, MonotonicValue::value)
+                    .tag("stream", tag)
+                    .baseUnit("bytes")
+                    .description("任务进程累计输出字节数")
+                    .register(registry);
+            FunctionCounter.builder("quant.task.output.lines", lines, MonotonicValue::value)
+                    .tag("stream", tag)
+                    .description("任务进程累计输出行数")
+                    .register(registry);
+        }
+        Gauge.builder("quant.process.children", processManager, ProcessManager::runningCount)
+                .description("运行中的任务进程数")
+                .register(registry);
+        Gauge.builder("quant.task.retry.waiting", taskMonitor, TaskMonitor::waitingCount)
+                .description("等待自动重试的任务数")
+                .register(registry);
+        FunctionCounter.builder("quant.task.status.cache", taskStatusCache, TaskStatusCache::hitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("quant.task.status.cache", taskStatusCache, TaskStatusCache::missCount)
+                .tag("result", "miss")
+                .register(registry);
+        this.childRss = DistributionSummary.builder("quant.process.child.rss")
+                .baseUnit("bytes")
+                .description("单个任务进程树的常驻内存")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.childCpu = Counter.builder("quant.process.child.cpu")
+                .baseUnit("seconds")
+                .description("任务进程树累计消耗的 CPU 时间")
+                .register(registry);
+    }
+
+    /**
+     * 任务出队时调用，记录排队时长
+     */
+    public void recordQueueWait(QueuedTask task) {
+        Timer.builder("quant.task.queue.wait")
+                .tags("type", task.getTaskType().name(), "script", script(task.getScriptName()))
+                .description("任务排队时长")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - task.getEnqueueNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Async("taskEventExecutor")
+    @EventListener
+    public void onHeartbeat(TaskHeartbeatEvent event) {
+        if (event.rssBytes() >= 0) {
+            childRss.record(event.rssBytes());
+        }
+        // 退出清理在发布线程上执行，进程已退出后才处理到的心跳不再记录（否则条目不会再被移除，
+        // 且同一任务下次执行时会把整段 CPU 时间重复计入）；在 compute 中判断，与 clearOnExit 的移除互斥
+        lastCpuMillis.compute(event.taskId(), (taskId, previous) -> {
+            if (!processManager.isRunning(taskId)) {
+                return previous;
+            }
+            addCpu(previous, event.cpuMillis());
+            return previous == null ? event.cpuMillis() : Math.max(previous, event.cpuMillis());
+        });
+    }
+
+    /**
+     * 计入最后一次心跳之后到退出之间的 CPU 时间并移除条目，直接在发布线程上执行，不经过 taskEventExecutor，
+     * 事件队列满时也不会丢失
+     */
+    @EventListener
+    public void clearOnExit(TaskExitedEvent event) {
+        Long cpuMillis = event.result().getCpuMillis();
+        lastCpuMillis.compute(event.taskId(), (taskId, previous) -> {
+            if (cpuMillis != null) {
+                addCpu(previous, cpuMillis);
+            }
+            return null;
+        });
+    }
+
+    @Async("taskEventExecutor")
+    @EventListener
+    public void onExited(TaskExitedEvent event) {
+        ExecutionResult result = event.result();
+        String script = script(result.getScriptName());
+        String outcome;
+        if (result.getExitCode() == null) {
+            outcome = "error";
+        } else if (result.getLimitViolation() != null) {
+            outcome = "killed";
+        } else {
+            outcome = result.isSuccess() ? "success" : "failed";
+        }
+        if (result.getDurationMillis() != null) {
+            Timer.builder("quant.task.run")
+                    .tags("script", script, "outcome", outcome)
+                    .description("任务进程运行时长")
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(result.getDurationMillis(), TimeUnit.MILLISECONDS);
+        }
+        Counter.builder("quant.task.exit")
+                .tags("script", script, "code", result.getExitCode() == null ? "none" : result.getExitCode().toString())
+                .description("任务进程退出次数")
+                .register(registry)
+                .increment();
+    }
+
+    private void addCpu(Long previous, long cpuMillis) {
+        long delta = cpuMillis - (previous == null ? 0 : previous);
+        if (delta > 0) {
+            childCpu.increment(delta / 1000.0);
+        }
+    }
+
+    private static String script(String scriptName) {
+        return scriptName == null || scriptName.isEmpty() ? UNKNOWN : scriptName;
+    }
+
+    /**
+     * 计数器的取值：返回历史最大值，屏蔽任务结束瞬间累计值暂时变小（见 PythonExecutor.totalOutputBytes）
+     */
+    private static final class MonotonicValue {
+        private final LongSupplier source;
+        private final AtomicLong max = new AtomicLong();
+
+        private MonotonicValue(LongSupplier source) {
+            this.source = source;
+        }
+
+        private double value() {
+            return max.accumulateAndGet(source.getAsLong(), Math::max);
+        }
+    }
+}
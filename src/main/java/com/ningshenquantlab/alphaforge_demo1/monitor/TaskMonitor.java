@@ -1,4 +1,228 @@
 package com.ningshenquantlab.alphaforge_demo1.monitor;
-//任务监控
+//任务监控（运行状态、失败重试）
+
+import com.ningshenquantlab.alphaforge_demo1.config.TaskMonitorConfig;
+import com.ningshenquantlab.alphaforge_demo1.executor.ExecutionResult;
+import com.ningshenquantlab.alphaforge_demo1.executor.ProcessManager;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskExitedEvent;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskHeartbeatEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务监控
+ *
+ * 运行状态：订阅执行器发布的任务事件（见 executor.event），在内存中保留每个运行中任务最近一次心跳
+ * （运行时长、CPU 时间、常驻内存），查询运行中任务时直接读取，不轮询 task_record，也不为心跳写库
+ *
+ * 失败任务的自动重试：
+ * - 分类：只重试可能是偶发的失败（见 isRetryable），参数错误等确定性失败不重试，重试次数不超过 task.monitor.max-retry-times
+ * - 退避：第 n 次重试等待 min(backoff-base-ms * 2^(n-1), backoff-max-ms)，再乘以 [1 - jitter, 1] 之间的随机数，
+ *   避免同一时刻失败的一批任务（如数据源短暂不可用）同时重试
+ * - 调度：等待中的重试放在 DelayQueue 中，单个线程阻塞在 take 上，到期才被唤醒执行重新入队，不做定时轮询
+ *
+ * 本类只负责判定和定时，重新入队、状态变更和执行记录由 TaskService 完成
+ */
+@Slf4j
+@Component
 public class TaskMonitor {
+
+    private final TaskMonitorConfig config;
+    private final ProcessManager processManager;
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    // 等待中的重试，key 为任务ID，用于取消
+    private final ConcurrentMap<Long, Retry> waiting = new ConcurrentHashMap<>();
+    // 运行中任务最近一次心跳，key 为任务ID
+    private final ConcurrentMap<Long, TaskHeartbeatEvent> heartbeats = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+    private Thread worker;
+
+    @Autowired
+    public TaskMonitor(TaskMonitorConfig config, ProcessManager processManager) {
+        this.config = config;
+        this.processManager = processManager;
+    }
+
+    /**
+     * 未启用时同样启动重试线程：服务重启前已安排的重试仍要按时执行
+     */
+    @PostConstruct
+    public void start() {
+        if (!Boolean.TRUE.equals(config.getEnabled()) || !Boolean.TRUE.equals(config.getAutoRetry())) {
+            log.info("失败任务自动重试未启用");
+        }
+        worker = new Thread(this::retryLoop, "task-retry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Async("taskEventExecutor")
+    @EventListener
+    public void onHeartbeat(TaskHeartbeatEvent event) {
+        // 退出清理在发布线程上执行，进程已退出后才处理到的心跳不再记录；在 compute 中判断，与 onExited 的移除互斥
+        heartbeats.compute(event.taskId(), (taskId, previous) -> processManager.isRunning(taskId) ? event : previous);
+    }
+
+    /**
+     * 退出清理只是一次移除，直接在发布线程上执行，不经过 taskEventExecutor，事件队列满时也不会丢失
+     */
+    @EventListener
+    public void onExited(TaskExitedEvent event) {
+        heartbeats.remove(event.taskId());
+    }
+
+    /**
+     * 运行中任务最近一次心跳
+     * @return 任务不在运行或尚未收到心跳时返回 null
+     */
+    public TaskHeartbeatEvent lastHeartbeat(Long taskId) {
+        return heartbeats.get(taskId);
+    }
+
+    /**
+     * 失败的任务是否应该自动重试
+     * @param retryCount 已经自动重试的次数
+     * @param result 本次执行结果，执行器异常（未能取得结果）时为 null
+     */
+    public boolean shouldRetry(int retryCount, ExecutionResult result) {
+        return Boolean.TRUE.equals(config.getEnabled())
+                && Boolean.TRUE.equals(config.getAutoRetry())
+                && retryCount < config.getMaxRetryTimes()
+                && isRetryable(result);
+    }
+
+    /**
+     * 按失败原因分类：
+     * - 执行器异常、进程启动失败（没有退出码）：脚本不存在、任务重复等，重跑结果相同，不重试
+     * - 超出运行时长或 CPU 时间被终止：可能是数据源卡住，重试；超出内存上限：重跑同样会超出，不重试
+     * - 退出码在 task.monitor.non-retryable-exit-codes 中：确定性失败，不重试
+     * - 其余非零退出码（未捕获异常、被信号终止等）：视为偶发失败，重试
+     */
+    public boolean isRetryable(ExecutionResult result) {
+        if (result == null || result.isSuccess()) {
+            return false;
+        }
+        if (result.getLimitViolation() != null) {
+            return result.getLimitViolation().timeout();
+        }
+        if (result.getExitCode() == null) {
+            return false;
+        }
+        return !config.getNonRetryableExitCodes().contains(result.getExitCode());
+    }
+
+    /**
+     * 第 retryCount + 1 次重试前的等待时间（指数退避 + 随机抖动）
+     * @param retryCount 已经自动重试的次数
+     * @return 毫秒数
+     */
+    public long backoffMillis(int retryCount) {
+        long base = config.getBackoffBaseMs();
+        long max = config.getBackoffMaxMs();
+        // 移位超过 30 位时早已达到上限，避免溢出
+        long delay = retryCount >= 30 ? max : Math.min(max, base << retryCount);
+        double jitter = Math.max(0, Math.min(1, config.getJitter()));
+        double factor = 1 - jitter * ThreadLocalRandom.current().nextDouble();
+        return (long) (delay * factor);
+    }
+
+    /**
+     * 安排一次重试，delayMillis 后在重试线程上执行 action；同一任务已有等待中的重试时替换之
+     */
+    public void schedule(Long taskId, long delayMillis, Runnable action) {
+        Retry retry = new Retry(taskId, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis), action);
+        Retry previous = waiting.put(taskId, retry);
+        if (previous != null) {
+            retries.remove(previous);
+        }
+        retries.add(retry);
+        log.info("安排任务重试: taskId={}, {}ms 后执行", taskId, delayMillis);
+    }
+
+    /**
+     * 取消等待中的重试
+     * @return 是否有等待中的重试
+     */
+    public boolean cancel(Long taskId) {
+        Retry retry = waiting.remove(taskId);
+        if (retry == null) {
+            return false;
+        }
+        retries.remove(retry);
+        return true;
+    }
+
+    public int maxRetryTimes() {
+        return config.getMaxRetryTimes();
+    }
+
+    /**
+     * 等待中的重试数
+     */
+    public int waitingCount() {
+        return waiting.size();
+    }
+
+    private void retryLoop() {
+        while (running) {
+            Retry retry;
+            try {
+                retry = retries.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (!waiting.remove(retry.taskId, retry)) {
+                // 已被取消或替换
+                continue;
+            }
+            try {
+                retry.action.run();
+            } catch (RuntimeException e) {
+                log.error("任务重试失败: taskId={}", retry.taskId, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private static final class Retry implements Delayed {
+        private final Long taskId;
+        private final long dueNanos;
+        private final Runnable action;
+
+        private Retry(Long taskId, long dueNanos, Runnable action) {
+            this.taskId = taskId;
+            this.dueNanos = dueNanos;
+            this.action = action;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Retry) other).dueNanos);
+        }
+    }
 }
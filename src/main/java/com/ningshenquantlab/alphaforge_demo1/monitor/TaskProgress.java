@@ -0,0 +1,24 @@
+package com.ningshenquantlab.alphaforge_demo1.monitor;
+//任务进度
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 脚本通过进度协议（见 ProgressListener）上报的最近一次进度，脚本未提供的项为 null
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskProgress {
+    private Double percent;            // 完成百分比（0~100），未上报时由 current / total 计算
+    private Long current;              // 已完成数量
+    private Long total;                // 总数量
+    private String stage;              // 当前阶段
+    private String message;            // 附加信息
+    private Long etaSeconds;           // 预计剩余秒数，未上报时按已运行时长和完成百分比估算
+    private LocalDateTime updateTime;  // 收到该进度的时间
+}
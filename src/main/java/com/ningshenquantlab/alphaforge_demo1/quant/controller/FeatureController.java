@@ -3,12 +3,21 @@ package com.ningshenquantlab.alphaforge_demo1.quant.controller;
 
 import com.ningshenquantlab.alphaforge_demo1.common.Result;
 import com.ningshenquantlab.alphaforge_demo1.quant.dto.FeatureCalcRequest;
+import com.ningshenquantlab.alphaforge_demo1.quant.dto.FeatureCoverage;
+import com.ningshenquantlab.alphaforge_demo1.quant.dto.TaskLogPage;
 import com.ningshenquantlab.alphaforge_demo1.quant.dto.TaskResponse;
-import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLog;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskAttempt;
 import com.ningshenquantlab.alphaforge_demo1.quant.service.FeatureService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -20,6 +29,11 @@ public class FeatureController {
 
     private final FeatureService featureService;
 
+    @Autowired
+    public FeatureController(FeatureService featureService) {
+        this.featureService = featureService;
+    }
+
     /**
      * 计算特征
      * POST /api/v1/features/calculate
@@ -27,8 +41,10 @@ public class FeatureController {
      *   "startDate": "20250301",
      *   "endDate": "20250305",
      *   "force": false,
+     *   "shards": 1,
      *   "async": true
      * }
+     * shards 大于1时返回父任务，子任务通过 /tasks/{taskId}/shards 查询
      */
     @PostMapping("/calculate")
     public Result<TaskResponse> calculateFeatures(
@@ -37,6 +53,24 @@ public class FeatureController {
         return Result.success(task);
     }
 
+    /**
+     * 查询特征覆盖情况（当前特征集版本下哪些交易日已计算）
+     * GET /api/v1/features/partitions?startDate=20250301&endDate=20250310
+     */
+    @GetMapping("/partitions")
+    public Result<FeatureCoverage> getCoverage(@RequestParam String startDate, @RequestParam String endDate) {
+        return Result.success(featureService.getCoverage(startDate, endDate));
+    }
+
+    /**
+     * 作废特征分区，之后的计算请求会重新计算这些交易日
+     * POST /api/v1/features/partitions/invalidate?startDate=20250301&endDate=20250310
+     */
+    @PostMapping("/partitions/invalidate")
+    public Result<Integer> invalidatePartitions(@RequestParam String startDate, @RequestParam String endDate) {
+        return Result.success(featureService.invalidatePartitions(startDate, endDate));
+    }
+
     /**
      * 查询任务状态
      * GET /api/v1/features/tasks/{taskId}
@@ -48,17 +82,87 @@ public class FeatureController {
     }
 
     /**
-     * 获取任务日志
-     * GET /api/v1/features/tasks/{taskId}/logs
+     * 获取任务日志（keyset 分页）
+     * GET /api/v1/features/tasks/{taskId}/logs?fromLine=1&limit=500&level=STDERR
+     * GET /api/v1/features/tasks/{taskId}/logs?tail=100
+     * 返回的 nextLine 作为下一次请求的 fromLine
      */
     @GetMapping("/tasks/{taskId}/logs")
-    public Result<List<TaskLog>> getTaskLogs(@PathVariable Long taskId) {
-        List<TaskLog> logs = featureService.getTaskLogs(taskId);
+    public Result<TaskLogPage> getTaskLogs(
+            @PathVariable Long taskId,
+            @RequestParam(defaultValue = "1") Long fromLine,
+            @RequestParam(defaultValue = "500") Integer limit,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) Integer tail) {
+        TaskLogPage logs = featureService.getTaskLogs(taskId, fromLine, limit, level, tail);
         return Result.success(logs);
     }
 
     /**
-     * 取消任务
+     * 下载任务日志（纯文本，分块传输）
+     * GET /api/v1/features/tasks/{taskId}/logs/download?level=STDOUT
+     */
+    @GetMapping("/tasks/{taskId}/logs/download")
+    public ResponseEntity<StreamingResponseBody> downloadTaskLogs(
+            @PathVariable Long taskId,
+            @RequestParam(required = false) String level) {
+        StreamingResponseBody body = featureService.downloadTaskLogs(taskId, level);
+        return ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=task-" + taskId + ".log")
+                .body(body);
+    }
+
+    /**
+     * 实时推送任务输出（Server-Sent Events）
+     * GET /api/v1/features/tasks/{taskId}/stream
+     * 事件：log（输出行数组）、skipped（因跟不上而跳过的行数）、end（任务最终状态，之后连接关闭）
+     */
+    @GetMapping(path = "/tasks/{taskId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTaskLogs(
+            @PathVariable Long taskId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return featureService.streamTaskLogs(taskId, lastEventId);
+    }
+
+    /**
+     * 查询分片子任务（每个分片最近一次尝试）
+     * GET /api/v1/features/tasks/{taskId}/shards
+     */
+    @GetMapping("/tasks/{taskId}/shards")
+    public Result<List<TaskResponse>> getShards(@PathVariable Long taskId) {
+        return Result.success(featureService.getShards(taskId));
+    }
+
+    /**
+     * 重试失败的分片，成功的分片不会重跑
+     * POST /api/v1/features/tasks/{taskId}/shards/retry
+     */
+    @PostMapping("/tasks/{taskId}/shards/retry")
+    public Result<List<TaskResponse>> retryFailedShards(@PathVariable Long taskId) {
+        return Result.success(featureService.retryFailedShards(taskId));
+    }
+
+    /**
+     * 重试失败、超时或已取消的任务（分片任务只重试失败的分片）
+     * POST /api/v1/features/tasks/{taskId}/retry
+     */
+    @PostMapping("/tasks/{taskId}/retry")
+    public Result<TaskResponse> retryTask(@PathVariable Long taskId) {
+        return Result.success(featureService.retryTask(taskId));
+    }
+
+    /**
+     * 查询任务的执行记录（每次执行一条，含自动重试）
+     * GET /api/v1/features/tasks/{taskId}/attempts
+     */
+    @GetMapping("/tasks/{taskId}/attempts")
+    public Result<List<TaskAttempt>> getAttempts(@PathVariable Long taskId) {
+        return Result.success(featureService.getAttempts(taskId));
+    }
+
+    /**
+     * 取消任务（分片任务会一并取消未结束的子任务）
      * POST /api/v1/features/tasks/{taskId}/cancel
      */
     @PostMapping("/tasks/{taskId}/cancel")
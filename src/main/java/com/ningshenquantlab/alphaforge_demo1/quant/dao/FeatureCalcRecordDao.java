@@ -0,0 +1,70 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.dao;
+//特征计算记录数据访问
+
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.FeatureCalcRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 特征计算记录数据访问层
+ */
+@Slf4j
+@Repository
+public class FeatureCalcRecordDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public FeatureCalcRecordDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 写入任务的计算记录，已存在时覆盖（分片重试后父任务重新汇总）
+     * @return 受影响的行数
+     */
+    public int upsert(FeatureCalcRecord record) {
+        String sql = "INSERT INTO feature_calc_record (task_id, start_date, end_date, force_recalc, feature_version, " +
+                     "feature_count, success_count, failed_count) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE start_date = VALUES(start_date), end_date = VALUES(end_date), " +
+                     "force_recalc = VALUES(force_recalc), feature_version = VALUES(feature_version), " +
+                     "feature_count = VALUES(feature_count), success_count = VALUES(success_count), " +
+                     "failed_count = VALUES(failed_count)";
+        return jdbcTemplate.update(sql, record.getTaskId(), record.getStartDate(), record.getEndDate(),
+                record.getForceRecalc(), record.getFeatureVersion(), record.getFeatureCount(),
+                record.getSuccessCount(), record.getFailedCount());
+    }
+
+    /**
+     * 根据任务ID查询
+     * @return 计算记录，不存在返回 null
+     */
+    public FeatureCalcRecord findByTaskId(Long taskId) {
+        try {
+            String sql = "SELECT * FROM feature_calc_record WHERE task_id = ?";
+            return jdbcTemplate.queryForObject(sql, new BeanPropertyRowMapper<>(FeatureCalcRecord.class), taskId);
+        } catch (EmptyResultDataAccessException e) {
+            log.debug("特征计算记录不存在: taskId={}", taskId);
+            return null;
+        }
+    }
+
+    /**
+     * 批量查询多个任务的计算记录
+     */
+    public List<FeatureCalcRecord> findByTaskIds(List<Long> taskIds) {
+        if (taskIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(taskIds.size(), "?"));
+        String sql = "SELECT * FROM feature_calc_record WHERE task_id IN (" + placeholders + ")";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(FeatureCalcRecord.class), taskIds.toArray());
+    }
+}
@@ -0,0 +1,63 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.dao;
+//特征分区索引数据访问
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 特征分区索引数据访问层
+ * feature_partition 每行表示某个特征集版本下某个交易日的特征已计算完成，主键 (feature_version, trade_date)
+ */
+@Slf4j
+@Repository
+public class FeaturePartitionDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public FeaturePartitionDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 查询日期范围内已计算完成的交易日，按日期升序
+     */
+    public List<LocalDate> findMaterialized(String featureVersion, LocalDate startDate, LocalDate endDate) {
+        String sql = "SELECT trade_date FROM feature_partition " +
+                     "WHERE feature_version = ? AND trade_date BETWEEN ? AND ? ORDER BY trade_date";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getDate(1).toLocalDate(),
+                featureVersion, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+
+    /**
+     * 标记交易日已计算完成，已存在时更新为最近一次计算的任务
+     * @return 写入的行数
+     */
+    public int markMaterialized(String featureVersion, List<LocalDate> tradeDates, Long taskId) {
+        if (tradeDates.isEmpty()) {
+            return 0;
+        }
+        String sql = "INSERT INTO feature_partition (feature_version, trade_date, task_id) VALUES (?, ?, ?) " +
+                     "ON DUPLICATE KEY UPDATE task_id = VALUES(task_id)";
+        List<Object[]> batchArgs = tradeDates.stream()
+                .map(date -> new Object[]{featureVersion, Date.valueOf(date), taskId})
+                .toList();
+        jdbcTemplate.batchUpdate(sql, batchArgs);
+        return tradeDates.size();
+    }
+
+    /**
+     * 作废日期范围内的分区（如上游行情数据修正后），之后的计算请求会重新计算这些交易日
+     * @return 删除的行数
+     */
+    public int invalidate(String featureVersion, LocalDate startDate, LocalDate endDate) {
+        String sql = "DELETE FROM feature_partition WHERE feature_version = ? AND trade_date BETWEEN ? AND ?";
+        return jdbcTemplate.update(sql, featureVersion, Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+}
@@ -0,0 +1,101 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.dao;
+//单个任务正在累积的日志块
+
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLog;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLogChunk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 单个任务正在累积、尚未落库的日志块
+ * 只由 TaskLogDao 的写入线程访问，不需要同步
+ */
+final class LogChunkBuffer {
+
+    private final Long taskId;
+    private final ExposedByteArrayOutputStream raw;
+    private final DataOutputStream out;
+
+    private int nextChunkSeq;
+    private long firstLineNo;
+    private int lineCount;
+    private long firstAppendNanos;
+    private long lastAppendNanos = System.nanoTime();
+
+    /**
+     * @param nextChunkSeq 下一个块序号（接着数据库中已有的块继续编号）
+     * @param nextLineNo 下一行的行号
+     */
+    LogChunkBuffer(Long taskId, int nextChunkSeq, long nextLineNo, int chunkSizeBytes) {
+        this.taskId = taskId;
+        this.nextChunkSeq = nextChunkSeq;
+        this.firstLineNo = nextLineNo;
+        this.raw = new ExposedByteArrayOutputStream(chunkSizeBytes + 1024);
+        this.out = new DataOutputStream(raw);
+    }
+
+    void append(TaskLog taskLog) {
+        try {
+            LogChunkCodec.writeLine(out, taskLog);
+        } catch (IOException e) {
+            // 写入内存缓冲不会发生 IO 异常
+            throw new UncheckedIOException(e);
+        }
+        lastAppendNanos = System.nanoTime();
+        if (lineCount++ == 0) {
+            firstAppendNanos = lastAppendNanos;
+        }
+    }
+
+    int size() {
+        return raw.size();
+    }
+
+    boolean isEmpty() {
+        return lineCount == 0;
+    }
+
+    long idleNanos() {
+        return System.nanoTime() - lastAppendNanos;
+    }
+
+    /**
+     * 当前块中最早一行已等待落库的时间，空块为 0
+     */
+    long ageNanos() {
+        return lineCount == 0 ? 0 : System.nanoTime() - firstAppendNanos;
+    }
+
+    /**
+     * 压缩当前内容生成日志块，并清空缓冲区准备累积下一块
+     */
+    TaskLogChunk seal() {
+        TaskLogChunk chunk = new TaskLogChunk();
+        chunk.setTaskId(taskId);
+        chunk.setChunkSeq(nextChunkSeq++);
+        chunk.setFirstLineNo(firstLineNo);
+        chunk.setLineCount(lineCount);
+        chunk.setRawBytes(raw.size());
+        chunk.setContent(LogChunkCodec.compress(raw.buffer(), raw.size()));
+        firstLineNo += lineCount;
+        lineCount = 0;
+        raw.reset();
+        return chunk;
+    }
+
+    /**
+     * 直接暴露内部数组，压缩时不需要再拷贝一份
+     */
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.dao;
+//任务日志块数据访问
+
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLogChunk;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 任务日志块数据访问层
+ * 对应 task_log_chunk 表，只负责块的读写，不做压缩/解压
+ */
+@Slf4j
+@Repository
+public class TaskLogChunkDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TaskLogChunkDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 批量写入日志块
+     */
+    public void batchInsert(List<TaskLogChunk> chunks) {
+        String sql = "INSERT INTO task_log_chunk (task_id, chunk_seq, first_line_no, line_count, raw_bytes, content) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TaskLogChunk chunk = chunks.get(i);
+                ps.setLong(1, chunk.getTaskId());
+                ps.setInt(2, chunk.getChunkSeq());
+                ps.setLong(3, chunk.getFirstLineNo());
+                ps.setInt(4, chunk.getLineCount());
+                ps.setInt(5, chunk.getRawBytes());
+                ps.setBytes(6, chunk.getContent());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunks.size();
+            }
+        });
+    }
+
+    /**
+     * 查询任务的最后一个日志块（不含内容），用于续写时确定下一个块序号和行号
+     * @return 最后一个日志块，任务还没有日志块时返回 null
+     */
+    public TaskLogChunk findLast(Long taskId) {
+        try {
+            String sql = "SELECT id, task_id, chunk_seq, first_line_no, line_count, raw_bytes, create_time " +
+                         "FROM task_log_chunk WHERE task_id = ? ORDER BY chunk_seq DESC LIMIT 1";
+            return jdbcTemplate.queryForObject(sql, new BeanPropertyRowMapper<>(TaskLogChunk.class), taskId);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 查询覆盖行号区间 [fromLine, toLine] 的日志块
+     * 先定位包含 fromLine 的块（first_line_no 不大于 fromLine 的最后一块），
+     * 再按 idx_task_line 索引范围扫描到 toLine，不会读取区间之外的块
+     */
+    public List<TaskLogChunk> findCovering(Long taskId, long fromLine, long toLine) {
+        String sql = "SELECT * FROM task_log_chunk WHERE task_id = ? AND first_line_no BETWEEN " +
+                     "(SELECT COALESCE(MAX(first_line_no), 0) FROM task_log_chunk WHERE task_id = ? AND first_line_no <= ?) " +
+                     "AND ? ORDER BY first_line_no";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(TaskLogChunk.class),
+                taskId, taskId, fromLine, toLine);
+    }
+
+    /**
+     * 从包含 fromLine 的块开始，按行号顺序查询最多 maxChunks 个日志块
+     */
+    public List<TaskLogChunk> findFrom(Long taskId, long fromLine, int maxChunks) {
+        String sql = "SELECT * FROM task_log_chunk WHERE task_id = ? AND first_line_no >= " +
+                     "(SELECT COALESCE(MAX(first_line_no), 0) FROM task_log_chunk WHERE task_id = ? AND first_line_no <= ?) " +
+                     "ORDER BY first_line_no LIMIT ?";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(TaskLogChunk.class),
+                taskId, taskId, fromLine, maxChunks);
+    }
+
+    /**
+     * 查询起始行号小于 beforeLine 的最后 maxChunks 个日志块，按行号倒序返回（用于从末尾向前读取）
+     */
+    public List<TaskLogChunk> findBefore(Long taskId, long beforeLine, int maxChunks) {
+        String sql = "SELECT * FROM task_log_chunk WHERE task_id = ? AND first_line_no < ? " +
+                     "ORDER BY first_line_no DESC LIMIT ?";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(TaskLogChunk.class),
+                taskId, beforeLine, maxChunks);
+    }
+}
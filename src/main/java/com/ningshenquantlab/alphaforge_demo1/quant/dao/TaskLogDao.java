@@ -1,4 +1,457 @@
 package com.ningshenquantlab.alphaforge_demo1.quant.dao;
+//任务日志数据访问
 
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogStorageModeEnum;
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLog;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLogChunk;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务日志数据访问层
+ *
+ * task_log 每行对应子进程的一行输出，逐行 INSERT 会占满连接池，并让输出抽取线程被数据库拖慢，
+ * 进而使子进程写满管道后阻塞。这里的写入模型（组提交）：
+ * - append 只把日志放入有界内存队列，不访问数据库，队列满时直接丢弃并计数（绝不阻塞调用方）
+ * - appendBlocking 用于可以等待的调用方（如任务状态日志），队列满时最多等待指定时间
+ * - 单独的写入线程攒批：攒够 task.log.batch-size 行，或距本批第一行超过 task.log.flush-interval-ms，
+ *   用一次 JDBC batch 写入（连接串开启 rewriteBatchedStatements=true 后驱动会改写为多值 INSERT）
+ * 因此日志写入任意时刻最多只占用一个数据库连接。
+ *
+ * 存储模式（task.log.storage-mode）：
+ * - ROW：每行一条 task_log 记录
+ * - CHUNK：写入线程按任务把行累积到内存块中，块满 task.log.chunk-size-bytes（未压缩）后 Deflate 压缩，
+ *   作为一条 task_log_chunk 记录写入；未满的块最多累积 task.log.chunk-flush-ms 也会写入（输出很慢的运行中任务
+ *   最多延迟这么久就能被 tail、分页读到），任务结束时调用 flushTask 立即写入，任务这么久没有新输出时回收缓冲区。
+ *   读取时只解压覆盖所需行号区间的块。
+ * 读取按配置的存储模式选择数据源；只有任务在该模式下没有任何日志（切换存储模式之前结束的任务）时才读另一种存储。
+ */
+@Slf4j
+@Repository
 public class TaskLogDao {
+
+    // 分页读取日志块时每次查询的块数
+    private static final int CHUNK_SCAN_BATCH = 8;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO task_log (task_id, log_type, log_content, log_time) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskLogChunkDao taskLogChunkDao;
+    private final BlockingQueue<TaskLog> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final LogStorageModeEnum storageMode;
+    private final int chunkSizeBytes;
+    private final long chunkFlushNanos;
+
+    // CHUNK 模式下各任务正在累积的日志块，只由写入线程访问
+    private final Map<Long, LogChunkBuffer> openChunks = new HashMap<>();
+    // 请求尽快写出未满日志块的任务
+    private final ConcurrentLinkedQueue<Long> flushRequests = new ConcurrentLinkedQueue<>();
+
+    // 统计计数
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running = true;
+    private Thread writer;
+
+    @Autowired
+    public TaskLogDao(JdbcTemplate jdbcTemplate,
+                      TaskLogChunkDao taskLogChunkDao,
+                      @Value("${task.log.queue-capacity:50000}") int queueCapacity,
+                      @Value("${task.log.batch-size:500}") int batchSize,
+                      @Value("${task.log.flush-interval-ms:200}") long flushIntervalMs,
+                      @Value("${task.log.storage-mode:ROW}") LogStorageModeEnum storageMode,
+                      @Value("${task.log.chunk-size-bytes:65536}") int chunkSizeBytes,
+                      @Value("${task.log.chunk-flush-ms:2000}") long chunkFlushMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.taskLogChunkDao = taskLogChunkDao;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.storageMode = storageMode;
+        this.chunkSizeBytes = chunkSizeBytes;
+        this.chunkFlushNanos = TimeUnit.MILLISECONDS.toNanos(chunkFlushMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer = new Thread(this::writeLoop, "task-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 非阻塞写入，队列已满时丢弃
+     * @return 是否成功入队
+     */
+    public boolean append(TaskLog taskLog) {
+        if (queue.offer(taskLog)) {
+            enqueued.incrementAndGet();
+            return true;
+        }
+        if (dropped.incrementAndGet() % 10000 == 1) {
+            log.warn("任务日志队列已满，日志被丢弃: taskId={}, 累计丢弃={}", taskLog.getTaskId(), dropped.get());
+        }
+        return false;
+    }
+
+    /**
+     * 阻塞写入，队列已满时最多等待 timeoutMillis 毫秒（背压），超时后丢弃
+     * @return 是否成功入队
+     */
+    public boolean appendBlocking(TaskLog taskLog, long timeoutMillis) {
+        try {
+            if (queue.offer(taskLog, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                enqueued.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropped.incrementAndGet();
+        log.warn("任务日志入队超时，日志被丢弃: taskId={}", taskLog.getTaskId());
+        return false;
+    }
+
+    /**
+     * CHUNK 模式下请求尽快写出该任务未满的日志块（任务结束时调用），不会阻塞
+     */
+    public void flushTask(Long taskId) {
+        if (storageMode == LogStorageModeEnum.CHUNK) {
+            flushRequests.offer(taskId);
+        }
+    }
+
+    /**
+     * 查询任务的全部日志，按写入顺序返回（日志块中的 TaskLog.id 为行号）
+     */
+    public List<TaskLog> findByTaskId(Long taskId) {
+        if (storageMode == LogStorageModeEnum.CHUNK) {
+            List<TaskLog> lines = findLines(taskId, 1, Long.MAX_VALUE);
+            if (!lines.isEmpty()) {
+                return lines;
+            }
+        }
+        String sql = "SELECT * FROM task_log WHERE task_id = ? ORDER BY id";
+        List<TaskLog> rows = jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(TaskLog.class), taskId);
+        return rows.isEmpty() && storageMode == LogStorageModeEnum.ROW ? findLines(taskId, 1, Long.MAX_VALUE) : rows;
+    }
+
+    /**
+     * 从日志块读取行号在 [fromLine, toLine] 之间的日志，只解压覆盖该区间的块
+     * @return 日志列表，TaskLog.id 为行号
+     */
+    public List<TaskLog> findLines(Long taskId, long fromLine, long toLine) {
+        List<TaskLog> lines = new ArrayList<>();
+        for (TaskLogChunk chunk : taskLogChunkDao.findCovering(taskId, fromLine, toLine)) {
+            lines.addAll(LogChunkCodec.decode(chunk, fromLine, toLine));
+        }
+        return lines;
+    }
+
+    /**
+     * 按行号（游标）分页读取，返回从 fromLine 开始的最多 limit 行
+     * 日志块模式下游标为行号，逐行模式下游标为 task_log.id，两种模式都按 (task_id, 游标) 做 keyset 分页，
+     * 不使用 OFFSET，读取任意位置的代价都只与 limit 有关
+     * @param type 日志类型，null 表示全部
+     */
+    public List<TaskLog> findPage(Long taskId, long fromLine, int limit, LogTypeEnum type) {
+        if (storageMode == LogStorageModeEnum.ROW) {
+            List<TaskLog> rows = findRowPage(taskId, fromLine, limit, type);
+            return rows.isEmpty() ? findChunkPage(taskId, fromLine, limit, type) : rows;
+        }
+        List<TaskLog> lines = findChunkPage(taskId, fromLine, limit, type);
+        return lines.isEmpty() && taskLogChunkDao.findLast(taskId) == null ? findRowPage(taskId, fromLine, limit, type) : lines;
+    }
+
+    /**
+     * 读取最后 n 行
+     * @param type 日志类型，null 表示全部
+     */
+    public List<TaskLog> findTail(Long taskId, int n, LogTypeEnum type) {
+        if (storageMode == LogStorageModeEnum.ROW) {
+            List<TaskLog> rows = findRowTail(taskId, n, type);
+            return rows.isEmpty() ? findChunkTail(taskId, n, type) : rows;
+        }
+        List<TaskLog> lines = findChunkTail(taskId, n, type);
+        return lines.isEmpty() && taskLogChunkDao.findLast(taskId) == null ? findRowTail(taskId, n, type) : lines;
+    }
+
+    private List<TaskLog> findRowPage(Long taskId, long fromLine, int limit, LogTypeEnum type) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM task_log WHERE task_id = ? AND id >= ?");
+        List<Object> args = new ArrayList<>(List.of(taskId, fromLine));
+        if (type != null) {
+            sql.append(" AND log_type = ?");
+            args.add(type.name());
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), new BeanPropertyRowMapper<>(TaskLog.class), args.toArray());
+    }
+
+    private List<TaskLog> findChunkPage(Long taskId, long fromLine, int limit, LogTypeEnum type) {
+        List<TaskLog> lines = new ArrayList<>(limit);
+        long from = fromLine;
+        while (lines.size() < limit) {
+            List<TaskLogChunk> chunks = taskLogChunkDao.findFrom(taskId, from, CHUNK_SCAN_BATCH);
+            for (TaskLogChunk chunk : chunks) {
+                for (TaskLog line : LogChunkCodec.decode(chunk, from, Long.MAX_VALUE, type)) {
+                    if (lines.size() == limit) {
+                        return lines;
+                    }
+                    lines.add(line);
+                }
+                from = chunk.getFirstLineNo() + chunk.getLineCount();
+            }
+            if (chunks.size() < CHUNK_SCAN_BATCH) {
+                break;
+            }
+        }
+        return lines;
+    }
+
+    private List<TaskLog> findRowTail(Long taskId, int n, LogTypeEnum type) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM task_log WHERE task_id = ?");
+        List<Object> args = new ArrayList<>(List.of(taskId));
+        if (type != null) {
+            sql.append(" AND log_type = ?");
+            args.add(type.name());
+        }
+        sql.append(" ORDER BY id DESC LIMIT ?");
+        args.add(n);
+        List<TaskLog> lines = jdbcTemplate.query(sql.toString(), new BeanPropertyRowMapper<>(TaskLog.class), args.toArray());
+        Collections.reverse(lines);
+        return lines;
+    }
+
+    /**
+     * 从最后一块向前解压，直到凑够 n 行
+     */
+    private List<TaskLog> findChunkTail(Long taskId, int n, LogTypeEnum type) {
+        Deque<TaskLog> lines = new ArrayDeque<>(n);
+        long before = Long.MAX_VALUE;
+        while (lines.size() < n) {
+            List<TaskLogChunk> chunks = taskLogChunkDao.findBefore(taskId, before, CHUNK_SCAN_BATCH);
+            for (TaskLogChunk chunk : chunks) {
+                List<TaskLog> decoded = LogChunkCodec.decode(chunk, 0, Long.MAX_VALUE, type);
+                for (int i = decoded.size() - 1; i >= 0 && lines.size() < n; i--) {
+                    lines.addFirst(decoded.get(i));
+                }
+                before = chunk.getFirstLineNo();
+            }
+            if (chunks.size() < CHUNK_SCAN_BATCH) {
+                break;
+            }
+        }
+        return new ArrayList<>(lines);
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * 当前排队等待写入的日志数
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * 写入线程：取到第一行后开始计时，攒够一批或超过刷新间隔即写入
+     */
+    private void writeLoop() {
+        List<TaskLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                TaskLog first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.nanoTime() + flushIntervalNanos;
+                    while (batch.size() < batchSize) {
+                        if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                            continue;
+                        }
+                        long wait = deadline - System.nanoTime();
+                        TaskLog next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // 被中断视为关闭：不恢复中断标记，以便后续 poll 能继续把队列中剩余的日志写完
+                running = false;
+            }
+            if (storageMode == LogStorageModeEnum.CHUNK) {
+                writeChunks(batch, false);
+            } else {
+                flush(batch);
+            }
+            batch.clear();
+        }
+        if (storageMode == LogStorageModeEnum.CHUNK) {
+            writeChunks(batch, true);
+        }
+    }
+
+    /**
+     * CHUNK 模式：把本批日志追加到各任务的日志块，写出已满、累积超时、空闲超时或被请求刷新的块
+     * @param all 是否写出所有未满的块（关闭时）
+     */
+    private void writeChunks(List<TaskLog> batch, boolean all) {
+        List<TaskLogChunk> sealed = new ArrayList<>();
+        for (TaskLog taskLog : batch) {
+            LogChunkBuffer buffer = openChunks.get(taskLog.getTaskId());
+            if (buffer == null) {
+                buffer = openChunk(taskLog.getTaskId());
+                if (buffer == null) {
+                    failed.incrementAndGet();
+                    continue;
+                }
+                openChunks.put(taskLog.getTaskId(), buffer);
+            }
+            buffer.append(taskLog);
+            if (buffer.size() >= chunkSizeBytes) {
+                sealed.add(buffer.seal());
+            }
+        }
+
+        Long flushTaskId;
+        while ((flushTaskId = flushRequests.poll()) != null) {
+            LogChunkBuffer buffer = openChunks.remove(flushTaskId);
+            if (buffer != null && !buffer.isEmpty()) {
+                sealed.add(buffer.seal());
+            }
+        }
+        Iterator<LogChunkBuffer> it = openChunks.values().iterator();
+        while (it.hasNext()) {
+            LogChunkBuffer buffer = it.next();
+            if (all || buffer.idleNanos() >= chunkFlushNanos) {
+                // 长时间没有输出的任务不再保留缓冲区，之后有新输出时再从数据库续上行号
+                if (!buffer.isEmpty()) {
+                    sealed.add(buffer.seal());
+                }
+                it.remove();
+            } else if (buffer.ageNanos() >= chunkFlushNanos) {
+                // 持续有少量输出的任务：块未满也按时写出，运行中就能读到，缓冲区保留继续累积
+                sealed.add(buffer.seal());
+            }
+        }
+
+        if (sealed.isEmpty()) {
+            return;
+        }
+        int lines = sealed.stream().mapToInt(TaskLogChunk::getLineCount).sum();
+        try {
+            taskLogChunkDao.batchInsert(sealed);
+            written.addAndGet(lines);
+        } catch (RuntimeException e) {
+            failed.addAndGet(lines);
+            log.error("批量写入任务日志块失败: 本批={}块/{}行, 累计失败={}行", sealed.size(), lines, failed.get(), e);
+        }
+    }
+
+    /**
+     * 为任务新建日志块缓冲区，接着数据库中已有的块继续编号（任务重试或缓冲区因空闲被回收后）
+     * @return 缓冲区，查询失败时返回 null
+     */
+    private LogChunkBuffer openChunk(Long taskId) {
+        try {
+            TaskLogChunk last = taskLogChunkDao.findLast(taskId);
+            if (last == null) {
+                return new LogChunkBuffer(taskId, 0, 1, chunkSizeBytes);
+            }
+            return new LogChunkBuffer(taskId, last.getChunkSeq() + 1,
+                    last.getFirstLineNo() + last.getLineCount(), chunkSizeBytes);
+        } catch (RuntimeException e) {
+            log.error("查询任务日志块失败: taskId={}", taskId, e);
+            return null;
+        }
+    }
+
+    private void flush(List<TaskLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    TaskLog taskLog = batch.get(i);
+                    ps.setLong(1, taskLog.getTaskId());
+                    ps.setString(2, taskLog.getLogType());
+                    ps.setString(3, taskLog.getLogContent());
+                    ps.setTimestamp(4, Timestamp.valueOf(taskLog.getLogTime()));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            // 写入失败只丢弃这一批，不影响任务执行
+            failed.addAndGet(batch.size());
+            log.error("批量写入任务日志失败: 本批={}行, 累计失败={}行", batch.size(), failed.get(), e);
+        }
+    }
+
+    /**
+     * 应用关闭时停止写入线程，并把队列中剩余的日志写完
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            // 不中断写入线程，避免打断进行中的批量写入；写入线程最多一个刷新间隔后就会看到 running=false
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        log.info("任务日志写入线程已停止: 入队={}, 写入={}, 丢弃={}, 失败={}",
+                enqueued.get(), written.get(), dropped.get(), failed.get());
+    }
 }
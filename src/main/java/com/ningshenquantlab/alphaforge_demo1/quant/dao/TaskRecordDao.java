@@ -1,4 +1,390 @@
 package com.ningshenquantlab.alphaforge_demo1.quant.dao;
+//任务记录数据访问
 
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskStatusEnum;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskAttempt;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskRecord;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskStateJournal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 任务记录数据访问层
+ * 状态更新都是比较并设置（WHERE id = ? AND status = ?），避免任务结束回调、取消、服务启动恢复互相覆盖；
+ * 每次成功的状态变更在同一事务中追加一条 task_state_journal；
+ * 每次成功的更新同时写穿透到 TaskStatusCache（事务提交后），高频的状态查询走 findCachedById 不查库
+ */
+@Slf4j
+@Repository
 public class TaskRecordDao {
+
+    // task_state_journal.reason 的长度上限
+    private static final int JOURNAL_REASON_MAX = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskStatusCache cache;
+
+    @Autowired
+    public TaskRecordDao(JdbcTemplate jdbcTemplate, TaskStatusCache cache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = cache;
+    }
+
+    /**
+     * 新建任务记录，回填自增ID
+     * @return 受影响的行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int insert(TaskRecord record) {
+        String sql = "INSERT INTO task_record (task_name, task_type, parent_task_id, shard_index, status, command, " +
+                     "parameters, priority, script_name, script_args, expected_memory_mb, created_by) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int rows = jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, record.getTaskName());
+            ps.setString(2, record.getTaskType());
+            ps.setObject(3, record.getParentTaskId());
+            ps.setObject(4, record.getShardIndex());
+            ps.setString(5, record.getStatus());
+            ps.setString(6, record.getCommand());
+            ps.setString(7, record.getParameters());
+            ps.setInt(8, record.getPriority());
+            ps.setString(9, record.getScriptName());
+            ps.setString(10, record.getScriptArgs());
+            ps.setObject(11, record.getExpectedMemoryMb());
+            ps.setString(12, record.getCreatedBy());
+            return ps;
+        }, keyHolder);
+        if (keyHolder.getKey() != null) {
+            record.setId(keyHolder.getKey().longValue());
+            journal(record.getId(), null, TaskStatusEnum.valueOf(record.getStatus()), null, null);
+        }
+        return rows;
+    }
+
+    /**
+     * 根据任务ID查询
+     * @return 任务记录，不存在返回 null
+     */
+    public TaskRecord findById(Long id) {
+        try {
+            String sql = "SELECT * FROM task_record WHERE id = ?";
+            return jdbcTemplate.queryForObject(sql, new BeanPropertyRowMapper<>(TaskRecord.class), id);
+        } catch (EmptyResultDataAccessException e) {
+            log.debug("任务不存在: taskId={}", id);
+            return null;
+        }
+    }
+
+    /**
+     * 根据任务ID查询，优先读取 TaskStatusCache（状态轮询使用；状态变更的比较并设置仍以库中为准）
+     * @return 任务记录，不存在返回 null
+     */
+    public TaskRecord findCachedById(Long id) {
+        if (!cache.isEnabled()) {
+            return findById(id);
+        }
+        TaskRecord record = cache.get(id);
+        if (record != null) {
+            return record;
+        }
+        long version = cache.version(id);
+        record = findById(id);
+        if (record != null) {
+            cache.put(record, version);
+        }
+        return record;
+    }
+
+    /**
+     * 按状态查询，按ID升序（即创建顺序）
+     */
+    public List<TaskRecord> findByStatus(String status) {
+        String sql = "SELECT * FROM task_record WHERE status = ? ORDER BY id";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(TaskRecord.class), status);
+    }
+
+    /**
+     * 查询父任务的所有子任务（含重试产生的子任务），按分片序号、ID升序
+     */
+    public List<TaskRecord> findByParentId(Long parentTaskId) {
+        String sql = "SELECT * FROM task_record WHERE parent_task_id = ? ORDER BY shard_index, id";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(TaskRecord.class), parentTaskId);
+    }
+
+    /**
+     * PENDING -> RUNNING
+     * @return 受影响的行数，任务已不是 PENDING 时返回 0
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int markRunning(Long id, LocalDateTime startTime) {
+        String sql = "UPDATE task_record SET status = 'RUNNING', start_time = ?, next_retry_time = NULL " +
+                     "WHERE id = ? AND status = 'PENDING'";
+        int rows = jdbcTemplate.update(sql, Timestamp.valueOf(startTime), id);
+        if (rows > 0) {
+            journal(id, TaskStatusEnum.PENDING, TaskStatusEnum.RUNNING, null, null);
+            cache.update(id, record -> {
+                record.setStatus(TaskStatusEnum.RUNNING.name());
+                record.setStartTime(startTime);
+                record.setNextRetryTime(null);
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * 记录子进程PID（任务必须仍为 RUNNING）
+     * @return 受影响的行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int updatePid(Long id, long pid, Long pidStartMillis) {
+        String sql = "UPDATE task_record SET pid = ?, pid_start_millis = ? WHERE id = ? AND status = 'RUNNING'";
+        int rows = jdbcTemplate.update(sql, pid, pidStartMillis, id);
+        if (rows > 0) {
+            journal(id, TaskStatusEnum.RUNNING, TaskStatusEnum.RUNNING, pid, "进程已启动");
+            cache.update(id, record -> {
+                record.setPid(pid);
+                record.setPidStartMillis(pidStartMillis);
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * 记录被终止的进程树已消耗的 CPU 时间（不是状态变更，不记入 task_state_journal）
+     * @return 受影响的行数
+     */
+    public int updateCpuTime(Long id, long cpuTimeMs) {
+        String sql = "UPDATE task_record SET cpu_time_ms = ? WHERE id = ?";
+        int rows = jdbcTemplate.update(sql, cpuTimeMs, id);
+        if (rows > 0) {
+            cache.update(id, record -> record.setCpuTimeMs(cpuTimeMs));
+        }
+        return rows;
+    }
+
+    /**
+     * expected -> 终态（SUCCESS/FAILED/CANCELLED/TIMEOUT），比较并设置：状态已不是 expected 时不更新
+     * @return 受影响的行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int markFinished(Long id, TaskStatusEnum expected, TaskStatusEnum status, LocalDateTime endTime,
+                            Integer duration, Integer exitCode, String errorMessage) {
+        String sql = "UPDATE task_record SET status = ?, end_time = ?, duration = ?, exit_code = ?, error_message = ? " +
+                     "WHERE id = ? AND status = ?";
+        int rows = jdbcTemplate.update(sql, status.name(), Timestamp.valueOf(endTime), duration, exitCode,
+                errorMessage, id, expected.name());
+        if (rows > 0) {
+            journal(id, expected, status, null, errorMessage);
+            cache.update(id, record -> {
+                record.setStatus(status.name());
+                record.setEndTime(endTime);
+                record.setDuration(duration);
+                record.setExitCode(exitCode);
+                record.setErrorMessage(errorMessage);
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * 批量 expected -> 终态（服务启动恢复时使用）
+     * @return 实际更新的任务ID
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> markFinishedBatch(List<Long> ids, TaskStatusEnum expected, TaskStatusEnum status,
+                                        LocalDateTime endTime, String errorMessage) {
+        String sql = "UPDATE task_record SET status = ?, end_time = ?, error_message = ? WHERE id = ? AND status = ?";
+        Timestamp end = Timestamp.valueOf(endTime);
+        List<Object[]> batchArgs = ids.stream()
+                .map(id -> new Object[]{status.name(), end, errorMessage, id, expected.name()})
+                .toList();
+        List<Long> updated = updated(ids, jdbcTemplate.batchUpdate(sql, batchArgs));
+        journalBatch(updated, expected, status, errorMessage);
+        for (Long id : updated) {
+            cache.update(id, record -> {
+                record.setStatus(status.name());
+                record.setEndTime(endTime);
+                record.setErrorMessage(errorMessage);
+            });
+        }
+        return updated;
+    }
+
+    /**
+     * 批量 RUNNING -> PENDING，清空开始时间和PID（服务启动恢复时，进程尚未启动的任务重新排队）
+     * @return 实际更新的任务ID
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> requeueBatch(List<Long> ids, String reason) {
+        String sql = "UPDATE task_record SET status = 'PENDING', start_time = NULL, pid = NULL, pid_start_millis = NULL " +
+                     "WHERE id = ? AND status = 'RUNNING'";
+        List<Object[]> batchArgs = ids.stream().map(id -> new Object[]{id}).toList();
+        List<Long> updated = updated(ids, jdbcTemplate.batchUpdate(sql, batchArgs));
+        journalBatch(updated, TaskStatusEnum.RUNNING, TaskStatusEnum.PENDING, reason);
+        for (Long id : updated) {
+            cache.update(id, record -> {
+                record.setStatus(TaskStatusEnum.PENDING.name());
+                record.setStartTime(null);
+                record.setPid(null);
+                record.setPidStartMillis(null);
+            });
+        }
+        return updated;
+    }
+
+    /**
+     * RUNNING -> PENDING，等待自动重试：重试次数加一，记录下次重试时间和本次失败原因，清空开始时间和PID
+     * @return 受影响的行数，任务已不是 RUNNING（如已被取消）时返回 0
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int requeueForRetry(Long id, int retryCount, LocalDateTime nextRetryTime, Integer exitCode, String errorMessage) {
+        String sql = "UPDATE task_record SET status = 'PENDING', retry_count = ?, next_retry_time = ?, exit_code = ?, " +
+                     "error_message = ?, start_time = NULL, pid = NULL, pid_start_millis = NULL WHERE id = ? AND status = 'RUNNING'";
+        int rows = jdbcTemplate.update(sql, retryCount, Timestamp.valueOf(nextRetryTime), exitCode, errorMessage, id);
+        if (rows > 0) {
+            journal(id, TaskStatusEnum.RUNNING, TaskStatusEnum.PENDING, null, "第 " + retryCount + " 次自动重试: " + errorMessage);
+            cache.update(id, record -> {
+                record.setStatus(TaskStatusEnum.PENDING.name());
+                record.setRetryCount(retryCount);
+                record.setNextRetryTime(nextRetryTime);
+                record.setExitCode(exitCode);
+                record.setErrorMessage(errorMessage);
+                record.setStartTime(null);
+                record.setPid(null);
+                record.setPidStartMillis(null);
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * expected（FAILED/CANCELLED/TIMEOUT）-> PENDING，清空结束信息和自动重试次数（手动重试时使用）
+     * @return 受影响的行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int reopenPending(Long id, TaskStatusEnum expected) {
+        String sql = "UPDATE task_record SET status = 'PENDING', start_time = NULL, end_time = NULL, duration = NULL, " +
+                     "exit_code = NULL, error_message = NULL, pid = NULL, pid_start_millis = NULL, cpu_time_ms = NULL, " +
+                     "retry_count = 0, next_retry_time = NULL WHERE id = ? AND status = ?";
+        int rows = jdbcTemplate.update(sql, id, expected.name());
+        if (rows > 0) {
+            journal(id, expected, TaskStatusEnum.PENDING, null, "手动重试");
+            cache.update(id, record -> {
+                record.setStatus(TaskStatusEnum.PENDING.name());
+                record.setStartTime(null);
+                record.setEndTime(null);
+                record.setDuration(null);
+                record.setExitCode(null);
+                record.setErrorMessage(null);
+                record.setPid(null);
+                record.setPidStartMillis(null);
+                record.setCpuTimeMs(null);
+                record.setRetryCount(0);
+                record.setNextRetryTime(null);
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * 追加一条执行记录，attempt 取该任务已有记录数 + 1
+     * @return 受影响的行数
+     */
+    public int insertAttempt(TaskAttempt attempt) {
+        String sql = "INSERT INTO task_attempt (task_id, attempt, status, exit_code, error_message, retryable, pid, " +
+                     "start_time, end_time, duration) " +
+                     "SELECT ?, COALESCE(MAX(attempt), 0) + 1, ?, ?, ?, ?, ?, ?, ?, ? FROM task_attempt WHERE task_id = ?";
+        return jdbcTemplate.update(sql, attempt.getTaskId(), attempt.getStatus(), attempt.getExitCode(),
+                attempt.getErrorMessage(), attempt.getRetryable(), attempt.getPid(),
+                attempt.getStartTime() == null ? null : Timestamp.valueOf(attempt.getStartTime()),
+                attempt.getEndTime() == null ? null : Timestamp.valueOf(attempt.getEndTime()),
+                attempt.getDuration(), attempt.getTaskId());
+    }
+
+    /**
+     * 查询任务的执行记录，按执行顺序
+     */
+    public List<TaskAttempt> findAttempts(Long id) {
+        String sql = "SELECT * FROM task_attempt WHERE task_id = ? ORDER BY attempt";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(TaskAttempt.class), id);
+    }
+
+    /**
+     * expected（FAILED/CANCELLED/TIMEOUT）-> RUNNING，清空结束信息（分片父任务重试失败分片时使用）
+     * @return 受影响的行数
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public int reopen(Long id, TaskStatusEnum expected) {
+        String sql = "UPDATE task_record SET status = 'RUNNING', end_time = NULL, duration = NULL, exit_code = NULL, " +
+                     "error_message = NULL WHERE id = ? AND status = ?";
+        int rows = jdbcTemplate.update(sql, id, expected.name());
+        if (rows > 0) {
+            journal(id, expected, TaskStatusEnum.RUNNING, null, "重新执行");
+            cache.update(id, record -> {
+                record.setStatus(TaskStatusEnum.RUNNING.name());
+                record.setEndTime(null);
+                record.setDuration(null);
+                record.setExitCode(null);
+                record.setErrorMessage(null);
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * 查询任务的状态变更记录，按时间升序
+     */
+    public List<TaskStateJournal> findJournal(Long id) {
+        String sql = "SELECT * FROM task_state_journal WHERE task_id = ? ORDER BY id";
+        return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(TaskStateJournal.class), id);
+    }
+
+    private void journal(Long id, TaskStatusEnum from, TaskStatusEnum to, Long pid, String reason) {
+        String sql = "INSERT INTO task_state_journal (task_id, from_status, to_status, pid, reason) VALUES (?, ?, ?, ?, ?)";
+        jdbcTemplate.update(sql, id, from == null ? null : from.name(), to.name(), pid, truncate(reason));
+    }
+
+    private void journalBatch(List<Long> ids, TaskStatusEnum from, TaskStatusEnum to, String reason) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO task_state_journal (task_id, from_status, to_status, reason) VALUES (?, ?, ?, ?)";
+        String truncated = truncate(reason);
+        jdbcTemplate.batchUpdate(sql, ids.stream()
+                .map(id -> new Object[]{id, from.name(), to.name(), truncated})
+                .toList());
+    }
+
+    /**
+     * 批量更新中受影响行数大于0的ID（驱动返回 SUCCESS_NO_INFO 时视为已更新）
+     */
+    private static List<Long> updated(List<Long> ids, int[] counts) {
+        List<Long> updated = new ArrayList<>(ids.size());
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                updated.add(ids.get(i));
+            }
+        }
+        return updated;
+    }
+
+    private static String truncate(String reason) {
+        return reason == null || reason.length() <= JOURNAL_REASON_MAX ? reason : reason.substring(0, JOURNAL_REASON_MAX);
+    }
 }
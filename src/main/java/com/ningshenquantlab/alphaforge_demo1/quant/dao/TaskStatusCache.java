@@ -0,0 +1,207 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.dao;
+//任务状态缓存
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskStatusEnum;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * task_record 的内存热缓存，供高频轮询的任务状态查询使用
+ *
+ * - 分段 LRU：按任务ID分成 task.status-cache.stripes 段，每段一个按访问顺序排列的 LinkedHashMap，
+ *   各段独立加锁，超过 max-size / stripes 时淘汰最久未访问的任务
+ * - 过期：未结束的任务 active-ttl-seconds 后过期（兜底，正常情况下由写穿透保持最新），
+ *   进入终态的任务 terminal-ttl-seconds 后过期，状态页在任务结束后短时间内仍能命中
+ * - 写穿透：task_record 的写入都经过 TaskRecordDao，更新成功后在事务提交时把同样的字段改到缓存中的副本上，
+ *   缓存中没有该任务时不加载（下一次读取时再从库中加载）
+ * - 读取未命中时先取该段的版本号再查库，写回时版本号已变化（期间有写入）则放弃，避免旧状态覆盖新状态
+ * 缓存中保存的是副本，读取时也返回副本，调用方修改返回值不影响缓存
+ */
+@Slf4j
+@Component
+public class TaskStatusCache {
+
+    private final boolean enabled;
+    private final Stripe[] stripes;
+    private final long activeTtlNanos;
+    private final long terminalTtlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TaskStatusCache(@Value("${task.status-cache.enabled:true}") boolean enabled,
+                           @Value("${task.status-cache.max-size:10000}") int maxSize,
+                           @Value("${task.status-cache.stripes:16}") int stripeCount,
+                           @Value("${task.status-cache.active-ttl-seconds:600}") long activeTtlSeconds,
+                           @Value("${task.status-cache.terminal-ttl-seconds:60}") long terminalTtlSeconds) {
+        this.enabled = enabled;
+        int count = Math.max(1, stripeCount);
+        int capacity = Math.max(1, maxSize / count);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+        this.activeTtlNanos = TimeUnit.SECONDS.toNanos(activeTtlSeconds);
+        this.terminalTtlNanos = TimeUnit.SECONDS.toNanos(terminalTtlSeconds);
+        log.info("任务状态缓存: enabled={}, maxSize={}, stripes={}", enabled, maxSize, count);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读取缓存的任务记录
+     * @return 副本，未缓存或已过期时返回 null
+     */
+    public TaskRecord get(Long id) {
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            Entry entry = stripe.get(id);
+            if (entry != null && entry.expireNanos - System.nanoTime() <= 0) {
+                stripe.remove(id);
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return copy(entry.record);
+        }
+    }
+
+    /**
+     * 未命中时查库前取版本号，查库后传给 put
+     */
+    public long version(Long id) {
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            return stripe.version;
+        }
+    }
+
+    /**
+     * 放入从库中读到的任务记录
+     * @param version 查库前 version 返回的值，该段此后有过写入时不放入
+     */
+    public void put(TaskRecord record, long version) {
+        Stripe stripe = stripe(record.getId());
+        synchronized (stripe) {
+            if (stripe.version == version) {
+                stripe.put(record.getId(), new Entry(copy(record), expireAt(record)));
+            }
+        }
+    }
+
+    /**
+     * 写穿透：task_record 更新成功后调用，在当前事务提交后（没有事务时立即）修改缓存中的副本
+     * @param mutation 与 SQL 相同的字段修改
+     */
+    public void update(Long id, Consumer<TaskRecord> mutation) {
+        afterCommit(() -> {
+            Stripe stripe = stripe(id);
+            synchronized (stripe) {
+                stripe.version++;
+                Entry entry = stripe.get(id);
+                if (entry != null) {
+                    mutation.accept(entry.record);
+                    entry.expireNanos = expireAt(entry.record);
+                }
+            }
+        });
+    }
+
+    public void invalidate(Long id) {
+        Stripe stripe = stripe(id);
+        synchronized (stripe) {
+            stripe.version++;
+            stripe.remove(id);
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripe(Long id) {
+        return stripes[(Long.hashCode(id) & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    private long expireAt(TaskRecord record) {
+        boolean terminal = record.getStatus() != null && TaskStatusEnum.valueOf(record.getStatus()).isTerminal();
+        return System.nanoTime() + (terminal ? terminalTtlNanos : activeTtlNanos);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static TaskRecord copy(TaskRecord record) {
+        TaskRecord copy = new TaskRecord();
+        BeanUtils.copyProperties(record, copy);
+        return copy;
+    }
+
+    private static final class Entry {
+        private final TaskRecord record;
+        private long expireNanos;
+
+        private Entry(TaskRecord record, long expireNanos) {
+            this.record = record;
+            this.expireNanos = expireNanos;
+        }
+    }
+
+    /**
+     * 一段缓存，按访问顺序排列，所有访问都在 synchronized (stripe) 中
+     */
+    private static final class Stripe extends LinkedHashMap<Long, Entry> {
+        private final int capacity;
+        // 该段每次写穿透或失效时加一
+        private long version;
+
+        private Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+}
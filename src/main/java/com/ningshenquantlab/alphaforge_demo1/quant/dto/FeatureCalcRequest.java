@@ -1,4 +1,54 @@
 package com.ningshenquantlab.alphaforge_demo1.quant.dto;
 //特征计算请求 DTO
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+/**
+ * 特征计算请求
+ * 对应 feature_manager.py calc --start 20250301 --end 20250305 [--force]
+ */
+@Data
 public class FeatureCalcRequest {
+
+    @NotBlank(message = "开始日期不能为空")
+    @Pattern(regexp = "\\d{8}", message = "开始日期格式必须为 yyyyMMdd")
+    private String startDate;
+
+    @NotBlank(message = "结束日期不能为空")
+    @Pattern(regexp = "\\d{8}", message = "结束日期格式必须为 yyyyMMdd")
+    private String endDate;
+
+    /**
+     * 是否强制重算
+     */
+    private Boolean force = false;
+
+    /**
+     * 优先级（0-9，越大越优先），同类型任务排队时优先级高的先执行
+     */
+    @Min(value = 0, message = "优先级最小为0")
+    @Max(value = 9, message = "优先级最大为9")
+    private Integer priority = 5;
+
+    /**
+     * 预计占用内存（MB），主机可用内存不足时任务继续排队；为空时使用 task.queue.lanes.FEATURE_CALC.expected-memory-mb
+     */
+    @Min(value = 1, message = "预计内存最小为1MB")
+    private Integer expectedMemoryMb;
+
+    /**
+     * 分片数：大于1时按交易日把日期范围切成多段，每段一个子任务并行执行，父任务汇总结果
+     */
+    @Min(value = 1, message = "分片数最小为1")
+    @Max(value = 64, message = "分片数最大为64")
+    private Integer shards = 1;
+
+    /**
+     * 是否异步执行：true 立即返回任务信息，false 等待任务结束后返回
+     */
+    private Boolean async = true;
 }
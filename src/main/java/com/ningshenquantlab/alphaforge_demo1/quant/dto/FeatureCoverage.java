@@ -0,0 +1,21 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.dto;
+//特征覆盖情况 DTO
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 日期范围内的特征覆盖情况（当前特征集版本）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeatureCoverage {
+    private String featureVersion;
+    private Integer tradingDays;           // 范围内的交易日数
+    private Integer materializedDays;      // 已计算完成的交易日数
+    private List<String> missingRanges;    // 缺失的连续区间，格式 yyyyMMdd-yyyyMMdd
+}
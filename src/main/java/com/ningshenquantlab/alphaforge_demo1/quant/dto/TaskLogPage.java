@@ -0,0 +1,22 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.dto;
+//任务日志分页结果 DTO
+
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLog;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 任务日志分页结果（keyset 分页）
+ * 下一页用 fromLine=nextLine 请求；tail 模式下也返回 nextLine，客户端可以从这里继续跟踪新输出
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskLogPage {
+    private List<TaskLog> list;        // 日志列表，TaskLog.id 为行号（游标）
+    private Long nextLine;             // 下一页起始行号
+    private Boolean hasMore;           // 是否还有更多已落库的日志
+}
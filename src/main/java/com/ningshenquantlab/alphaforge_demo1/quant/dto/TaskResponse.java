@@ -1,4 +1,56 @@
 package com.ningshenquantlab.alphaforge_demo1.quant.dto;
 //任务响应 DTO
+
+import com.ningshenquantlab.alphaforge_demo1.monitor.TaskProgress;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskRecord;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务响应
+ */
+@Data
+@NoArgsConstructor
 public class TaskResponse {
+    private Long taskId;
+    private String taskName;
+    private String taskType;
+    private Long parentTaskId;         // 父任务ID（分片子任务）
+    private Integer shardIndex;        // 分片序号（分片子任务）
+    private String status;
+    private Integer priority;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer duration;          // 执行时长（秒），运行中的任务为已运行时长
+    private Integer exitCode;
+    private Integer retryCount;        // 已自动重试的次数
+    private LocalDateTime nextRetryTime;  // 下次自动重试的时间（等待重试时）
+    private Long cpuTimeMs;            // 进程树已消耗的 CPU 时间（毫秒）：运行中取最近一次心跳，取消后为终止时的值
+    private Long rssMb;                // 运行中任务进程树的常驻内存（MB），来自最近一次心跳
+    private TaskProgress progress;     // 运行中任务最近一次上报的进度（脚本输出 ##PROGRESS 行时）
+    private String errorMessage;
+    private LocalDateTime createTime;
+
+    public static TaskResponse from(TaskRecord record) {
+        TaskResponse response = new TaskResponse();
+        response.setTaskId(record.getId());
+        response.setTaskName(record.getTaskName());
+        response.setTaskType(record.getTaskType());
+        response.setParentTaskId(record.getParentTaskId());
+        response.setShardIndex(record.getShardIndex());
+        response.setStatus(record.getStatus());
+        response.setPriority(record.getPriority());
+        response.setStartTime(record.getStartTime());
+        response.setEndTime(record.getEndTime());
+        response.setDuration(record.getDuration());
+        response.setExitCode(record.getExitCode());
+        response.setRetryCount(record.getRetryCount());
+        response.setNextRetryTime(record.getNextRetryTime());
+        response.setCpuTimeMs(record.getCpuTimeMs());
+        response.setErrorMessage(record.getErrorMessage());
+        response.setCreateTime(record.getCreateTime());
+        return response;
+    }
 }
@@ -0,0 +1,29 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.entity;
+//特征计算记录实体
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 特征计算记录实体
+ * 对应数据库表：feature_calc_record，每个任务一条；分片执行时父任务的记录是各分片的汇总
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeatureCalcRecord {
+    private Long id;
+    private Long taskId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Boolean forceRecalc;
+    private String featureVersion;     // 特征集版本
+    private Integer featureCount;      // 计算的特征数量
+    private Integer successCount;      // 成功数量
+    private Integer failedCount;       // 失败数量
+    private LocalDateTime createTime;
+}
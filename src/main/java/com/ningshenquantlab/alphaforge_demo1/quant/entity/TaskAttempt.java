@@ -0,0 +1,30 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.entity;
+//任务执行记录实体
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务执行记录实体（每次启动进程执行一条，自动重试和手动重试都会追加）
+ * 对应数据库表：task_attempt
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskAttempt {
+    private Long id;
+    private Long taskId;
+    private Integer attempt;           // 第几次执行（从1开始）
+    private String status;             // SUCCESS/FAILED/TIMEOUT/CANCELLED
+    private Integer exitCode;
+    private String errorMessage;
+    private Boolean retryable;         // 失败是否可重试，成功时为空
+    private Long pid;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer duration;          // 执行时长（秒）
+    private LocalDateTime createTime;
+}
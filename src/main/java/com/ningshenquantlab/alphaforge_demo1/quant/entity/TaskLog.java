@@ -1,4 +1,23 @@
 package com.ningshenquantlab.alphaforge_demo1.quant.entity;
 //任务日志实体
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务日志实体
+ * 对应数据库表：task_log，每行对应子进程的一行 STDOUT/STDERR 输出或一条 INFO/ERROR 系统日志
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class TaskLog {
+    private Long id;
+    private Long taskId;
+    private String logType;            // STDOUT/STDERR/INFO/ERROR
+    private String logContent;
+    private LocalDateTime logTime;
 }
@@ -0,0 +1,26 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.entity;
+//任务日志块实体
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务日志块实体
+ * 对应数据库表：task_log_chunk，一条记录保存同一任务连续的若干行日志（Deflate 压缩）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskLogChunk {
+    private Long id;
+    private Long taskId;
+    private Integer chunkSeq;          // 块序号，同一任务内从0递增
+    private Long firstLineNo;          // 块内第一行的行号，同一任务内从1递增
+    private Integer lineCount;
+    private Integer rawBytes;          // 压缩前字节数
+    private byte[] content;            // 压缩后的日志行，格式见 LogChunkCodec
+    private LocalDateTime createTime;
+}
@@ -1,4 +1,43 @@
 package com.ningshenquantlab.alphaforge_demo1.quant.entity;
 //任务记录实体
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务记录实体
+ * 对应数据库表：task_record
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class TaskRecord {
+    private Long id;
+    private String taskName;
+    private String taskType;           // FEATURE_CALC/DATA_FETCH/MODEL_TRAIN
+    private Long parentTaskId;         // 父任务ID（分片执行时的子任务）
+    private Integer shardIndex;        // 分片序号（从0开始）
+    private String status;             // PENDING/RUNNING/SUCCESS/FAILED/CANCELLED/TIMEOUT
+    private String command;            // 执行的完整命令
+    private String parameters;         // 任务参数（JSON）
+    private Integer priority;          // 优先级（0-9，越大越优先）
+    private String scriptName;         // 脚本名称
+    private String scriptArgs;         // 脚本参数列表（JSON数组）
+    private Integer expectedMemoryMb;  // 预计占用内存（MB），为空时使用任务类型的默认值
+    private Long pid;                  // 子进程PID（独立进程执行时）
+    private Long pidStartMillis;       // 子进程启动时间（epoch毫秒），用于识别PID被复用
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Integer duration;          // 执行时长（秒）
+    private Integer exitCode;
+    private Integer retryCount;        // 已自动重试的次数（手动重试时清零）
+    private LocalDateTime nextRetryTime;  // 下次自动重试的时间
+    private Long cpuTimeMs;            // 取消时被终止的进程树已消耗的 CPU 时间（毫秒）
+    private String errorMessage;
+    private String createdBy;
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
 }
@@ -0,0 +1,25 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.entity;
+//任务状态变更记录实体
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务状态变更记录实体
+ * 对应数据库表：task_state_journal
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskStateJournal {
+    private Long id;
+    private Long taskId;
+    private String fromStatus;         // 原状态，创建任务时为空
+    private String toStatus;
+    private Long pid;
+    private String reason;
+    private LocalDateTime createTime;
+}
@@ -1,4 +1,25 @@
 package com.ningshenquantlab.alphaforge_demo1.quant.entity;
-//任务状态枚举
+//任务状态快照
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskStatusEnum;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务运行状态快照
+ * 由 PythonExecutor.getTaskStatus 返回，描述执行器内存中某个任务的实时状态
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class TaskStatus {
+    private Long taskId;
+    private TaskStatusEnum status;
+    private Long pid;                  // 子进程 PID（常驻进程执行时为共享的工作进程 PID）
+    private LocalDateTime startTime;   // 进程启动时间
+    private Long elapsedMillis;        // 已运行时长（毫秒）
+    private boolean pooled;            // 是否由常驻进程执行（工作进程退出不代表任务结束，不能按 PID 跟踪任务）
 }
@@ -1,4 +1,624 @@
 package com.ningshenquantlab.alphaforge_demo1.quant.service;
 //特征计算服务
-public class FeatureService {
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskStatusEnum;
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.config.PythonConfig;
+import com.ningshenquantlab.alphaforge_demo1.config.ScriptConfig;
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
+import com.ningshenquantlab.alphaforge_demo1.executor.CommandBuilder;
+import com.ningshenquantlab.alphaforge_demo1.executor.ExecutionResult;
+import com.ningshenquantlab.alphaforge_demo1.executor.event.TaskHeartbeatEvent;
+import com.ningshenquantlab.alphaforge_demo1.monitor.ProgressTracker;
+import com.ningshenquantlab.alphaforge_demo1.monitor.TaskMonitor;
+import com.ningshenquantlab.alphaforge_demo1.quant.dao.FeatureCalcRecordDao;
+import com.ningshenquantlab.alphaforge_demo1.quant.dao.FeaturePartitionDao;
+import com.ningshenquantlab.alphaforge_demo1.quant.dto.FeatureCalcRequest;
+import com.ningshenquantlab.alphaforge_demo1.quant.dto.FeatureCoverage;
+import com.ningshenquantlab.alphaforge_demo1.quant.dto.TaskLogPage;
+import com.ningshenquantlab.alphaforge_demo1.quant.dto.TaskResponse;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.FeatureCalcRecord;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskAttempt;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 特征计算服务
+ * 对应 feature_manager.py calc 命令
+ *
+ * 分片执行：长日期范围按交易日切成多段，每段一个子任务（task_record.parent_task_id 指向父任务）并行执行。
+ * 父任务不启动进程，所有分片的最近一次尝试都结束后由本服务置为终态并汇总 feature_calc_record；
+ * 失败的分片可以单独重试，成功的分片不会重跑。
+ * 脚本输出中最后一行 ##RESULT {json} 为该任务的结果汇总（feature_count/success_count/failed_count），没有时计数为空；
+ * 运行中输出的 ##PROGRESS {json} 行为进度（见 ProgressListener），查询任务状态时返回最近一次进度。
+ *
+ * 增量计算：feature_partition 记录当前特征集版本（feature.version）下已计算完成的交易日，
+ * 非强制重算时只计算缺失的交易日；升级特征集版本后所有交易日都视为缺失，数据修正后可以按范围作废分区。
+ */
+@Slf4j
+@Service
+public class FeatureService implements TaskFinishedListener {
+
+    private static final int DEFAULT_PRIORITY = 5;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String RESULT_PREFIX = "##RESULT ";
+
+    private final TaskService taskService;
+    private final TaskLogService taskLogService;
+    private final TaskLogStreamService taskLogStreamService;
+    private final FeatureCalcRecordDao featureCalcRecordDao;
+    private final FeaturePartitionDao featurePartitionDao;
+    private final CommandBuilder commandBuilder;
+    private final ScriptConfig scriptConfig;
+    private final PythonConfig pythonConfig;
+    private final ObjectMapper objectMapper;
+    private final TaskMonitor taskMonitor;
+    private final ProgressTracker progressTracker;
+    private final String featureVersion;
+
+    @Autowired
+    public FeatureService(TaskService taskService,
+                          TaskLogService taskLogService,
+                          TaskLogStreamService taskLogStreamService,
+                          FeatureCalcRecordDao featureCalcRecordDao,
+                          FeaturePartitionDao featurePartitionDao,
+                          CommandBuilder commandBuilder,
+                          ScriptConfig scriptConfig,
+                          PythonConfig pythonConfig,
+                          ObjectMapper objectMapper,
+                          TaskMonitor taskMonitor,
+                          ProgressTracker progressTracker,
+                          @Value("${feature.version:v1}") String featureVersion) {
+        this.taskService = taskService;
+        this.taskLogService = taskLogService;
+        this.taskLogStreamService = taskLogStreamService;
+        this.featureCalcRecordDao = featureCalcRecordDao;
+        this.featurePartitionDao = featurePartitionDao;
+        this.commandBuilder = commandBuilder;
+        this.scriptConfig = scriptConfig;
+        this.pythonConfig = pythonConfig;
+        this.objectMapper = objectMapper;
+        this.taskMonitor = taskMonitor;
+        this.progressTracker = progressTracker;
+        this.featureVersion = featureVersion;
+    }
+
+    /**
+     * 提交特征计算任务
+     * 任务进入 FEATURE_CALC 通道排队，按优先级和通道权重调度
+     * force=false 时只计算 feature_partition 中当前特征集版本还没有的交易日，全部已有时直接返回已成功的任务；
+     * 待计算的交易日不连续或 shards 大于1时按交易日切分，每段一个子任务并行执行，返回父任务；
+     * 相同的计算已在排队或执行中时不创建新任务，直接返回该任务
+     * async=true 时提交后立即返回；async=false 时等待任务（分片执行时为所有子任务）结束（最多 python.execution.timeout 秒）再返回
+     * @throws BusinessException 日期范围不合法时抛出
+     */
+    public TaskResponse calculateFeatures(FeatureCalcRequest request) {
+        LocalDate startDate = parseDate(request.getStartDate());
+        LocalDate endDate = parseDate(request.getEndDate());
+        if (startDate.isAfter(endDate)) {
+            throw new BusinessException("开始日期不能晚于结束日期");
+        }
+        int shards = request.getShards() == null ? 1 : request.getShards();
+        List<LocalDate> tradingDays = tradingDays(startDate, endDate);
+        List<LocalDate> pendingDays = Boolean.TRUE.equals(request.getForce())
+                ? tradingDays : missingDays(tradingDays, startDate, endDate);
+        if (pendingDays.isEmpty()) {
+            TaskRecord record = newFeatureTask(request, request.getStartDate(), request.getEndDate());
+            record.setScriptName(null);
+            record = taskService.createCompletedTask(record,
+                    "全部 " + tradingDays.size() + " 个交易日的特征已是最新（版本 " + featureVersion + "），无需计算");
+            log.info("特征已全部计算，跳过: taskId={}, {}-{}", record.getId(), request.getStartDate(), request.getEndDate());
+            return TaskResponse.from(record);
+        }
+
+        List<LocalDate[]> ranges = splitRanges(tradingDays, pendingDays, shards);
+        List<List<String>> argLists = ranges.stream()
+                .map(range -> featureCalcArgs(request, range[0].format(DATE_FORMAT), range[1].format(DATE_FORMAT)))
+                .toList();
+        // 相同的计算（同样的进程和参数）已在排队或执行中时直接返回该任务
+        String dedupKey = TaskService.dedupKey(TaskTypeEnum.FEATURE_CALC, scriptConfig.getFeatureManager(), argLists);
+        int skippedDays = tradingDays.size() - pendingDays.size();
+        TaskService.Submission submission = taskService.submitOnce(dedupKey, () -> ranges.size() == 1
+                ? submitSingle(request, ranges.get(0), skippedDays)
+                : submitSharded(request, ranges, pendingDays.size(), tradingDays.size()));
+        TaskRecord record = submission.record();
+        CompletableFuture<?> future = submission.future();
+        if (submission.attached()) {
+            taskLogService.info(record.getId(), "合并相同的计算请求");
+        }
+
+        if (!Boolean.FALSE.equals(request.getAsync())) {
+            return TaskResponse.from(taskService.getTask(record.getId()));
+        }
+        try {
+            future.get(pythonConfig.getExecution().getTimeout(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.warn("同步等待特征计算超时，任务继续在后台执行: taskId={}", record.getId());
+        } catch (ExecutionException e) {
+            log.error("特征计算执行异常: taskId={}", record.getId(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return TaskResponse.from(taskService.getTask(record.getId()));
+    }
+
+    /**
+     * 查询日期范围内的特征覆盖情况
+     * @throws BusinessException 日期不合法时抛出
+     */
+    public FeatureCoverage getCoverage(String startDate, String endDate) {
+        LocalDate start = parseDate(startDate);
+        LocalDate end = parseDate(endDate);
+        List<LocalDate> tradingDays = tradingDays(start, end);
+        List<LocalDate> missing = missingDays(tradingDays, start, end);
+        List<String> missingRanges = missing.isEmpty() ? List.of()
+                : splitRanges(tradingDays, missing, 1).stream()
+                        .map(range -> range[0].format(DATE_FORMAT) + "-" + range[1].format(DATE_FORMAT))
+                        .toList();
+        return new FeatureCoverage(featureVersion, tradingDays.size(), tradingDays.size() - missing.size(), missingRanges);
+    }
+
+    /**
+     * 作废日期范围内当前特征集版本的分区，之后的计算请求会重新计算这些交易日
+     * @return 作废的交易日数
+     */
+    public int invalidatePartitions(String startDate, String endDate) {
+        int rows = featurePartitionDao.invalidate(featureVersion, parseDate(startDate), parseDate(endDate));
+        log.info("作废特征分区: version={}, {}-{}, 交易日数={}", featureVersion, startDate, endDate, rows);
+        return rows;
+    }
+
+    /**
+     * 查询分片执行的子任务（每个分片只返回最近一次尝试）
+     * @throws com.ningshenquantlab.alphaforge_demo1.exception.ResourceNotFoundException 任务不存在时抛出
+     */
+    public List<TaskResponse> getShards(Long taskId) {
+        taskService.getTask(taskId);
+        return latestAttempts(taskService.getChildTasks(taskId)).stream().map(TaskResponse::from).toList();
+    }
+
+    /**
+     * 重试失败的分片：每个最近一次尝试失败（FAILED/TIMEOUT/CANCELLED）的分片新建一个子任务重新排队，
+     * 成功的分片不会重跑；父任务已失败时重新置为 RUNNING，等新的子任务结束后重新汇总
+     * @return 新建的子任务
+     * @throws BusinessException 任务不是分片任务或没有失败的分片时抛出
+     */
+    public List<TaskResponse> retryFailedShards(Long taskId) {
+        TaskRecord parent = taskService.getTask(taskId);
+        List<TaskRecord> failed = latestAttempts(taskService.getChildTasks(taskId)).stream()
+                .filter(child -> {
+                    TaskStatusEnum status = TaskStatusEnum.valueOf(child.getStatus());
+                    return status.isTerminal() && status != TaskStatusEnum.SUCCESS;
+                })
+                .toList();
+        if (failed.isEmpty()) {
+            throw new BusinessException("没有需要重试的分片: " + taskId);
+        }
+        FeatureCalcRequest request = fromJson(parent.getParameters());
+        List<Shard> attempts = new ArrayList<>(failed.size());
+        for (TaskRecord child : failed) {
+            FeatureCalcRequest shard = fromJson(child.getParameters());
+            attempts.add(createShard(parent, request, child.getShardIndex(), shard.getStartDate(), shard.getEndDate()));
+        }
+        // 先建好新的子任务再重开父任务，最后入队，汇总时不会把父任务误判为已全部结束
+        if (taskService.reopenParentTask(taskId)) {
+            log.info("父任务重新执行: taskId={}", taskId);
+        }
+        taskLogService.info(taskId, "重试 " + failed.size() + " 个失败分片");
+        List<TaskResponse> retried = new ArrayList<>(attempts.size());
+        for (Shard attempt : attempts) {
+            taskService.submit(attempt.record(), attempt.args());
+            retried.add(TaskResponse.from(attempt.record()));
+        }
+        return retried;
+    }
+
+    /**
+     * 特征计算任务结束：写入该任务的 feature_calc_record；成功且没有失败的特征时把范围内的交易日记入 feature_partition；
+     * 分片子任务全部结束后汇总到父任务
+     */
+    @Override
+    public void onTaskFinished(TaskRecord record, ExecutionResult result) {
+        if (!TaskTypeEnum.FEATURE_CALC.name().equals(record.getTaskType()) || record.getScriptName() == null) {
+            return;
+        }
+        FeatureCalcRequest request = fromJson(record.getParameters());
+        FeatureCalcRecord calcRecord = new FeatureCalcRecord();
+        calcRecord.setTaskId(record.getId());
+        calcRecord.setStartDate(parseDate(request.getStartDate()));
+        calcRecord.setEndDate(parseDate(request.getEndDate()));
+        calcRecord.setForceRecalc(Boolean.TRUE.equals(request.getForce()));
+        calcRecord.setFeatureVersion(featureVersion);
+        Map<String, Object> summary = result == null ? null : parseSummary(result.getStdout());
+        if (summary != null) {
+            calcRecord.setFeatureCount(intValue(summary.get("feature_count")));
+            calcRecord.setSuccessCount(intValue(summary.get("success_count")));
+            calcRecord.setFailedCount(intValue(summary.get("failed_count")));
+        }
+        featureCalcRecordDao.upsert(calcRecord);
+
+        boolean complete = TaskStatusEnum.SUCCESS.name().equals(record.getStatus())
+                && (calcRecord.getFailedCount() == null || calcRecord.getFailedCount() == 0);
+        if (complete) {
+            int marked = featurePartitionDao.markMaterialized(featureVersion,
+                    tradingDays(calcRecord.getStartDate(), calcRecord.getEndDate()), record.getId());
+            log.debug("特征分区已更新: taskId={}, version={}, 交易日数={}", record.getId(), featureVersion, marked);
+        }
+
+        if (record.getParentTaskId() != null) {
+            aggregateShards(record.getParentTaskId());
+        }
+    }
+
+    /**
+     * 所有分片的最近一次尝试都结束后，父任务进入终态并汇总 feature_calc_record
+     * 多个分片同时结束时可能并发调用，父任务状态更新带条件，只有一个调用会写入
+     */
+    private void aggregateShards(Long parentTaskId) {
+        List<TaskRecord> latest = latestAttempts(taskService.getChildTasks(parentTaskId));
+        long finished = latest.stream().filter(child -> TaskStatusEnum.valueOf(child.getStatus()).isTerminal()).count();
+        if (finished < latest.size()) {
+            log.debug("分片进度: parentTaskId={}, {}/{}", parentTaskId, finished, latest.size());
+            return;
+        }
+
+        List<Integer> failedShards = latest.stream()
+                .filter(child -> !TaskStatusEnum.SUCCESS.name().equals(child.getStatus()))
+                .map(TaskRecord::getShardIndex)
+                .toList();
+        TaskStatusEnum status = failedShards.isEmpty() ? TaskStatusEnum.SUCCESS : TaskStatusEnum.FAILED;
+        String errorMessage = failedShards.isEmpty() ? null
+                : failedShards.size() + "/" + latest.size() + " 个分片失败，分片序号: " + failedShards;
+        if (!taskService.finishParentTask(parentTaskId, status, errorMessage)) {
+            return;
+        }
+
+        TaskRecord parent = taskService.getTask(parentTaskId);
+        FeatureCalcRequest request = fromJson(parent.getParameters());
+        FeatureCalcRecord total = new FeatureCalcRecord();
+        total.setTaskId(parentTaskId);
+        total.setStartDate(parseDate(request.getStartDate()));
+        total.setEndDate(parseDate(request.getEndDate()));
+        total.setForceRecalc(Boolean.TRUE.equals(request.getForce()));
+        total.setFeatureVersion(featureVersion);
+        for (FeatureCalcRecord shard : featureCalcRecordDao.findByTaskIds(
+                latest.stream().map(TaskRecord::getId).toList())) {
+            total.setFeatureCount(sum(total.getFeatureCount(), shard.getFeatureCount()));
+            total.setSuccessCount(sum(total.getSuccessCount(), shard.getSuccessCount()));
+            total.setFailedCount(sum(total.getFailedCount(), shard.getFailedCount()));
+        }
+        featureCalcRecordDao.upsert(total);
+
+        if (status == TaskStatusEnum.SUCCESS) {
+            taskLogService.info(parentTaskId, "全部 " + latest.size() + " 个分片执行成功");
+        } else {
+            taskLogService.error(parentTaskId, errorMessage);
+        }
+        taskLogService.flush(parentTaskId);
+        log.info("分片任务结束: parentTaskId={}, status={}", parentTaskId, status);
+    }
+
+    public TaskResponse getTaskStatus(Long taskId) {
+        // 仪表盘每秒轮询，读缓存（状态变更时写穿透），命中时整个查询不访问数据库
+        TaskResponse response = TaskResponse.from(taskService.getTaskCached(taskId));
+        if (!TaskStatusEnum.RUNNING.name().equals(response.getStatus())) {
+            return response;
+        }
+        // 运行中的任务附带最近一次心跳和进度（内存中，不查库，也不读 task_log）
+        TaskHeartbeatEvent heartbeat = taskMonitor.lastHeartbeat(taskId);
+        if (heartbeat != null) {
+            response.setDuration((int) (heartbeat.elapsedMillis() / 1000));
+            response.setCpuTimeMs(heartbeat.cpuMillis());
+            response.setRssMb(heartbeat.rssBytes() < 0 ? null : heartbeat.rssBytes() / 1024 / 1024);
+        }
+        response.setProgress(progressTracker.get(taskId));
+        return response;
+    }
+
+    /**
+     * 分页读取任务日志；tail 不为空时返回最后 tail 行
+     */
+    public TaskLogPage getTaskLogs(Long taskId, long fromLine, int limit, String level, Integer tail) {
+        taskService.getTask(taskId);
+        if (tail != null) {
+            return taskLogService.getLogTail(taskId, tail, level);
+        }
+        return taskLogService.getLogPage(taskId, fromLine, limit, level);
+    }
+
+    /**
+     * 流式下载任务日志
+     * @throws com.ningshenquantlab.alphaforge_demo1.exception.ResourceNotFoundException 任务不存在时抛出（在开始写出之前）
+     */
+    public StreamingResponseBody downloadTaskLogs(Long taskId, String level) {
+        taskService.getTask(taskId);
+        return outputStream -> taskLogService.writeLogs(taskId, level, outputStream);
+    }
+
+    /**
+     * 订阅任务实时输出
+     * @param lastEventId 断线重连时的 Last-Event-ID
+     * @throws com.ningshenquantlab.alphaforge_demo1.exception.ResourceNotFoundException 任务不存在时抛出
+     */
+    public SseEmitter streamTaskLogs(Long taskId, Long lastEventId) {
+        TaskRecord record = taskService.getTask(taskId);
+        return taskLogStreamService.subscribe(taskId, lastEventId, record.getStatus());
+    }
+
+    /**
+     * 重试失败的任务：分片父任务重试失败的分片，其他任务整体重新排队
+     * @return 重试后的任务
+     * @throws BusinessException 任务不能重试时抛出
+     */
+    public TaskResponse retryTask(Long taskId) {
+        TaskRecord record = taskService.getTask(taskId);
+        if (record.getScriptName() == null) {
+            retryFailedShards(taskId);
+            return TaskResponse.from(taskService.getTask(taskId));
+        }
+        return TaskResponse.from(taskService.retryTask(taskId));
+    }
+
+    /**
+     * 查询任务的执行记录（含自动重试）
+     */
+    public List<TaskAttempt> getAttempts(Long taskId) {
+        return taskService.getAttempts(taskId);
+    }
+
+    public void cancelTask(Long taskId) {
+        taskService.cancelTask(taskId);
+    }
+
+    /**
+     * 单个任务计算一段连续的交易日
+     * @param skippedDays 已计算而跳过的交易日数
+     */
+    private TaskService.Submission submitSingle(FeatureCalcRequest request, LocalDate[] range, int skippedDays) {
+        String from = range[0].format(DATE_FORMAT);
+        String to = range[1].format(DATE_FORMAT);
+        TaskRecord record = newFeatureTask(request, from, to);
+        List<String> args = featureCalcArgs(request, from, to);
+        taskService.createTask(record, args);
+        if (skippedDays > 0) {
+            taskLogService.info(record.getId(), "跳过已计算的 " + skippedDays + " 个交易日，计算 " + from + "-" + to);
+        }
+        return new TaskService.Submission(record, taskService.submit(record, args), false);
+    }
+
+    /**
+     * 父任务 + 每段一个子任务
+     */
+    private TaskService.Submission submitSharded(FeatureCalcRequest request, List<LocalDate[]> ranges,
+                                                 int pendingDays, int tradingDays) {
+        TaskRecord parent = new TaskRecord();
+        parent.setTaskName("特征计算 " + request.getStartDate() + "-" + request.getEndDate()
+                + "（" + ranges.size() + " 个分片）");
+        parent.setTaskType(TaskTypeEnum.FEATURE_CALC.name());
+        parent.setCommand(String.join(" ", commandBuilder.buildFeatureCalcCommand(
+                request.getStartDate(), request.getEndDate(), Boolean.TRUE.equals(request.getForce()))));
+        parent.setParameters(toJson(request));
+        parent.setPriority(priorityOf(request.getPriority()));
+        TaskRecord record = taskService.createParentTask(parent);
+
+        // 先建好所有分片再入队，避免先结束的分片汇总时看不到后面的分片
+        List<Shard> shardTasks = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            shardTasks.add(createShard(record, request, i, ranges.get(i)[0].format(DATE_FORMAT),
+                    ranges.get(i)[1].format(DATE_FORMAT)));
+        }
+        taskLogService.info(record.getId(), "待计算 " + pendingDays + "/" + tradingDays
+                + " 个交易日，切分为 " + ranges.size() + " 个分片");
+        List<CompletableFuture<ExecutionResult>> children = new ArrayList<>(ranges.size());
+        for (Shard shard : shardTasks) {
+            children.add(taskService.submit(shard.record(), shard.args()));
+        }
+        return new TaskService.Submission(record, CompletableFuture.allOf(children.toArray(new CompletableFuture[0])), false);
+    }
+
+    /**
+     * 创建分片子任务记录（PENDING），由调用方在所有分片创建完成后再入队
+     */
+    private Shard createShard(TaskRecord parent, FeatureCalcRequest request,
+                              int shardIndex, String startDate, String endDate) {
+        TaskRecord child = newFeatureTask(request, startDate, endDate);
+        child.setTaskName(child.getTaskName() + " [分片 " + (shardIndex + 1) + "]");
+        child.setParentTaskId(parent.getId());
+        child.setShardIndex(shardIndex);
+        List<String> args = featureCalcArgs(request, startDate, endDate);
+        taskService.createTask(child, args);
+        return new Shard(child, args);
+    }
+
+    /**
+     * 特征计算任务记录，parameters 中的日期为该任务实际计算的范围
+     */
+    private TaskRecord newFeatureTask(FeatureCalcRequest request, String startDate, String endDate) {
+        boolean force = Boolean.TRUE.equals(request.getForce());
+        FeatureCalcRequest parameters = new FeatureCalcRequest();
+        parameters.setStartDate(startDate);
+        parameters.setEndDate(endDate);
+        parameters.setForce(force);
+        parameters.setPriority(request.getPriority());
+        parameters.setExpectedMemoryMb(request.getExpectedMemoryMb());
+        parameters.setAsync(request.getAsync());
+
+        TaskRecord record = new TaskRecord();
+        record.setTaskName("特征计算 " + startDate + "-" + endDate);
+        record.setTaskType(TaskTypeEnum.FEATURE_CALC.name());
+        record.setCommand(String.join(" ", commandBuilder.buildFeatureCalcCommand(startDate, endDate, force)));
+        record.setParameters(toJson(parameters));
+        record.setPriority(priorityOf(request.getPriority()));
+        record.setExpectedMemoryMb(request.getExpectedMemoryMb());
+        record.setScriptName(scriptConfig.getFeatureManager());
+        return record;
+    }
+
+    private List<String> featureCalcArgs(FeatureCalcRequest request, String startDate, String endDate) {
+        return commandBuilder.buildFeatureCalcArgs(startDate, endDate, Boolean.TRUE.equals(request.getForce()));
+    }
+
+    /**
+     * 日期范围内的交易日
+     * 这里只按周一到周五计算交易日，节假日由脚本自行跳过；节假日在任务成功后同样记入 feature_partition，不会被当作缺失
+     * @throws BusinessException 范围内没有交易日时抛出
+     */
+    static List<LocalDate> tradingDays(LocalDate startDate, LocalDate endDate) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                days.add(day);
+            }
+        }
+        if (days.isEmpty()) {
+            throw new BusinessException("日期范围内没有交易日: " + startDate + " - " + endDate);
+        }
+        return days;
+    }
+
+    /**
+     * 当前特征集版本下还没有计算的交易日
+     */
+    private List<LocalDate> missingDays(List<LocalDate> tradingDays, LocalDate startDate, LocalDate endDate) {
+        Set<LocalDate> materialized = new HashSet<>(featurePartitionDao.findMaterialized(featureVersion, startDate, endDate));
+        return tradingDays.stream().filter(day -> !materialized.contains(day)).toList();
+    }
+
+    /**
+     * 把待计算的交易日切成若干段，每段首尾都是交易日：
+     * - 待计算的交易日之间隔着已计算的交易日时断开，不重复计算中间的交易日
+     * - 每段最多 ceil(待计算天数 / shards) 个交易日，shards=1 且待计算的交易日连续时只有一段
+     * @param tradingDays 日期范围内的所有交易日（升序）
+     * @param pendingDays 其中需要计算的交易日（升序）
+     */
+    static List<LocalDate[]> splitRanges(List<LocalDate> tradingDays, List<LocalDate> pendingDays, int shards) {
+        Set<LocalDate> pending = new HashSet<>(pendingDays);
+        int size = (pendingDays.size() + shards - 1) / shards;
+        List<LocalDate[]> ranges = new ArrayList<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        int count = 0;
+        for (LocalDate day : tradingDays) {
+            if (pending.contains(day)) {
+                if (from == null) {
+                    from = day;
+                    count = 0;
+                }
+                to = day;
+                if (++count == size) {
+                    ranges.add(new LocalDate[]{from, to});
+                    from = null;
+                }
+            } else if (from != null) {
+                ranges.add(new LocalDate[]{from, to});
+                from = null;
+            }
+        }
+        if (from != null) {
+            ranges.add(new LocalDate[]{from, to});
+        }
+        return ranges;
+    }
+
+    /**
+     * 每个分片只保留最近一次尝试（ID 最大的子任务），按分片序号排序
+     */
+    private static List<TaskRecord> latestAttempts(List<TaskRecord> children) {
+        Map<Integer, TaskRecord> latest = new TreeMap<>();
+        for (TaskRecord child : children) {
+            latest.merge(child.getShardIndex(), child, (a, b) -> a.getId() > b.getId() ? a : b);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * 从脚本输出中取结果汇总行（最后一行以 ##RESULT 开头的 JSON），没有时返回 null
+     * 示例：##RESULT {"feature_count": 120, "success_count": 118, "failed_count": 2}
+     */
+    private Map<String, Object> parseSummary(String stdout) {
+        if (stdout == null) {
+            return null;
+        }
+        int end = stdout.length();
+        while (end > 0) {
+            int start = stdout.lastIndexOf('\n', end - 1) + 1;
+            String line = stdout.substring(start, end).strip();
+            if (line.startsWith(RESULT_PREFIX)) {
+                try {
+                    return objectMapper.readValue(line.substring(RESULT_PREFIX.length()),
+                            new TypeReference<Map<String, Object>>() {});
+                } catch (JsonProcessingException e) {
+                    log.warn("结果汇总行格式错误: {}", line);
+                    return null;
+                }
+            }
+            end = start - 1;
+        }
+        return null;
+    }
+
+    private static Integer intValue(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+
+    private static Integer sum(Integer a, Integer b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null ? a : a + b;
+    }
+
+    private static LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date, DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new BusinessException("日期不合法: " + date);
+        }
+    }
+
+    private FeatureCalcRequest fromJson(String parameters) {
+        try {
+            return objectMapper.readValue(parameters, FeatureCalcRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("任务参数解析失败: " + e.getMessage());
+        }
+    }
+
+    private static int priorityOf(Integer priority) {
+        return priority == null ? DEFAULT_PRIORITY : priority;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("任务参数序列化失败: " + e.getMessage());
+        }
+    }
+
+    private record Shard(TaskRecord record, List<String> args) {
+    }
 }
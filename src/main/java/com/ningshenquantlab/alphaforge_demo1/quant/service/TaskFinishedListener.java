@@ -0,0 +1,19 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.service;
+//任务结束监听器
+
+import com.ningshenquantlab.alphaforge_demo1.executor.ExecutionResult;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskRecord;
+
+/**
+ * 任务结束监听器
+ * 实现为 Spring Bean 即可，任务进入终态（执行结束或被取消）后由 TaskService 回调。
+ * 同一任务可能被回调多次，实现需要幂等
+ */
+public interface TaskFinishedListener {
+
+    /**
+     * @param record 任务记录（已是终态）
+     * @param result 执行结果，任务未执行（排队中被取消、启动失败）时为 null
+     */
+    void onTaskFinished(TaskRecord record, ExecutionResult result);
+}
@@ -0,0 +1,151 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.service;
+//任务日志服务
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.config.PythonConfig;
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
+import com.ningshenquantlab.alphaforge_demo1.executor.OutputLine;
+import com.ningshenquantlab.alphaforge_demo1.executor.OutputListener;
+import com.ningshenquantlab.alphaforge_demo1.quant.dao.TaskLogDao;
+import com.ningshenquantlab.alphaforge_demo1.quant.dto.TaskLogPage;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * 任务日志服务
+ * 作为 OutputListener 接收子进程的每一行输出，交给 TaskLogDao 异步批量落库
+ * - 输出行在抽取线程上回调，只能用非阻塞的 append，数据库跟不上时丢弃而不是拖慢子进程
+ * - INFO/ERROR 系统日志来自业务线程，可以用短暂阻塞的 appendBlocking 尽量保证不丢
+ */
+@Service
+public class TaskLogService implements OutputListener {
+
+    // 系统日志入队最多等待的时间（毫秒）
+    private static final long SYSTEM_LOG_OFFER_TIMEOUT_MS = 100;
+    // 单次查询最多返回的行数
+    public static final int MAX_PAGE_SIZE = 2000;
+    // 下载时每次从数据库读取的行数
+    private static final int DOWNLOAD_PAGE_SIZE = 2000;
+    private static final DateTimeFormatter LOG_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final TaskLogDao taskLogDao;
+    private final PythonConfig pythonConfig;
+
+    @Autowired
+    public TaskLogService(TaskLogDao taskLogDao, PythonConfig pythonConfig) {
+        this.taskLogDao = taskLogDao;
+        this.pythonConfig = pythonConfig;
+    }
+
+    @Override
+    public void onLine(Long taskId, OutputLine line) {
+        // 负数ID是未关联 task_record 的临时任务，不落库
+        if (taskId == null || taskId <= 0 || !Boolean.TRUE.equals(pythonConfig.getExecution().getEnableLogCapture())) {
+            return;
+        }
+        taskLogDao.append(new TaskLog(null, taskId, line.getType().name(), line.getContent(), LocalDateTime.now()));
+    }
+
+    public void info(Long taskId, String content) {
+        appendSystemLog(taskId, LogTypeEnum.INFO, content);
+    }
+
+    public void error(Long taskId, String content) {
+        appendSystemLog(taskId, LogTypeEnum.ERROR, content);
+    }
+
+    /**
+     * 任务结束后调用，使尚未写出的日志尽快落库
+     */
+    public void flush(Long taskId) {
+        taskLogDao.flushTask(taskId);
+    }
+
+    /**
+     * 从 fromLine 开始读取一页日志
+     * @param level 日志类型（STDOUT/STDERR/INFO/ERROR），为空表示全部
+     * @throws BusinessException 参数不合法时抛出
+     */
+    public TaskLogPage getLogPage(Long taskId, long fromLine, int limit, String level) {
+        checkSize(limit, "limit");
+        // 多取一行用于判断是否还有下一页
+        List<TaskLog> lines = taskLogDao.findPage(taskId, Math.max(fromLine, 1), limit + 1, parseLevel(level));
+        boolean hasMore = lines.size() > limit;
+        if (hasMore) {
+            lines = lines.subList(0, limit);
+        }
+        return new TaskLogPage(lines, nextLine(lines, fromLine), hasMore);
+    }
+
+    /**
+     * 读取最后 n 行日志
+     * @param level 日志类型（STDOUT/STDERR/INFO/ERROR），为空表示全部
+     * @throws BusinessException 参数不合法时抛出
+     */
+    public TaskLogPage getLogTail(Long taskId, int n, String level) {
+        checkSize(n, "tail");
+        List<TaskLog> lines = taskLogDao.findTail(taskId, n, parseLevel(level));
+        return new TaskLogPage(lines, nextLine(lines, 1), false);
+    }
+
+    /**
+     * 把任务日志按页读出并写入输出流（纯文本，每行一条），内存占用只与页大小有关
+     */
+    public void writeLogs(Long taskId, String level, OutputStream outputStream) throws IOException {
+        LogTypeEnum type = parseLevel(level);
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        long from = 1;
+        while (true) {
+            List<TaskLog> lines = taskLogDao.findPage(taskId, from, DOWNLOAD_PAGE_SIZE, type);
+            for (TaskLog line : lines) {
+                writer.write(line.getLogTime() == null ? "" : LOG_TIME_FORMAT.format(line.getLogTime()));
+                writer.write(" [");
+                writer.write(line.getLogType());
+                writer.write("] ");
+                writer.write(line.getLogContent());
+                writer.write('\n');
+            }
+            writer.flush();
+            if (lines.size() < DOWNLOAD_PAGE_SIZE) {
+                return;
+            }
+            from = lines.get(lines.size() - 1).getId() + 1;
+        }
+    }
+
+    private static long nextLine(List<TaskLog> lines, long fromLine) {
+        return lines.isEmpty() ? fromLine : lines.get(lines.size() - 1).getId() + 1;
+    }
+
+    private static void checkSize(int size, String name) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BusinessException(name + " 必须在 1~" + MAX_PAGE_SIZE + " 之间");
+        }
+    }
+
+    private static LogTypeEnum parseLevel(String level) {
+        if (level == null || level.isBlank()) {
+            return null;
+        }
+        try {
+            return LogTypeEnum.valueOf(level.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("不支持的日志类型: " + level);
+        }
+    }
+
+    private void appendSystemLog(Long taskId, LogTypeEnum type, String content) {
+        taskLogDao.appendBlocking(new TaskLog(null, taskId, type.name(), content, LocalDateTime.now()),
+                SYSTEM_LOG_OFFER_TIMEOUT_MS);
+    }
+}
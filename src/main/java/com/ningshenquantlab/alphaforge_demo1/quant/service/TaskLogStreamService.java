@@ -0,0 +1,269 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.service;
+//任务日志实时推送服务
+
+import com.ningshenquantlab.alphaforge_demo1.executor.OutputLine;
+import com.ningshenquantlab.alphaforge_demo1.executor.OutputListener;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 任务日志实时推送服务（Server-Sent Events）
+ *
+ * 输出行直接来自进程内的 OutputCollector，不查询数据库：
+ * - 每个运行中的任务有一个广播环形缓冲区（task.log.stream-buffer-lines 行），同一任务的所有观看者共享这一份数据
+ * - 生产者（输出抽取线程）只把行放进环形缓冲区，不感知订阅者，永远不会被订阅者阻塞
+ * - logStreamScheduler 每隔 task.log.stream-interval-ms 给每个订阅者发送其游标之后的新行（一批一个事件）；
+ *   同一订阅者同时最多只有一个发送在进行，慢订阅者跟不上时被环形缓冲区甩开，
+ *   下次发送时先收到 skipped 事件（跳过的行数），再从缓冲区最旧的行继续
+ *
+ * 事件格式：
+ * - log：data 为 OutputLine 数组，id 为该批最后一行在本任务中的位置，断线重连时浏览器通过 Last-Event-ID 续传
+ * - skipped：data 为跳过的行数
+ * - end：data 为任务最终状态，之后连接关闭
+ */
+@Slf4j
+@Service
+public class TaskLogStreamService implements OutputListener {
+
+    // 每个事件最多携带的行数
+    private static final int MAX_LINES_PER_EVENT = 500;
+
+    private final ScheduledExecutorService scheduler;
+    private final int bufferLines;
+    private final long intervalMillis;
+    private final long timeoutMillis;
+    private final long heartbeatNanos;
+
+    private final ConcurrentMap<Long, Broadcast> broadcasts = new ConcurrentHashMap<>();
+    // 被同一任务的新一次执行替换掉的已结束广播，订阅者收完剩余的行后丢弃
+    private final Queue<Broadcast> retired = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public TaskLogStreamService(@Qualifier("logStreamScheduler") ScheduledExecutorService scheduler,
+                                @Value("${task.log.stream-buffer-lines:2000}") int bufferLines,
+                                @Value("${task.log.stream-interval-ms:200}") long intervalMillis,
+                                @Value("${task.log.stream-timeout-ms:1800000}") long timeoutMillis,
+                                @Value("${task.log.stream-heartbeat-ms:15000}") long heartbeatMillis) {
+        this.scheduler = scheduler;
+        this.bufferLines = bufferLines;
+        this.intervalMillis = intervalMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::dispatch, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 任务开始执行前调用，创建广播缓冲区
+     * 上一次执行的广播已结束、但还没被 dispatch 移除（如手动重试紧跟在结束之后，或慢订阅者还在收剩余的行）时换成新的，
+     * 否则新的输出会被已结束的广播丢弃，新订阅者也会立即收到上一次的 end 事件
+     */
+    public void open(Long taskId) {
+        broadcasts.compute(taskId, (id, existing) -> {
+            if (existing != null && !existing.isFinished()) {
+                return existing;
+            }
+            if (existing != null) {
+                retired.add(existing);
+            }
+            return new Broadcast(bufferLines);
+        });
+    }
+
+    /**
+     * 任务结束后调用：订阅者收完剩余的行后收到 end 事件，连接关闭
+     * @param status 任务最终状态
+     */
+    public void complete(Long taskId, String status) {
+        Broadcast broadcast = broadcasts.get(taskId);
+        if (broadcast != null) {
+            broadcast.finish(status);
+        }
+    }
+
+    @Override
+    public void onLine(Long taskId, OutputLine line) {
+        // 只有 open 过的任务才有广播缓冲区，临时任务和已结束任务的迟到输出直接忽略
+        Broadcast broadcast = broadcasts.get(taskId);
+        if (broadcast != null) {
+            broadcast.append(line);
+        }
+    }
+
+    /**
+     * 订阅任务输出
+     * @param lastEventId 断线重连时浏览器带上的 Last-Event-ID，从其后一行继续；为空时从缓冲区中最旧的行开始
+     * @param currentStatus 任务当前状态，任务不在运行时直接发送 end 事件
+     */
+    public SseEmitter subscribe(Long taskId, Long lastEventId, String currentStatus) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Broadcast broadcast = broadcasts.get(taskId);
+        if (broadcast == null) {
+            try {
+                emitter.send(SseEmitter.event().name("end").data(currentStatus));
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+            return emitter;
+        }
+
+        Subscriber subscriber = new Subscriber(emitter, lastEventId == null ? 0 : lastEventId + 1);
+        broadcast.subscribers.add(subscriber);
+        emitter.onCompletion(() -> broadcast.subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> broadcast.subscribers.remove(subscriber));
+        log.debug("订阅任务日志: taskId={}, 订阅者数={}", taskId, broadcast.subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * 当前订阅者总数
+     */
+    public int subscriberCount() {
+        return broadcasts.values().stream().mapToInt(b -> b.subscribers.size()).sum()
+                + retired.stream().mapToInt(b -> b.subscribers.size()).sum();
+    }
+
+    /**
+     * 定时分发：给每个空闲的订阅者安排一次发送；已结束且没有订阅者的广播被移除
+     */
+    private void dispatch() {
+        for (var entry : broadcasts.entrySet()) {
+            Broadcast broadcast = entry.getValue();
+            if (broadcast.isFinished() && broadcast.subscribers.isEmpty()) {
+                broadcasts.remove(entry.getKey(), broadcast);
+                continue;
+            }
+            schedule(broadcast);
+        }
+        retired.removeIf(broadcast -> broadcast.subscribers.isEmpty());
+        for (Broadcast broadcast : retired) {
+            schedule(broadcast);
+        }
+    }
+
+    private void schedule(Broadcast broadcast) {
+        for (Subscriber subscriber : broadcast.subscribers) {
+            if (subscriber.sending.compareAndSet(false, true)) {
+                scheduler.execute(() -> deliver(broadcast, subscriber));
+            }
+        }
+    }
+
+    private void deliver(Broadcast broadcast, Subscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter;
+        try {
+            Batch batch = broadcast.read(subscriber.cursor, MAX_LINES_PER_EVENT);
+            long now = System.nanoTime();
+            if (batch.skipped > 0) {
+                emitter.send(SseEmitter.event().name("skipped").data(batch.skipped));
+            }
+            if (!batch.lines.isEmpty()) {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(batch.next - 1))
+                        .name("log")
+                        .data(batch.lines, MediaType.APPLICATION_JSON));
+                subscriber.lastSendNanos = now;
+            }
+            subscriber.cursor = batch.next;
+            if (batch.status != null && batch.next >= batch.total) {
+                emitter.send(SseEmitter.event().name("end").data(batch.status));
+                broadcast.subscribers.remove(subscriber);
+                emitter.complete();
+            } else if (now - subscriber.lastSendNanos >= heartbeatNanos) {
+                // 心跳，防止代理因长时间无数据断开连接
+                emitter.send(SseEmitter.event().comment("ping"));
+                subscriber.lastSendNanos = now;
+            }
+        } catch (Exception e) {
+            // 客户端已断开
+            broadcast.subscribers.remove(subscriber);
+            log.debug("任务日志订阅者断开: {}", e.getMessage());
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    /**
+     * 单个任务的广播环形缓冲区
+     */
+    private static final class Broadcast {
+        private final OutputLine[] ring;
+        private final Queue<Subscriber> subscribers = new ConcurrentLinkedQueue<>();
+        private long total;      // 累计写入的行数，也是下一行的位置
+        private String status;   // 任务结束后的最终状态
+
+        private Broadcast(int capacity) {
+            this.ring = new OutputLine[capacity];
+        }
+
+        private synchronized void append(OutputLine line) {
+            if (status != null) {
+                return;
+            }
+            ring[(int) (total % ring.length)] = line;
+            total++;
+        }
+
+        private synchronized void finish(String status) {
+            this.status = status;
+        }
+
+        private synchronized boolean isFinished() {
+            return status != null;
+        }
+
+        /**
+         * 读取从 cursor 开始的最多 max 行；cursor 早于缓冲区中最旧的行时跳到最旧的行
+         */
+        private synchronized Batch read(long cursor, int max) {
+            long oldest = Math.max(0, total - ring.length);
+            if (cursor > total) {
+                // Last-Event-ID 来自服务重启之前，已无法对应，从头开始
+                cursor = oldest;
+            }
+            long from = Math.max(cursor, oldest);
+            long to = Math.min(total, from + max);
+            List<OutputLine> lines = new ArrayList<>((int) Math.max(0, to - from));
+            for (long i = from; i < to; i++) {
+                lines.add(ring[(int) (i % ring.length)]);
+            }
+            return new Batch(lines, Math.max(0, oldest - cursor), Math.max(to, cursor), total, status);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long cursor;
+        private volatile long lastSendNanos = System.nanoTime();
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+
+    private record Batch(List<OutputLine> lines, long skipped, long next, long total, String status) {
+    }
+}
@@ -1,4 +1,814 @@
 package com.ningshenquantlab.alphaforge_demo1.quant.service;
 //任务管理服务
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ningshenquantlab.alphaforge_demo1.async.QueuedTask;
+import com.ningshenquantlab.alphaforge_demo1.async.TaskQueue;
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskStatusEnum;
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
+import com.ningshenquantlab.alphaforge_demo1.exception.ResourceNotFoundException;
+import com.ningshenquantlab.alphaforge_demo1.executor.ExecutionResult;
+import com.ningshenquantlab.alphaforge_demo1.executor.ProcessManager;
+import com.ningshenquantlab.alphaforge_demo1.monitor.TaskMonitor;
+import com.ningshenquantlab.alphaforge_demo1.executor.PythonExecutor;
+import com.ningshenquantlab.alphaforge_demo1.quant.dao.TaskRecordDao;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskAttempt;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskRecord;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 任务管理服务
+ * 负责 task_record 的生命周期：创建（PENDING）-> 入队 -> 调度执行（RUNNING）-> 结束回写，以及取消
+ * 任务由 TaskQueue 按类型、优先级排队，由 AsyncTaskExecutor 的调度线程出队后调用 start 执行
+ *
+ * 状态机：所有状态变更都是比较并设置（见 TaskStatusEnum.canTransitionTo 和 TaskRecordDao），并记入 task_state_journal。
+ * 先持久化状态再执行动作（RUNNING 之后才启动进程，CANCELLED 之后才结束进程），独立进程启动后记录 PID，
+ * 服务重启时由 recoverRunning 根据 PID 接管仍在运行的进程或回收已退出的任务；常驻进程执行的任务不记录 PID，重启后重新排队
+ *
+ * 取消运行中的任务时终止整棵进程树（见 ProcessManager），执行槽位立即释放给排队中的任务，不等进程在宽限期内退出；
+ * 已产生的日志立即落库，进程树已消耗的 CPU 时间记入 task_record.cpu_time_ms
+ *
+ * 自动重试：进程执行失败且 TaskMonitor 判定可重试时，任务直接 RUNNING -> PENDING 并记录下次重试时间，
+ * 不进入终态、不通知 TaskFinishedListener（分片汇总等只看到最终结果），到期后由 TaskMonitor 重新入队；
+ * 每次执行（含重试）都追加一条 task_attempt
+ *
+ * 相同任务合并（single-flight）：调用方用 dedupKey（任务类型 + 脚本 + 参数的摘要）提交时，
+ * 已有相同的任务在排队或执行中则直接返回该任务，不再创建新任务、启动新进程；任务结束后才允许再次提交
+ */
+@Slf4j
+@Service
 public class TaskService {
+
+    // 判断 PID 是否被复用时允许的进程启动时间误差（毫秒）
+    private static final long PID_START_TOLERANCE_MS = 1000;
+
+    private final TaskRecordDao taskRecordDao;
+    private final TaskLogService taskLogService;
+    private final TaskLogStreamService taskLogStreamService;
+    private final PythonExecutor pythonExecutor;
+    private final ProcessManager processManager;
+    private final TaskQueue taskQueue;
+    private final ObjectMapper objectMapper;
+    private final TaskMonitor taskMonitor;
+    private final ObjectProvider<TaskFinishedListener> finishedListeners;
+
+    // 服务重启后接管的进程（上次服务启动、仍在运行），key 为任务ID
+    private final ConcurrentMap<Long, ProcessHandle> adoptedProcesses = new ConcurrentHashMap<>();
+
+    // 执行中的任务（含接管的进程），取消时据此提前释放槽位；等待自动重试期间不在其中
+    private final ConcurrentMap<Long, QueuedTask> runningTasks = new ConcurrentHashMap<>();
+
+    // 等待自动重试的任务（上一次执行的 QueuedTask，其 future 在重试的执行结束后完成），key 为任务ID
+    private final ConcurrentMap<Long, QueuedTask> retryWaiting = new ConcurrentHashMap<>();
+
+    // 排队或执行中的任务，key 为 dedupKey
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TaskService(TaskRecordDao taskRecordDao,
+                       TaskLogService taskLogService,
+                       TaskLogStreamService taskLogStreamService,
+                       PythonExecutor pythonExecutor,
+                       ProcessManager processManager,
+                       TaskQueue taskQueue,
+                       ObjectMapper objectMapper,
+                       TaskMonitor taskMonitor,
+                       ObjectProvider<TaskFinishedListener> finishedListeners) {
+        this.taskRecordDao = taskRecordDao;
+        this.taskLogService = taskLogService;
+        this.taskLogStreamService = taskLogStreamService;
+        this.pythonExecutor = pythonExecutor;
+        this.processManager = processManager;
+        this.taskQueue = taskQueue;
+        this.objectMapper = objectMapper;
+        this.taskMonitor = taskMonitor;
+        this.finishedListeners = finishedListeners;
+    }
+
+    /**
+     * 创建任务记录（PENDING），脚本参数一并持久化，服务重启后可以重新入队
+     * @param record 由调用方填好任务名、类型、命令、参数、优先级、脚本名等字段，插入后回填ID
+     * @param args 脚本参数
+     */
+    public TaskRecord createTask(TaskRecord record, List<String> args) {
+        record.setStatus(TaskStatusEnum.PENDING.name());
+        record.setScriptArgs(toJson(args));
+        taskRecordDao.insert(record);
+        log.info("创建任务: taskId={}, type={}, priority={}, name={}",
+                record.getId(), record.getTaskType(), record.getPriority(), record.getTaskName());
+        return record;
+    }
+
+    /**
+     * 相同任务合并提交：key 相同的任务已在排队或执行中时返回该任务（attached=true），否则调用 starter 创建并提交
+     * 同时到达的相同请求只有一个会调用 starter，其余等待它创建完任务记录后得到同一个任务
+     * @param key dedupKey 的结果
+     * @param starter 创建并提交任务，返回任务记录和结束 Future
+     */
+    public Submission submitOnce(String key, Supplier<Submission> starter) {
+        InFlight mine = new InFlight();
+        InFlight existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                Submission submission = existing.submission.join();
+                log.info("合并到执行中的相同任务: taskId={}", submission.record().getId());
+                return new Submission(submission.record(), submission.future(), true);
+            } catch (CompletionException e) {
+                // 对方创建任务失败，按同样的方式失败
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        Submission submission;
+        try {
+            submission = starter.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.submission.completeExceptionally(e);
+            throw e;
+        }
+        mine.submission.complete(submission);
+        submission.future().whenComplete((result, ex) -> inFlight.remove(key, mine));
+        return submission;
+    }
+
+    /**
+     * 相同任务的判定键：任务类型 + 脚本名 + 各进程的参数列表，取 SHA-256
+     * 参数由 CommandBuilder 按固定顺序生成，不同请求只要实际执行的命令相同就得到相同的键
+     * @param argLists 每个进程一组参数（分片执行时有多组）
+     */
+    public static String dedupKey(TaskTypeEnum taskType, String scriptName, List<List<String>> argLists) {
+        StringBuilder canonical = new StringBuilder(taskType.name()).append('\n').append(scriptName);
+        for (List<String> args : argLists) {
+            canonical.append('\n');
+            for (String arg : args) {
+                // 参数内不会出现 \0，用作分隔符不会产生歧义
+                canonical.append(arg).append('\0');
+            }
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 执行中的任务数（按 dedupKey 合并的）
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * 创建不需要执行的任务（如所需结果已全部存在），直接置为 SUCCESS
+     * @param message 写入任务日志的说明
+     */
+    public TaskRecord createCompletedTask(TaskRecord record, String message) {
+        createTask(record, List.of());
+        transition(record.getId(), TaskStatusEnum.PENDING, TaskStatusEnum.SUCCESS, LocalDateTime.now(), 0, null, null);
+        taskLogService.info(record.getId(), message);
+        return getTask(record.getId());
+    }
+
+    /**
+     * 创建父任务（分片执行）：父任务本身不启动进程，不入队，创建后直接置为 RUNNING，
+     * 由子任务全部结束后调用 finishParentTask 置为终态
+     */
+    public TaskRecord createParentTask(TaskRecord record) {
+        createTask(record, List.of());
+        taskRecordDao.markRunning(record.getId(), LocalDateTime.now());
+        return getTask(record.getId());
+    }
+
+    /**
+     * 父任务进入终态
+     * @return 是否更新成功，父任务已处于终态（如已被取消）时返回 false
+     */
+    public boolean finishParentTask(Long taskId, TaskStatusEnum status, String errorMessage) {
+        TaskRecord record = getTask(taskId);
+        return transition(taskId, TaskStatusEnum.RUNNING, status, LocalDateTime.now(),
+                elapsedSeconds(record.getStartTime()), null, errorMessage);
+    }
+
+    /**
+     * 已失败的父任务重新置为 RUNNING（重试失败分片时）
+     * @return 是否更新成功，父任务仍在运行时返回 false
+     */
+    public boolean reopenParentTask(Long taskId) {
+        TaskStatusEnum current = TaskStatusEnum.valueOf(getTask(taskId).getStatus());
+        return current.canTransitionTo(TaskStatusEnum.RUNNING) && current.isTerminal()
+                && taskRecordDao.reopen(taskId, current) > 0;
+    }
+
+    /**
+     * 提交到任务队列
+     * @return 执行结果 Future，任务结束且回写完成后完成；排队期间被取消时结果为 null
+     */
+    public CompletableFuture<ExecutionResult> submit(TaskRecord record, List<String> args) {
+        QueuedTask task = new QueuedTask(record.getId(), TaskTypeEnum.valueOf(record.getTaskType()),
+                record.getPriority(), record.getScriptName(), args, record.getExpectedMemoryMb());
+        // 排队期间就可以订阅实时输出
+        taskLogStreamService.open(record.getId());
+        taskQueue.offer(task);
+        return task.getFuture();
+    }
+
+    /**
+     * delayMillis 后再提交到任务队列（服务重启时恢复等待自动重试的任务）
+     * @return 执行结果 Future，语义同 submit
+     */
+    private CompletableFuture<ExecutionResult> submitLater(TaskRecord record, List<String> args, long delayMillis) {
+        QueuedTask waiting = new QueuedTask(record.getId(), TaskTypeEnum.valueOf(record.getTaskType()),
+                record.getPriority(), record.getScriptName(), args, record.getExpectedMemoryMb());
+        taskLogStreamService.open(record.getId());
+        retryWaiting.put(record.getId(), waiting);
+        taskMonitor.schedule(record.getId(), delayMillis, () -> resubmit(record.getId()));
+        return waiting.getFuture();
+    }
+
+    /**
+     * 手动重试失败、超时或已取消的任务：任务记录置回 PENDING（清零自动重试次数）后重新入队，执行记录继续累加
+     * 分片任务请通过父任务重试失败的分片
+     * @return 重试的任务；已有相同的任务在执行中时返回该任务
+     * @throws BusinessException 任务不能重试时抛出
+     */
+    public TaskRecord retryTask(Long taskId) {
+        TaskRecord record = getTask(taskId);
+        if (record.getScriptName() == null || record.getParentTaskId() != null) {
+            throw new BusinessException("分片任务请通过父任务重试失败的分片: " + taskId);
+        }
+        TaskStatusEnum status = TaskStatusEnum.valueOf(record.getStatus());
+        if (!status.isTerminal() || status == TaskStatusEnum.SUCCESS) {
+            throw new BusinessException("只能重试失败、超时或已取消的任务: " + taskId + "，当前状态: " + status);
+        }
+        List<String> args = readArgs(record);
+        String key = dedupKey(TaskTypeEnum.valueOf(record.getTaskType()), record.getScriptName(), List.of(args));
+        Submission submission = submitOnce(key, () -> {
+            if (taskRecordDao.reopenPending(taskId, status) == 0) {
+                throw new BusinessException("任务状态已变化，请刷新后再试: " + taskId);
+            }
+            taskLogService.info(taskId, "手动重试");
+            TaskRecord reopened = getTask(taskId);
+            return new Submission(reopened, submit(reopened, args), false);
+        });
+        log.info("手动重试任务: taskId={}, 执行的任务={}", taskId, submission.record().getId());
+        return submission.record();
+    }
+
+    /**
+     * 查询任务的执行记录（每次启动进程一条，含自动重试）
+     */
+    public List<TaskAttempt> getAttempts(Long taskId) {
+        getTask(taskId);
+        return taskRecordDao.findAttempts(taskId);
+    }
+
+    /**
+     * 执行已出队的任务（由调度线程调用，此时已占用执行槽位）
+     * 进程启动前先把状态置为 RUNNING，如果任务在出队后被取消则不再启动
+     */
+    public void start(QueuedTask task) {
+        Long taskId = task.getTaskId();
+        if (taskRecordDao.markRunning(taskId, LocalDateTime.now()) == 0) {
+            log.info("任务已不是待执行状态，跳过: taskId={}", taskId);
+            taskQueue.release(task);
+            TaskRecord record = getTask(taskId);
+            taskLogStreamService.complete(taskId, record.getStatus());
+            notifyFinished(record, null);
+            task.getFuture().complete(null);
+            return;
+        }
+        runningTasks.put(taskId, task);
+        taskLogService.info(taskId, "任务开始执行");
+        CompletableFuture<ExecutionResult> future;
+        try {
+            future = pythonExecutor.executeAsync(taskId, task.getScriptName(), task.getArgs());
+            if (!recordPid(taskId)) {
+                // 置为 RUNNING 之后、进程登记之前被取消，取消时还找不到进程，这里补上终止
+                log.info("任务在进程启动期间被取消，终止进程: taskId={}", taskId);
+                pythonExecutor.cancelTask(taskId);
+            }
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, ex) -> {
+            boolean retrying = onFinished(task, result, ex);
+            runningTasks.remove(taskId, task);
+            taskQueue.release(task);
+            if (retrying) {
+                // 结束 Future 由重试的那次执行完成
+                return;
+            }
+            if (ex != null) {
+                task.getFuture().completeExceptionally(ex);
+            } else {
+                task.getFuture().complete(result);
+            }
+        });
+    }
+
+    /**
+     * 执行中的任务：已启动（或服务重启后接管）、进程尚未退出，不含等待自动重试的任务
+     * 准入控制据此估算运行中任务还会占用的内存
+     */
+    public Collection<QueuedTask> getRunningTasks() {
+        return Collections.unmodifiableCollection(runningTasks.values());
+    }
+
+    /**
+     * 服务启动时处理 task_record 中仍为 RUNNING 的任务（上次服务退出时正在执行），必须在 recoverPending 之前调用：
+     * - 记录的 PID 仍在运行且进程启动时间一致：接管该进程（占用执行槽位、可取消），进程退出后置为 FAILED（无法取得退出码）
+     * - 没有记录 PID（进程尚未启动，或由常驻进程执行、见 recordPid）：批量置回 PENDING，随后由 recoverPending 重新入队
+     * - 进程已不存在：批量置为 FAILED
+     * 只按 status 索引查询一次，状态更新批量执行，几千条记录在秒级完成
+     */
+    public void recoverRunning() {
+        long begin = System.nanoTime();
+        List<Long> requeue = new ArrayList<>();
+        List<TaskRecord> dead = new ArrayList<>();
+        int adopted = 0;
+        for (TaskRecord record : taskRecordDao.findByStatus(TaskStatusEnum.RUNNING.name())) {
+            if (record.getScriptName() == null) {
+                // 分片父任务没有进程，由子任务结束时汇总
+                continue;
+            }
+            if (record.getPid() == null) {
+                requeue.add(record.getId());
+                continue;
+            }
+            Optional<ProcessHandle> handle = ProcessHandle.of(record.getPid())
+                    .filter(ProcessHandle::isAlive)
+                    .filter(h -> sameProcess(h, record.getPidStartMillis()));
+            if (handle.isPresent()) {
+                adopt(record, handle.get());
+                adopted++;
+            } else {
+                dead.add(record);
+            }
+        }
+
+        List<Long> requeued = taskRecordDao.requeueBatch(requeue, "服务重启时任务没有独立的进程，重新排队");
+        String reason = "服务重启时进程已不存在";
+        List<Long> failed = taskRecordDao.markFinishedBatch(dead.stream().map(TaskRecord::getId).toList(),
+                TaskStatusEnum.RUNNING, TaskStatusEnum.FAILED, LocalDateTime.now(), reason);
+        Set<Long> failedIds = new HashSet<>(failed);
+        for (TaskRecord record : dead) {
+            if (failedIds.contains(record.getId())) {
+                record.setStatus(TaskStatusEnum.FAILED.name());
+                record.setErrorMessage(reason);
+                taskLogService.error(record.getId(), reason + ": pid=" + record.getPid());
+                notifyFinished(record, null);
+            }
+        }
+        log.info("运行中任务恢复完成: 接管={}, 重新排队={}, 置为失败={}, 耗时={}ms", adopted, requeued.size(), failed.size(),
+                (System.nanoTime() - begin) / 1_000_000);
+    }
+
+    /**
+     * 接管上次服务启动的、仍在运行的进程
+     * 进程的输出管道已随上次服务退出而关闭，无法再读取输出，也无法取得非子进程的退出码
+     */
+    private void adopt(TaskRecord record, ProcessHandle handle) {
+        Long taskId = record.getId();
+        TaskTypeEnum type = TaskTypeEnum.valueOf(record.getTaskType());
+        // 不经过队列，只用来记录执行槽位是否已释放
+        QueuedTask slot = new QueuedTask(taskId, type, record.getPriority(), record.getScriptName(), List.of(), null);
+        taskQueue.occupy(slot);
+        runningTasks.put(taskId, slot);
+        adoptedProcesses.put(taskId, handle);
+        taskLogService.info(taskId, "服务重启后接管运行中的进程: pid=" + handle.pid());
+        log.info("接管运行中的进程: taskId={}, pid={}", taskId, handle.pid());
+        handle.onExit().whenComplete((h, ex) -> {
+            adoptedProcesses.remove(taskId, handle);
+            runningTasks.remove(taskId, slot);
+            taskQueue.release(slot);
+            try {
+                if (transition(taskId, TaskStatusEnum.RUNNING, TaskStatusEnum.FAILED, LocalDateTime.now(),
+                        elapsedSeconds(record.getStartTime()), null, "服务重启期间运行的进程已退出，退出码未知")) {
+                    taskLogService.error(taskId, "接管的进程已退出，退出码未知");
+                }
+                taskLogService.flush(taskId);
+                notifyFinished(getTask(taskId), null);
+            } catch (RuntimeException e) {
+                log.error("回写接管任务结果失败: taskId={}", taskId, e);
+            }
+        });
+    }
+
+    /**
+     * PID 对应的是否仍是记录的那个进程（PID 可能在重启后被其他进程复用）
+     */
+    private static boolean sameProcess(ProcessHandle handle, Long pidStartMillis) {
+        if (pidStartMillis == null) {
+            return true;
+        }
+        return handle.info().startInstant()
+                .map(start -> Math.abs(start.toEpochMilli() - pidStartMillis) < PID_START_TOLERANCE_MS)
+                .orElse(false);
+    }
+
+    /**
+     * 服务启动时把 task_record 中仍为 PENDING 的任务重新入队（非子任务同时登记为执行中，参与相同任务合并）
+     * @return 重新入队的任务数
+     */
+    public int recoverPending() {
+        int recovered = 0;
+        for (TaskRecord record : taskRecordDao.findByStatus(TaskStatusEnum.PENDING.name())) {
+            if (record.getScriptName() == null || taskQueue.contains(record.getId())) {
+                continue;
+            }
+            try {
+                List<String> args = readArgs(record);
+                // 等待自动重试的任务到原定的重试时间再入队
+                long delay = record.getNextRetryTime() == null ? 0
+                        : Duration.between(LocalDateTime.now(), record.getNextRetryTime()).toMillis();
+                Supplier<CompletableFuture<ExecutionResult>> resume =
+                        () -> delay > 0 ? submitLater(record, args, delay) : submit(record, args);
+                if (record.getParentTaskId() == null) {
+                    // 重新登记为执行中，重启后的相同请求仍然合并到该任务
+                    String key = dedupKey(TaskTypeEnum.valueOf(record.getTaskType()), record.getScriptName(), List.of(args));
+                    submitOnce(key, () -> new Submission(record, resume.get(), false));
+                } else {
+                    resume.get();
+                }
+                recovered++;
+            } catch (RuntimeException e) {
+                log.error("待执行任务重新入队失败: taskId={}", record.getId(), e);
+                transition(record.getId(), TaskStatusEnum.PENDING, TaskStatusEnum.FAILED, LocalDateTime.now(),
+                        null, null, "服务重启后无法恢复任务: " + e.getMessage());
+            }
+        }
+        return recovered;
+    }
+
+    /**
+     * 根据任务ID查询
+     * @throws ResourceNotFoundException 任务不存在时抛出
+     */
+    public TaskRecord getTask(Long taskId) {
+        TaskRecord record = taskRecordDao.findById(taskId);
+        if (record == null) {
+            throw new ResourceNotFoundException("任务不存在: " + taskId);
+        }
+        return record;
+    }
+
+    /**
+     * 根据任务ID查询，优先读取内存中的任务状态缓存（见 TaskStatusCache），用于高频轮询的状态查询
+     * @throws ResourceNotFoundException 任务不存在时抛出
+     */
+    public TaskRecord getTaskCached(Long taskId) {
+        TaskRecord record = taskRecordDao.findCachedById(taskId);
+        if (record == null) {
+            throw new ResourceNotFoundException("任务不存在: " + taskId);
+        }
+        return record;
+    }
+
+    /**
+     * 查询子任务（分片执行时），同一分片重试产生的多个子任务都会返回
+     */
+    public List<TaskRecord> getChildTasks(Long parentTaskId) {
+        return taskRecordDao.findByParentId(parentTaskId);
+    }
+
+    /**
+     * 取消任务：先把状态置为 CANCELLED，再结束进程，进程结束回调不会再覆盖该状态
+     * 有子任务（分片执行）时一并取消未结束的子任务
+     * @throws ResourceNotFoundException 任务不存在时抛出
+     * @throws BusinessException 任务已结束时抛出
+     */
+    public void cancelTask(Long taskId) {
+        TaskRecord record = getTask(taskId);
+        if (!cancel(record)) {
+            throw new BusinessException("任务已结束，无法取消: " + taskId);
+        }
+        for (TaskRecord child : taskRecordDao.findByParentId(taskId)) {
+            if (!TaskStatusEnum.valueOf(child.getStatus()).isTerminal()) {
+                cancel(child);
+            }
+        }
+        log.info("取消任务: taskId={}", taskId);
+    }
+
+    /**
+     * 按读到的当前状态比较并设置为 CANCELLED，期间状态被改变（如刚被调度为 RUNNING）时重新读取再试
+     * @return 是否取消成功，任务已处于终态时返回 false
+     */
+    private boolean cancel(TaskRecord record) {
+        Long taskId = record.getId();
+        TaskRecord current = record;
+        while (true) {
+            TaskStatusEnum status = TaskStatusEnum.valueOf(current.getStatus());
+            if (status.isTerminal()) {
+                return false;
+            }
+            if (transition(taskId, status, TaskStatusEnum.CANCELLED, LocalDateTime.now(),
+                    elapsedSeconds(current.getStartTime()), null, "任务被取消")) {
+                break;
+            }
+            current = getTask(taskId);
+        }
+        long cpuMillis = -1;
+        ProcessHandle adopted = adoptedProcesses.remove(taskId);
+        if (adopted != null) {
+            // 服务重启后接管的进程，结束回调由 onExit 处理
+            cpuMillis = processManager.terminate(adopted);
+        } else if (taskQueue.cancel(taskId) || cancelRetry(taskId)) {
+            // 还在排队或等待重试，没有进程需要结束，也不会再有结束回调
+            taskLogStreamService.complete(taskId, TaskStatusEnum.CANCELLED.name());
+            notifyFinished(getTask(taskId), null);
+            log.info("取消排队中的任务: taskId={}", taskId);
+        } else {
+            cpuMillis = pythonExecutor.cancelTask(taskId);
+        }
+        QueuedTask running = runningTasks.get(taskId);
+        if (running != null) {
+            // 进程树还在宽限期内退出，执行槽位先让给排队中的任务，进程结束回调中不会重复释放
+            taskQueue.release(running);
+        }
+        if (cpuMillis >= 0) {
+            taskRecordDao.updateCpuTime(taskId, cpuMillis);
+            taskLogService.info(taskId, "任务被取消，已终止进程树，已消耗 CPU 时间 " + cpuMillis + "ms");
+        } else {
+            taskLogService.info(taskId, "任务被取消");
+        }
+        // 已产生的日志立即落库，不等进程退出
+        taskLogService.flush(taskId);
+        return true;
+    }
+
+    /**
+     * 取消等待中的自动重试，上一次执行的 future 以 null 结果完成
+     * @return 任务是否在等待重试
+     */
+    private boolean cancelRetry(Long taskId) {
+        QueuedTask waiting = retryWaiting.remove(taskId);
+        if (waiting == null) {
+            return false;
+        }
+        taskMonitor.cancel(taskId);
+        waiting.getFuture().complete(null);
+        return true;
+    }
+
+    /**
+     * 进程执行结束后回写结果
+     * @return 是否已安排自动重试（此时任务仍未结束，不通知监听器）
+     */
+    private boolean onFinished(QueuedTask task, ExecutionResult result, Throwable ex) {
+        Long taskId = task.getTaskId();
+        try {
+            TaskStatusEnum status;
+            Integer exitCode = null;
+            String errorMessage;
+            if (ex != null) {
+                status = TaskStatusEnum.FAILED;
+                errorMessage = ex.getMessage();
+            } else if (result.getLimitViolation() != null) {
+                // 超出运行时长或资源上限被终止，记录终止原因而不是脚本的报错
+                status = result.getLimitViolation().timeout() ? TaskStatusEnum.TIMEOUT : TaskStatusEnum.FAILED;
+                exitCode = result.getExitCode();
+                errorMessage = result.getLimitViolation().reason();
+            } else {
+                status = result.isSuccess() ? TaskStatusEnum.SUCCESS : TaskStatusEnum.FAILED;
+                exitCode = result.getExitCode();
+                errorMessage = result.isSuccess() ? null : failureMessage(result);
+            }
+            LocalDateTime endTime = result != null && result.getEndTime() != null ? result.getEndTime() : LocalDateTime.now();
+            Integer duration = result != null && result.getDurationMillis() != null
+                    ? (int) (result.getDurationMillis() / 1000) : null;
+            Boolean retryable = status == TaskStatusEnum.SUCCESS ? null : taskMonitor.isRetryable(result);
+            if (Boolean.TRUE.equals(retryable) && scheduleRetry(task, result, exitCode, errorMessage)) {
+                recordAttempt(taskId, status, exitCode, errorMessage, true, result);
+                taskLogService.flush(taskId);
+                return true;
+            }
+            String finalStatus = status.name();
+            if (transition(taskId, TaskStatusEnum.RUNNING, status, endTime, duration, exitCode, errorMessage)) {
+                if (status == TaskStatusEnum.SUCCESS) {
+                    taskLogService.info(taskId, "任务执行成功");
+                } else if (result != null && result.getLimitViolation() != null) {
+                    taskLogService.error(taskId, "任务被终止: " + errorMessage);
+                } else {
+                    taskLogService.error(taskId, "任务执行失败: " + errorMessage);
+                }
+            } else {
+                // 已被取消等操作先置为终态，以数据库中的状态为准
+                finalStatus = getTask(taskId).getStatus();
+            }
+            recordAttempt(taskId, TaskStatusEnum.valueOf(finalStatus), exitCode, errorMessage, retryable, result);
+            taskLogService.flush(taskId);
+            taskLogStreamService.complete(taskId, finalStatus);
+            notifyFinished(getTask(taskId), result);
+        } catch (RuntimeException e) {
+            log.error("回写任务结果失败: taskId={}", taskId, e);
+        }
+        return false;
+    }
+
+    /**
+     * 失败后安排自动重试：RUNNING -> PENDING（重试次数加一），到期后由 TaskMonitor 调用 resubmit 重新入队
+     * @return 是否已安排重试；超过重试次数、任务已被取消时返回 false
+     */
+    private boolean scheduleRetry(QueuedTask task, ExecutionResult result, Integer exitCode, String errorMessage) {
+        Long taskId = task.getTaskId();
+        TaskRecord record = getTask(taskId);
+        int retryCount = record.getRetryCount() == null ? 0 : record.getRetryCount();
+        if (!taskMonitor.shouldRetry(retryCount, result)) {
+            return false;
+        }
+        long delay = taskMonitor.backoffMillis(retryCount);
+        // 先登记再改状态：状态一变为 PENDING 就可能被取消，取消时要能找到等待中的重试
+        retryWaiting.put(taskId, task);
+        if (taskRecordDao.requeueForRetry(taskId, retryCount + 1, LocalDateTime.now().plus(Duration.ofMillis(delay)),
+                exitCode, errorMessage) == 0) {
+            retryWaiting.remove(taskId, task);
+            return false;
+        }
+        taskLogService.error(taskId, String.format("任务执行失败: %s，%d 秒后第 %d 次重试（共 %d 次）",
+                errorMessage, delay / 1000, retryCount + 1, taskMonitor.maxRetryTimes()));
+        taskMonitor.schedule(taskId, delay, () -> resubmit(taskId));
+        return true;
+    }
+
+    /**
+     * 重试到期：用新的 QueuedTask 重新入队，其结果转交给上一次执行的 future
+     */
+    private void resubmit(Long taskId) {
+        QueuedTask previous = retryWaiting.remove(taskId);
+        if (previous == null) {
+            // 等待期间已被取消
+            return;
+        }
+        QueuedTask retry = new QueuedTask(taskId, previous.getTaskType(), previous.getPriority(),
+                previous.getScriptName(), previous.getArgs(), (int) previous.getExpectedMemoryMb());
+        retry.getFuture().whenComplete((result, ex) -> {
+            if (ex != null) {
+                previous.getFuture().completeExceptionally(ex);
+            } else {
+                previous.getFuture().complete(result);
+            }
+        });
+        taskLogService.info(taskId, "重新排队，等待重试");
+        taskQueue.offer(retry);
+    }
+
+    /**
+     * 追加一条执行记录，写入失败不影响任务结果
+     */
+    private void recordAttempt(Long taskId, TaskStatusEnum status, Integer exitCode, String errorMessage,
+                               Boolean retryable, ExecutionResult result) {
+        TaskAttempt attempt = new TaskAttempt();
+        attempt.setTaskId(taskId);
+        attempt.setStatus(status.name());
+        attempt.setExitCode(exitCode);
+        attempt.setErrorMessage(status == TaskStatusEnum.SUCCESS ? null : errorMessage);
+        attempt.setRetryable(retryable);
+        if (result != null) {
+            attempt.setPid(result.getPid());
+            attempt.setStartTime(result.getStartTime());
+            attempt.setEndTime(result.getEndTime());
+            attempt.setDuration(result.getDurationMillis() == null ? null : (int) (result.getDurationMillis() / 1000));
+        }
+        try {
+            taskRecordDao.insertAttempt(attempt);
+        } catch (RuntimeException e) {
+            log.warn("记录任务执行记录失败: taskId={}", taskId, e);
+        }
+    }
+
+    /**
+     * 状态变更（比较并设置），只有任务当前仍为 from 时才会更新
+     * @return 是否更新成功
+     * @throws IllegalStateException from -> to 不是合法的状态变更时抛出
+     */
+    private boolean transition(Long taskId, TaskStatusEnum from, TaskStatusEnum to, LocalDateTime endTime,
+                               Integer duration, Integer exitCode, String message) {
+        if (!from.canTransitionTo(to)) {
+            throw new IllegalStateException("非法的任务状态变更: " + from + " -> " + to);
+        }
+        return taskRecordDao.markFinished(taskId, from, to, endTime, duration, exitCode, message) > 0;
+    }
+
+    /**
+     * 进程启动后记录 PID 和进程启动时间，服务重启后据此判断进程是否仍在运行
+     * 常驻进程执行的任务不记录：工作进程由多个任务共享，它仍在运行或已退出都不能说明任务的状态，
+     * 服务重启后这类任务按没有 PID 重新排队
+     * @return 任务是否仍为 RUNNING，已被取消时返回 false；没有PID或记录失败时返回 true
+     */
+    private boolean recordPid(Long taskId) {
+        TaskStatus status = pythonExecutor.getTaskStatus(taskId);
+        if (status == null) {
+            return true;
+        }
+        if (status.isPooled()) {
+            TaskRecord record = taskRecordDao.findById(taskId);
+            return record != null && TaskStatusEnum.RUNNING.name().equals(record.getStatus());
+        }
+        if (status.getPid() == null) {
+            return true;
+        }
+        long pid = status.getPid();
+        Long startMillis = ProcessHandle.of(pid)
+                .flatMap(handle -> handle.info().startInstant())
+                .map(Instant::toEpochMilli)
+                .orElse(null);
+        try {
+            return taskRecordDao.updatePid(taskId, pid, startMillis) > 0;
+        } catch (RuntimeException e) {
+            log.warn("记录任务进程PID失败: taskId={}, pid={}", taskId, pid, e);
+            return true;
+        }
+    }
+
+    private void notifyFinished(TaskRecord record, ExecutionResult result) {
+        finishedListeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onTaskFinished(record, result);
+            } catch (RuntimeException e) {
+                log.error("任务结束回调失败: taskId={}, listener={}", record.getId(), listener.getClass().getSimpleName(), e);
+            }
+        });
+    }
+
+    /**
+     * 失败原因：优先使用执行器给出的错误信息，否则取 stderr 最后一行
+     */
+    private String failureMessage(ExecutionResult result) {
+        if (result.getErrorMessage() != null) {
+            return result.getErrorMessage();
+        }
+        String stderr = result.getStderr();
+        if (stderr != null && !stderr.isBlank()) {
+            String[] lines = stderr.strip().split("\n");
+            return lines[lines.length - 1];
+        }
+        return "退出码: " + result.getExitCode();
+    }
+
+    private List<String> readArgs(TaskRecord record) {
+        try {
+            return objectMapper.readValue(record.getScriptArgs(), new TypeReference<List<String>>() {});
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("任务参数解析失败: " + e.getMessage());
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("任务参数序列化失败: " + e.getMessage());
+        }
+    }
+
+    private Integer elapsedSeconds(LocalDateTime startTime) {
+        if (startTime == null) {
+            return null;
+        }
+        return (int) Duration.between(startTime, LocalDateTime.now()).getSeconds();
+    }
+
+    /**
+     * 已提交的任务
+     * @param record 任务记录
+     * @param future 任务结束（分片执行时为所有子任务结束）后完成
+     * @param attached 是否合并到了已有的相同任务
+     */
+    public record Submission(TaskRecord record, CompletableFuture<?> future, boolean attached) {
+    }
+
+    private static final class InFlight {
+        // 发起方创建完任务记录并提交后完成
+        private final CompletableFuture<Submission> submission = new CompletableFuture<>();
+    }
 }
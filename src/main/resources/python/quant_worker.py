@@ -0,0 +1,143 @@
+# -*- coding: utf-8 -*-
+"""
+常驻 Python 工作进程（由 Java 端 PythonWorkerPool 启动，不要手动运行）
+
+用法：python -u quant_worker.py <目标脚本绝对路径>
+
+启动时先以非 __main__ 身份执行一遍目标脚本，把 pandas/numpy/quantification_stock 等依赖导入进 sys.modules，
+之后循环从 stdin 读取任务帧，每个任务以 __main__ 身份重新执行目标脚本。
+依赖已经缓存在 sys.modules 中，所以任务不再有解释器启动和 import 的开销。
+
+帧格式：4 字节大端长度（含类型字节） + 1 字节类型 + 负载
+  Java -> Python:  J 任务，负载为 JSON：{"args": [...]}
+  Python -> Java:  R 预加载完成
+                   O 任务 stdout 数据（UTF-8）
+                   E 任务 stderr 数据（UTF-8）
+                   D 任务结束，负载为退出码文本
+stdin 关闭（EOF）时进程正常退出。
+"""
+import io
+import json
+import os
+import runpy
+import struct
+import sys
+import traceback
+
+FRAME_HEADER = struct.Struct(">IB")
+FLUSH_THRESHOLD = 8192
+
+
+class FrameStream(io.TextIOBase):
+    """把 print/write 的文本按行打包成帧发回 Java 端"""
+
+    def __init__(self, send, kind):
+        super().__init__()
+        self._send = send
+        self._kind = kind
+        self._pending = []
+        self._size = 0
+
+    @property
+    def encoding(self):
+        return "utf-8"
+
+    def isatty(self):
+        return False
+
+    def writable(self):
+        return True
+
+    def write(self, s):
+        if not s:
+            return 0
+        self._pending.append(s)
+        self._size += len(s)
+        if "\n" in s or self._size >= FLUSH_THRESHOLD:
+            self.flush()
+        return len(s)
+
+    def flush(self):
+        if self._pending:
+            data = "".join(self._pending).encode("utf-8", errors="replace")
+            self._pending = []
+            self._size = 0
+            self._send(self._kind, data)
+
+
+def read_exact(stream, size):
+    chunks = []
+    while size > 0:
+        chunk = stream.read(size)
+        if not chunk:
+            return None
+        chunks.append(chunk)
+        size -= len(chunk)
+    return b"".join(chunks)
+
+
+def exit_code_of(code):
+    if code is None:
+        return 0
+    if isinstance(code, int):
+        return code
+    print(code, file=sys.stderr)
+    return 1
+
+
+def run_job(script, args, send):
+    out = FrameStream(send, ord("O"))
+    err = FrameStream(send, ord("E"))
+    saved = sys.argv, sys.stdout, sys.stderr
+    sys.argv = [script] + [str(a) for a in args]
+    sys.stdout, sys.stderr = out, err
+    code = 0
+    try:
+        runpy.run_path(script, run_name="__main__")
+    except SystemExit as e:
+        code = exit_code_of(e.code)
+    except BaseException:
+        traceback.print_exc()
+        code = 1
+    finally:
+        out.flush()
+        err.flush()
+        sys.argv, sys.stdout, sys.stderr = saved
+    return code
+
+
+def main():
+    script = os.path.abspath(sys.argv[1])
+    # 复制一份原始 stdout 作为帧通道，再把 fd 1 指向 stderr，防止 C 扩展直接写 fd 1 破坏帧
+    channel = os.fdopen(os.dup(1), "wb", buffering=0)
+    os.dup2(2, 1)
+    sys.stdout = sys.stderr
+    stdin = sys.stdin.buffer
+    sys.path.insert(0, os.path.dirname(script))
+
+    def send(kind, payload=b""):
+        channel.write(FRAME_HEADER.pack(len(payload) + 1, kind) + payload)
+
+    try:
+        runpy.run_path(script, run_name="__quant_worker_preload__")
+    except BaseException:
+        traceback.print_exc()
+    send(ord("R"))
+
+    while True:
+        header = read_exact(stdin, FRAME_HEADER.size)
+        if header is None:
+            break
+        length, kind = FRAME_HEADER.unpack(header)
+        payload = read_exact(stdin, length - 1) if length > 1 else b""
+        if payload is None:
+            break
+        if kind != ord("J"):
+            continue
+        job = json.loads(payload.decode("utf-8"))
+        code = run_job(script, job.get("args", []), send)
+        send(ord("D"), str(code).encode("ascii"))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,245 @@
+package com.ningshenquantlab.alphaforge_demo1.async;
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.TaskTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.config.PythonConfig;
+import com.ningshenquantlab.alphaforge_demo1.config.TaskQueueConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskQueueTest {
+
+    private long nextTaskId = 1;
+
+    @Test
+    void dequeueRatioFollowsLaneWeight() {
+        TaskQueue queue = queue(10, Map.of(TaskTypeEnum.FEATURE_CALC, lane(3, null), TaskTypeEnum.DATA_FETCH, lane(1, null)));
+        for (int i = 0; i < 100; i++) {
+            queue.offer(task(TaskTypeEnum.FEATURE_CALC, 5));
+            queue.offer(task(TaskTypeEnum.DATA_FETCH, 5));
+        }
+
+        Map<TaskTypeEnum, Integer> counts = new EnumMap<>(TaskTypeEnum.class);
+        for (int i = 0; i < 80; i++) {
+            QueuedTask task = queue.poll();
+            counts.merge(task.getTaskType(), 1, Integer::sum);
+            // 立即释放，只考察权重，不受并发上限影响
+            queue.release(task);
+        }
+
+        assertEquals(60, (int) counts.get(TaskTypeEnum.FEATURE_CALC));
+        assertEquals(20, (int) counts.get(TaskTypeEnum.DATA_FETCH));
+    }
+
+    @Test
+    void idleLaneDoesNotAccumulateCredit() {
+        TaskQueue queue = queue(10, Map.of(TaskTypeEnum.FEATURE_CALC, lane(1, null), TaskTypeEnum.DATA_FETCH, lane(1, null)));
+        for (int i = 0; i < 20; i++) {
+            queue.offer(task(TaskTypeEnum.FEATURE_CALC, 5));
+        }
+        for (int i = 0; i < 10; i++) {
+            queue.release(queue.poll());
+        }
+
+        // DATA_FETCH 空闲期间不积累额度，有任务后与 FEATURE_CALC 交替出队
+        for (int i = 0; i < 10; i++) {
+            queue.offer(task(TaskTypeEnum.DATA_FETCH, 5));
+        }
+        int dataFetch = 0;
+        for (int i = 0; i < 10; i++) {
+            QueuedTask task = queue.poll();
+            if (task.getTaskType() == TaskTypeEnum.DATA_FETCH) {
+                dataFetch++;
+            }
+            queue.release(task);
+        }
+        assertEquals(5, dataFetch);
+    }
+
+    @Test
+    void higherPriorityFirstWithinLane() {
+        TaskQueue queue = queue(10, Map.of());
+        QueuedTask low = task(TaskTypeEnum.FEATURE_CALC, 1);
+        QueuedTask high = task(TaskTypeEnum.FEATURE_CALC, 9);
+        QueuedTask highLater = task(TaskTypeEnum.FEATURE_CALC, 9);
+        queue.offer(low);
+        queue.offer(high);
+        queue.offer(highLater);
+
+        assertSame(high, queue.poll());
+        assertSame(highLater, queue.poll());
+        assertSame(low, queue.poll());
+    }
+
+    @Test
+    void fullModelTrainLaneDoesNotStarveFeatureCalc() {
+        TaskQueue queue = queue(4, Map.of(TaskTypeEnum.MODEL_TRAIN, lane(10, 2), TaskTypeEnum.FEATURE_CALC, lane(1, null)));
+        for (int i = 0; i < 10; i++) {
+            queue.offer(task(TaskTypeEnum.MODEL_TRAIN, 9));
+        }
+        for (int i = 0; i < 5; i++) {
+            queue.offer(task(TaskTypeEnum.FEATURE_CALC, 1));
+        }
+
+        Map<TaskTypeEnum, Integer> counts = new EnumMap<>(TaskTypeEnum.class);
+        QueuedTask task;
+        while ((task = queue.poll()) != null) {
+            counts.merge(task.getTaskType(), 1, Integer::sum);
+        }
+
+        assertEquals(2, (int) counts.get(TaskTypeEnum.MODEL_TRAIN));
+        assertEquals(2, (int) counts.get(TaskTypeEnum.FEATURE_CALC));
+        assertEquals(4, queue.runningCount());
+        assertEquals(2, queue.runningCount(TaskTypeEnum.MODEL_TRAIN));
+        assertEquals(8, queue.pendingCount(TaskTypeEnum.MODEL_TRAIN));
+    }
+
+    @Test
+    void globalLimitStopsPolling() {
+        TaskQueue queue = queue(2, Map.of());
+        for (int i = 0; i < 3; i++) {
+            queue.offer(task(TaskTypeEnum.DATA_FETCH, 5));
+        }
+
+        QueuedTask first = queue.poll();
+        queue.poll();
+        assertNull(queue.poll());
+
+        queue.release(first);
+        assertEquals(TaskTypeEnum.DATA_FETCH, queue.poll().getTaskType());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void cancelledTaskIsNeverPolled() {
+        TaskQueue queue = queue(10, Map.of());
+        QueuedTask cancelled = task(TaskTypeEnum.FEATURE_CALC, 9);
+        QueuedTask kept = task(TaskTypeEnum.FEATURE_CALC, 1);
+        queue.offer(cancelled);
+        queue.offer(kept);
+
+        assertTrue(queue.cancel(cancelled.getTaskId()));
+        assertTrue(cancelled.getFuture().isDone());
+        assertNull(cancelled.getFuture().join());
+        assertEquals(1, queue.pendingCount(TaskTypeEnum.FEATURE_CALC));
+
+        assertSame(kept, queue.poll());
+        assertNull(queue.poll());
+        assertEquals(0, queue.pendingCount(TaskTypeEnum.FEATURE_CALC));
+        // 重复取消、取消已出队的任务都不再计数
+        assertFalse(queue.cancel(cancelled.getTaskId()));
+        assertFalse(queue.cancel(kept.getTaskId()));
+        assertEquals(0, queue.pendingCount(TaskTypeEnum.FEATURE_CALC));
+    }
+
+    @Test
+    void cancelRacingWithPollCountsOnce() {
+        TaskQueue queue = queue(10, Map.of());
+        QueuedTask task = task(TaskTypeEnum.FEATURE_CALC, 5);
+        queue.offer(task);
+
+        // 在 poll 取出任务之后、确认出队之前被取消（准入检查期间发生取消）
+        QueuedTask polled = queue.poll(candidate -> {
+            queue.cancel(candidate.getTaskId());
+            return true;
+        });
+
+        assertNull(polled);
+        assertNull(task.getFuture().join());
+        assertEquals(0, queue.pendingCount(TaskTypeEnum.FEATURE_CALC));
+        assertEquals(0, queue.runningCount());
+        assertFalse(queue.contains(task.getTaskId()));
+
+        // 通道计数没有被重复扣减，新任务仍能正常出队
+        QueuedTask next = task(TaskTypeEnum.FEATURE_CALC, 5);
+        queue.offer(next);
+        assertEquals(1, queue.pendingCount(TaskTypeEnum.FEATURE_CALC));
+        assertSame(next, queue.poll());
+        assertEquals(0, queue.pendingCount(TaskTypeEnum.FEATURE_CALC));
+    }
+
+    @Test
+    void admissionRejectingLaneHeadTriesNextLane() {
+        TaskQueue queue = queue(10, Map.of(TaskTypeEnum.FEATURE_CALC, lane(10, null), TaskTypeEnum.DATA_FETCH, lane(1, null)));
+        QueuedTask heavy = new QueuedTask(nextTaskId++, TaskTypeEnum.FEATURE_CALC, 9, "feature", List.of(), 8192);
+        QueuedTask light = new QueuedTask(nextTaskId++, TaskTypeEnum.FEATURE_CALC, 1, "feature", List.of(), 64);
+        QueuedTask other = new QueuedTask(nextTaskId++, TaskTypeEnum.DATA_FETCH, 5, "fetch", List.of(), 64);
+        queue.offer(heavy);
+        queue.offer(light);
+        queue.offer(other);
+
+        // 同通道内不为准入而越过优先级更高的任务
+        assertSame(other, queue.poll(task -> task.getExpectedMemoryMb() < 1024));
+        assertNull(queue.poll(task -> task.getExpectedMemoryMb() < 1024));
+        assertEquals(2, queue.pendingCount(TaskTypeEnum.FEATURE_CALC));
+
+        assertSame(heavy, queue.poll());
+        assertSame(light, queue.poll());
+    }
+
+    @Test
+    void releaseTaskIsIdempotent() {
+        TaskQueue queue = queue(10, Map.of(TaskTypeEnum.MODEL_TRAIN, lane(1, 1)));
+        queue.offer(task(TaskTypeEnum.MODEL_TRAIN, 5));
+        queue.offer(task(TaskTypeEnum.MODEL_TRAIN, 5));
+        queue.offer(task(TaskTypeEnum.MODEL_TRAIN, 5));
+
+        QueuedTask first = queue.poll();
+        assertNull(queue.poll());
+
+        queue.release(first);
+        queue.release(first);
+        assertEquals(0, queue.runningCount());
+        assertEquals(0, queue.runningCount(TaskTypeEnum.MODEL_TRAIN));
+
+        // 重复释放没有多让出槽位，通道上限仍为 1
+        QueuedTask second = queue.poll();
+        assertEquals(TaskTypeEnum.MODEL_TRAIN, second.getTaskType());
+        assertNull(queue.poll());
+        assertEquals(1, queue.runningCount());
+    }
+
+    @Test
+    void laneDefaultMemoryAppliedOnOffer() {
+        TaskQueueConfig.Lane lane = lane(1, null);
+        lane.setExpectedMemoryMb(4096);
+        TaskQueue queue = queue(10, Map.of(TaskTypeEnum.MODEL_TRAIN, lane));
+        QueuedTask undeclared = task(TaskTypeEnum.MODEL_TRAIN, 5);
+        QueuedTask declared = new QueuedTask(nextTaskId++, TaskTypeEnum.MODEL_TRAIN, 5, "train", List.of(), 256);
+        queue.offer(undeclared);
+        queue.offer(declared);
+
+        assertEquals(4096, undeclared.getExpectedMemoryMb());
+        assertEquals(256, declared.getExpectedMemoryMb());
+    }
+
+    private QueuedTask task(TaskTypeEnum type, int priority) {
+        return new QueuedTask(nextTaskId++, type, priority, type.name().toLowerCase(), List.of(), null);
+    }
+
+    private static TaskQueueConfig.Lane lane(int weight, Integer maxConcurrency) {
+        TaskQueueConfig.Lane lane = new TaskQueueConfig.Lane();
+        lane.setWeight(weight);
+        lane.setMaxConcurrency(maxConcurrency);
+        return lane;
+    }
+
+    /**
+     * @param lanes 未给出的任务类型使用默认通道配置（权重 1，只受全局上限约束）
+     */
+    private static TaskQueue queue(int maxConcurrent, Map<TaskTypeEnum, TaskQueueConfig.Lane> lanes) {
+        TaskQueueConfig config = new TaskQueueConfig();
+        config.getLanes().putAll(lanes);
+        PythonConfig pythonConfig = new PythonConfig();
+        pythonConfig.getExecution().setMaxConcurrentTasks(maxConcurrent);
+        return new TaskQueue(config, pythonConfig);
+    }
+}
@@ -0,0 +1,173 @@
+package com.ningshenquantlab.alphaforge_demo1.executor;
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputCollectorTest {
+
+    private static final Long TASK_ID = 7L;
+
+    private final List<OutputLine> delivered = new ArrayList<>();
+    private final List<String> progress = new ArrayList<>();
+
+    @Test
+    void linesSplitAcrossChunksAreReassembled() {
+        OutputCollector collector = collector(1024, 100);
+        // 每 3 字节一块，行尾和多字节 UTF-8 字符都会被切断
+        feed(collector.stdout(), "hello\n计算完成 600519.SH\n\nlast\n", 3);
+
+        assertEquals(List.of("hello", "计算完成 600519.SH", "", "last"), contents(delivered));
+        assertEquals(4L, collector.getLines(LogTypeEnum.STDOUT));
+        assertEquals("hello\n计算完成 600519.SH\n\nlast\n".getBytes(StandardCharsets.UTF_8).length,
+                collector.getBytes(LogTypeEnum.STDOUT));
+    }
+
+    @Test
+    void crLfCountsAsOneLineEnd() {
+        OutputCollector collector = collector(1024, 100);
+        feed(collector.stdout(), "a\r\nb\rc\n", 64);
+        // "\r" 和 "\n" 分在两块中也只算一次
+        feed(collector.stdout(), "d\r", 64);
+        feed(collector.stdout(), "\ne\n", 64);
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), contents(delivered));
+        assertEquals(5L, collector.getLines(LogTypeEnum.STDOUT));
+        assertEquals("a\nb\nc\nd\ne\n", collector.text(LogTypeEnum.STDOUT));
+    }
+
+    @Test
+    void ringWrapAroundKeepsLatestLines() {
+        // 16 字节的环形区，9 行共 27 字节，L6 跨越环形区末尾
+        OutputCollector collector = collector(16, 100);
+        feed(collector.stdout(), "L1\nL2\nL3\nL4\nL5\nL6\nL7\nL8\nL9\n", 5);
+
+        // 监听器在行结束时解码，此时整行都还在环形区中
+        assertEquals(List.of("L1", "L2", "L3", "L4", "L5", "L6", "L7", "L8", "L9"), contents(delivered));
+        assertEquals(9L, collector.getLines(LogTypeEnum.STDOUT));
+        assertEquals(27L, collector.getBytes(LogTypeEnum.STDOUT));
+        // 字节已被覆盖的旧行不再返回
+        assertEquals(List.of("L5", "L6", "L7", "L8", "L9"), contents(collector.tail(100)));
+        assertEquals(List.of("L8", "L9"), contents(collector.tail(2)));
+        assertEquals("L5\nL6\nL7\nL8\nL9\n", collector.text(LogTypeEnum.STDOUT));
+    }
+
+    @Test
+    void lineIndexRingKeepsLatestLines() {
+        OutputCollector collector = collector(1024, 3);
+        feed(collector.stdout(), "1\n2\n3\n4\n5\n", 4);
+
+        assertEquals(5L, collector.getLines(LogTypeEnum.STDOUT));
+        assertEquals(List.of("3", "4", "5"), contents(collector.tail(10)));
+        assertEquals("3\n4\n5\n", collector.text(LogTypeEnum.STDOUT));
+    }
+
+    @Test
+    void lineLongerThanArenaIsTruncatedToLatestBytes() {
+        OutputCollector collector = collector(8, 100);
+        feed(collector.stdout(), "0123456789ABCDEF\nok\n", 5);
+
+        assertEquals(2, delivered.size());
+        // 超长行只保留环形区中尚未被覆盖的末尾部分
+        String truncated = delivered.get(0).getContent();
+        assertTrue(truncated.length() < 8);
+        assertTrue("0123456789ABCDEF".endsWith(truncated));
+        // 后续行不受影响
+        assertEquals("ok", delivered.get(1).getContent());
+        assertEquals("ok", collector.tail(1).get(0).getContent());
+    }
+
+    @Test
+    void progressLinesAreStrippedFromOutput() {
+        OutputCollector collector = collector(1024, 100);
+        collector.addProgressListener((taskId, payload) -> progress.add(payload));
+        // 前缀被切断在两块之间
+        feed(collector.stdout(), "step 1\n##PROGRESS {\"percent\": 10}\nstep 2\r\n##PROG", 9);
+        feed(collector.stdout(), "RESS {\"percent\": 20}\n##PROGRESSX\n", 9);
+        // stderr 中的同样内容按普通输出处理
+        feed(collector.stderr(), "##PROGRESS {\"percent\": 30}\n", 64);
+
+        assertEquals(List.of("{\"percent\": 10}", "{\"percent\": 20}"), progress);
+        assertEquals(List.of("step 1", "step 2", "##PROGRESSX", "##PROGRESS {\"percent\": 30}"), contents(delivered));
+        assertEquals(3L, collector.getLines(LogTypeEnum.STDOUT));
+        assertEquals("step 1\nstep 2\n##PROGRESSX\n", collector.text(LogTypeEnum.STDOUT));
+        assertEquals(List.of("step 1", "step 2", "##PROGRESSX", "##PROGRESS {\"percent\": 30}"), contents(collector.tail(10)));
+    }
+
+    @Test
+    void progressLinesAreKeptWithoutProgressListener() {
+        OutputCollector collector = collector(1024, 100);
+        feed(collector.stdout(), "##PROGRESS {\"percent\": 10}\n", 64);
+
+        assertEquals(List.of("##PROGRESS {\"percent\": 10}"), contents(delivered));
+    }
+
+    @Test
+    void eofFlushesPartialLastLine() {
+        OutputCollector collector = collector(1024, 100);
+        feed(collector.stdout(), "first\ndo", 64);
+        feed(collector.stdout(), "ne", 64);
+
+        assertEquals(List.of("first"), contents(delivered));
+        // 未结束的最后一行只出现在 text 中
+        assertEquals("first\ndone", collector.text(LogTypeEnum.STDOUT));
+        assertEquals(List.of("first"), contents(collector.tail(10)));
+
+        collector.stdout().onEof();
+        collector.stdout().onEof();
+        assertEquals(List.of("first", "done"), contents(delivered));
+        assertEquals(2L, collector.getLines(LogTypeEnum.STDOUT));
+        assertEquals("first\ndone\n", collector.text(LogTypeEnum.STDOUT));
+
+        // 以换行结尾时 EOF 不产生空行
+        feed(collector.stderr(), "err\n", 64);
+        collector.stderr().onEof();
+        assertEquals(1L, collector.getLines(LogTypeEnum.STDERR));
+    }
+
+    @Test
+    void tailMergesStreamsInArrivalOrder() {
+        OutputCollector collector = collector(1024, 100);
+        feed(collector.stdout(), "o1\n", 64);
+        feed(collector.stderr(), "e1\n", 64);
+        feed(collector.stdout(), "o2\n", 64);
+        feed(collector.stderr(), "e2\n", 64);
+
+        List<OutputLine> tail = collector.tail(3);
+        assertEquals(List.of("e1", "o2", "e2"), contents(tail));
+        assertEquals(LogTypeEnum.STDERR, tail.get(0).getType());
+        assertEquals(LogTypeEnum.STDOUT, tail.get(1).getType());
+        assertTrue(tail.get(0).getSeq() < tail.get(1).getSeq());
+        assertEquals("e1\ne2\n", collector.text(LogTypeEnum.STDERR));
+    }
+
+    private OutputCollector collector(int tailBytes, int tailLines) {
+        OutputCollector collector = new OutputCollector(TASK_ID, tailBytes, tailLines);
+        collector.addListener((taskId, line) -> {
+            assertEquals(TASK_ID, taskId);
+            delivered.add(line);
+        });
+        return collector;
+    }
+
+    /**
+     * 按 chunkSize 字节切块写入，模拟抽取线程每次读到的一段输出
+     */
+    private static void feed(StreamSink sink, String text, int chunkSize) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int from = 0; from < bytes.length; from += chunkSize) {
+            sink.onData(ByteBuffer.wrap(bytes, from, Math.min(chunkSize, bytes.length - from)));
+        }
+    }
+
+    private static List<String> contents(List<OutputLine> lines) {
+        return lines.stream().map(OutputLine::getContent).toList();
+    }
+}
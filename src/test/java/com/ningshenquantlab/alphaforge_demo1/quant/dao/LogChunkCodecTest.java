@@ -0,0 +1,122 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.dao;
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLog;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLogChunk;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogChunkCodecTest {
+
+    private static final Long TASK_ID = 42L;
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 9, 30, 0, 123_000_000);
+
+    @Test
+    void roundTripKeepsTypeTimeAndContent() {
+        LogChunkBuffer buffer = new LogChunkBuffer(TASK_ID, 0, 1, 4096);
+        buffer.append(line(LogTypeEnum.STDOUT, "开始计算 600000.SH", 0));
+        buffer.append(line(LogTypeEnum.STDERR, "", 1));
+        buffer.append(new TaskLog(null, TASK_ID, LogTypeEnum.INFO.name(), null, T0.plusSeconds(2)));
+        buffer.append(line(LogTypeEnum.ERROR, "Traceback (most recent call last):", 3));
+        TaskLogChunk chunk = buffer.seal();
+
+        assertEquals(TASK_ID, chunk.getTaskId());
+        assertEquals(0, (int) chunk.getChunkSeq());
+        assertEquals(1L, (long) chunk.getFirstLineNo());
+        assertEquals(4, (int) chunk.getLineCount());
+        assertTrue(chunk.getContent().length > 0);
+
+        List<TaskLog> lines = LogChunkCodec.decode(chunk, 1, Long.MAX_VALUE);
+        assertEquals(4, lines.size());
+        assertLine(lines.get(0), 1, LogTypeEnum.STDOUT, "开始计算 600000.SH", T0);
+        assertLine(lines.get(1), 2, LogTypeEnum.STDERR, "", T0.plusSeconds(1));
+        // null 内容按空串存储
+        assertLine(lines.get(2), 3, LogTypeEnum.INFO, "", T0.plusSeconds(2));
+        assertLine(lines.get(3), 4, LogTypeEnum.ERROR, "Traceback (most recent call last):", T0.plusSeconds(3));
+    }
+
+    @Test
+    void decodeRespectsLineRangeAndTypeFilter() {
+        TaskLogChunk chunk = chunkOf(101, 20);
+
+        List<TaskLog> range = LogChunkCodec.decode(chunk, 105, 108);
+        assertEquals(List.of(105L, 106L, 107L, 108L), lineNos(range));
+        assertEquals("line-105", range.get(0).getLogContent());
+
+        // 区间超出块的两端时只返回块内的行
+        assertEquals(20, LogChunkCodec.decode(chunk, 1, 1000).size());
+        assertEquals(0, LogChunkCodec.decode(chunk, 121, 200).size());
+        assertEquals(0, LogChunkCodec.decode(chunk, 1, 100).size());
+
+        // 奇数行号为 STDOUT，偶数行号为 STDERR，被跳过的行不影响后续行的解码
+        List<TaskLog> stderr = LogChunkCodec.decode(chunk, 103, 110, LogTypeEnum.STDERR);
+        assertEquals(List.of(104L, 106L, 108L, 110L), lineNos(stderr));
+        for (TaskLog line : stderr) {
+            assertEquals(LogTypeEnum.STDERR.name(), line.getLogType());
+            assertEquals("line-" + line.getId(), line.getLogContent());
+        }
+        assertEquals(0, LogChunkCodec.decode(chunk, 101, 120, LogTypeEnum.INFO).size());
+    }
+
+    @Test
+    void sealContinuesChunkSeqAndLineNumbers() {
+        // 续写已有日志（如空闲回收后重新打开）：从数据库中最后一块之后继续编号
+        LogChunkBuffer buffer = new LogChunkBuffer(TASK_ID, 3, 51, 4096);
+        for (int i = 0; i < 5; i++) {
+            buffer.append(line(LogTypeEnum.STDOUT, "a" + i, i));
+        }
+        TaskLogChunk first = buffer.seal();
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.size());
+        for (int i = 0; i < 3; i++) {
+            buffer.append(line(LogTypeEnum.STDOUT, "b" + i, i));
+        }
+        TaskLogChunk second = buffer.seal();
+
+        assertEquals(3, (int) first.getChunkSeq());
+        assertEquals(51L, (long) first.getFirstLineNo());
+        assertEquals(5, (int) first.getLineCount());
+        assertEquals(4, (int) second.getChunkSeq());
+        assertEquals(56L, (long) second.getFirstLineNo());
+        assertEquals(3, (int) second.getLineCount());
+
+        List<TaskLog> decoded = LogChunkCodec.decode(second, 0, Long.MAX_VALUE);
+        assertEquals(List.of(56L, 57L, 58L), lineNos(decoded));
+        assertEquals("b0", decoded.get(0).getLogContent());
+    }
+
+    /**
+     * 行号从 firstLineNo 开始的 lineCount 行，内容为 line-行号，奇数行 STDOUT、偶数行 STDERR
+     */
+    private static TaskLogChunk chunkOf(long firstLineNo, int lineCount) {
+        LogChunkBuffer buffer = new LogChunkBuffer(TASK_ID, 0, firstLineNo, 4096);
+        for (int i = 0; i < lineCount; i++) {
+            long lineNo = firstLineNo + i;
+            buffer.append(line(lineNo % 2 == 1 ? LogTypeEnum.STDOUT : LogTypeEnum.STDERR, "line-" + lineNo, i));
+        }
+        return buffer.seal();
+    }
+
+    private static TaskLog line(LogTypeEnum type, String content, int seconds) {
+        return new TaskLog(null, TASK_ID, type.name(), content, T0.plusSeconds(seconds));
+    }
+
+    private static List<Long> lineNos(List<TaskLog> lines) {
+        return lines.stream().map(TaskLog::getId).toList();
+    }
+
+    private static void assertLine(TaskLog line, long lineNo, LogTypeEnum type, String content, LocalDateTime time) {
+        assertEquals(lineNo, (long) line.getId());
+        assertEquals(TASK_ID, line.getTaskId());
+        assertEquals(type.name(), line.getLogType());
+        assertEquals(content, line.getLogContent());
+        // 时间按毫秒存储
+        assertEquals(time.truncatedTo(ChronoUnit.MILLIS), line.getLogTime());
+    }
+}
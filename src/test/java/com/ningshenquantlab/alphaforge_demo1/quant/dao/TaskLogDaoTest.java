@@ -0,0 +1,217 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.dao;
+
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogStorageModeEnum;
+import com.ningshenquantlab.alphaforge_demo1.common.enums.LogTypeEnum;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLog;
+import com.ningshenquantlab.alphaforge_demo1.quant.entity.TaskLogChunk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CHUNK 模式下的写入与读取，日志块保存在内存中（InMemoryChunkDao 按 TaskLogChunkDao 中 SQL 的语义实现）
+ */
+class TaskLogDaoTest {
+
+    private final InMemoryChunkDao chunkDao = new InMemoryChunkDao();
+    private TaskLogDao taskLogDao;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (taskLogDao != null) {
+            taskLogDao.shutdown();
+        }
+    }
+
+    @Test
+    void idleFlushThenReopenContinuesChunkSeqAndLineNumbers() {
+        // 块足够大，只有空闲超时才会写出
+        taskLogDao = start(1 << 20, 50);
+        append(1L, 1, 3);
+        append(2L, 1, 2);
+        await(() -> chunkDao.chunks(1L).size() == 1 && chunkDao.chunks(2L).size() == 1);
+
+        // 空闲回收缓冲区之后的新输出从数据库中最后一块续上
+        append(1L, 4, 2);
+        taskLogDao.flushTask(1L);
+        await(() -> chunkDao.chunks(1L).size() == 2);
+
+        List<TaskLogChunk> chunks = chunkDao.chunks(1L);
+        assertEquals(0, (int) chunks.get(0).getChunkSeq());
+        assertEquals(1L, (long) chunks.get(0).getFirstLineNo());
+        assertEquals(3, (int) chunks.get(0).getLineCount());
+        assertEquals(1, (int) chunks.get(1).getChunkSeq());
+        assertEquals(4L, (long) chunks.get(1).getFirstLineNo());
+        assertEquals(2, (int) chunks.get(1).getLineCount());
+        // 其他任务的行号独立编号
+        assertEquals(1L, (long) chunkDao.chunks(2L).get(0).getFirstLineNo());
+
+        List<TaskLog> lines = taskLogDao.findLines(1L, 1, Long.MAX_VALUE);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), lineNos(lines));
+        assertEquals("line-5", lines.get(4).getLogContent());
+    }
+
+    @Test
+    void slowSteadyOutputIsReadableWhileRunning() {
+        // 块足够大，每 20ms 一行，不会空闲超时，只能靠块的累积时间上限写出
+        taskLogDao = start(1 << 20, 100);
+        long lineNo = 1;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (chunkDao.lineCount(1L) == 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "运行中任务的日志一直不可读");
+            append(1L, lineNo++, 1);
+            sleep(20);
+        }
+        List<TaskLog> page = taskLogDao.findPage(1L, 1, 100, null);
+        assertEquals(1L, (long) page.get(0).getId());
+        assertEquals(List.of(page.get(page.size() - 1).getId()), lineNos(taskLogDao.findTail(1L, 1, null)));
+
+        // 缓冲区一直保留，后续的块接着编号
+        append(1L, lineNo, 1);
+        taskLogDao.flushTask(1L);
+        long last = lineNo;
+        await(() -> chunkDao.lineCount(1L) == last);
+        List<TaskLogChunk> chunks = chunkDao.chunks(1L);
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals(i, (int) chunks.get(i).getChunkSeq());
+        }
+        assertEquals(last, taskLogDao.findLines(1L, 1, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void findPageAndTailAcrossChunks() {
+        // 块很小（每块约 2 行），30 行分散在十几个块中，多于一次扫描的 CHUNK_SCAN_BATCH
+        taskLogDao = start(40, 60_000);
+        append(1L, 1, 30);
+        taskLogDao.flushTask(1L);
+        await(() -> chunkDao.lineCount(1L) == 30);
+        assertTrue(chunkDao.chunks(1L).size() > 8);
+
+        assertEquals(List.of(5L, 6L, 7L, 8L), lineNos(taskLogDao.findPage(1L, 5, 4, null)));
+        assertEquals(List.of(2L, 4L, 6L, 8L, 10L), lineNos(taskLogDao.findPage(1L, 1, 5, LogTypeEnum.STDERR)));
+        assertEquals(List.of(25L, 27L, 29L), lineNos(taskLogDao.findPage(1L, 24, 10, LogTypeEnum.STDOUT)));
+        assertEquals(List.of(29L, 30L), lineNos(taskLogDao.findPage(1L, 29, 10, null)));
+        assertEquals(List.of(), lineNos(taskLogDao.findPage(1L, 31, 10, null)));
+
+        assertEquals(List.of(28L, 29L, 30L), lineNos(taskLogDao.findTail(1L, 3, null)));
+        assertEquals(List.of(25L, 27L, 29L), lineNos(taskLogDao.findTail(1L, 3, LogTypeEnum.STDOUT)));
+        assertEquals(30, taskLogDao.findTail(1L, 100, null).size());
+
+        assertEquals(List.of(12L, 13L, 14L), lineNos(taskLogDao.findLines(1L, 12, 14)));
+    }
+
+    private TaskLogDao start(int chunkSizeBytes, long chunkFlushMs) {
+        TaskLogDao dao = new TaskLogDao(null, chunkDao, 1000, 500, 10,
+                LogStorageModeEnum.CHUNK, chunkSizeBytes, chunkFlushMs);
+        dao.start();
+        return dao;
+    }
+
+    /**
+     * 追加行号 fromLine 起的 count 行，内容为 line-行号，奇数行 STDOUT、偶数行 STDERR
+     */
+    private void append(Long taskId, long fromLine, int count) {
+        for (long lineNo = fromLine; lineNo < fromLine + count; lineNo++) {
+            LogTypeEnum type = lineNo % 2 == 1 ? LogTypeEnum.STDOUT : LogTypeEnum.STDERR;
+            assertTrue(taskLogDao.append(new TaskLog(null, taskId, type.name(), "line-" + lineNo, LocalDateTime.now())));
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("等待日志块写入超时");
+            }
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<Long> lineNos(List<TaskLog> lines) {
+        return lines.stream().map(TaskLog::getId).toList();
+    }
+
+    private static final class InMemoryChunkDao extends TaskLogChunkDao {
+        private final List<TaskLogChunk> chunks = new ArrayList<>();
+
+        private InMemoryChunkDao() {
+            super(null);
+        }
+
+        synchronized List<TaskLogChunk> chunks(Long taskId) {
+            return chunks.stream()
+                    .filter(chunk -> chunk.getTaskId().equals(taskId))
+                    .sorted(Comparator.comparing(TaskLogChunk::getFirstLineNo))
+                    .toList();
+        }
+
+        synchronized int lineCount(Long taskId) {
+            return chunks(taskId).stream().mapToInt(TaskLogChunk::getLineCount).sum();
+        }
+
+        @Override
+        public synchronized void batchInsert(List<TaskLogChunk> inserted) {
+            chunks.addAll(inserted);
+        }
+
+        @Override
+        public synchronized TaskLogChunk findLast(Long taskId) {
+            List<TaskLogChunk> list = chunks(taskId);
+            return list.isEmpty() ? null : list.get(list.size() - 1);
+        }
+
+        @Override
+        public synchronized List<TaskLogChunk> findCovering(Long taskId, long fromLine, long toLine) {
+            long start = containing(taskId, fromLine);
+            return chunks(taskId).stream()
+                    .filter(chunk -> chunk.getFirstLineNo() >= start && chunk.getFirstLineNo() <= toLine)
+                    .toList();
+        }
+
+        @Override
+        public synchronized List<TaskLogChunk> findFrom(Long taskId, long fromLine, int maxChunks) {
+            long start = containing(taskId, fromLine);
+            return chunks(taskId).stream()
+                    .filter(chunk -> chunk.getFirstLineNo() >= start)
+                    .limit(maxChunks)
+                    .toList();
+        }
+
+        @Override
+        public synchronized List<TaskLogChunk> findBefore(Long taskId, long beforeLine, int maxChunks) {
+            return chunks(taskId).stream()
+                    .filter(chunk -> chunk.getFirstLineNo() < beforeLine)
+                    .sorted(Comparator.comparing(TaskLogChunk::getFirstLineNo).reversed())
+                    .limit(maxChunks)
+                    .toList();
+        }
+
+        /**
+         * COALESCE(MAX(first_line_no), 0) ... WHERE first_line_no <= line
+         */
+        private long containing(Long taskId, long line) {
+            return chunks(taskId).stream()
+                    .mapToLong(TaskLogChunk::getFirstLineNo)
+                    .filter(first -> first <= line)
+                    .max()
+                    .orElse(0);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.ningshenquantlab.alphaforge_demo1.quant.service;
+
+import com.ningshenquantlab.alphaforge_demo1.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeatureServiceTest {
+
+    // 2025-03-03 是周一
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+
+    @Test
+    void tradingDaysSkipsWeekends() {
+        List<LocalDate> days = FeatureService.tradingDays(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 10));
+
+        assertEquals(List.of(MONDAY, day(1), day(2), day(3), day(4), day(7)), days);
+        assertEquals(List.of(day(4)), FeatureService.tradingDays(day(4), day(4)));
+    }
+
+    @Test
+    void tradingDaysRejectsRangeWithoutTradingDay() {
+        assertThrows(BusinessException.class, () -> FeatureService.tradingDays(day(5), day(6)));
+    }
+
+    @Test
+    void splitRangesSingleShardKeepsContiguousDaysTogether() {
+        List<LocalDate> tradingDays = FeatureService.tradingDays(MONDAY, day(11));
+
+        List<LocalDate[]> ranges = FeatureService.splitRanges(tradingDays, tradingDays, 1);
+
+        assertEquals(1, ranges.size());
+        assertEquals(MONDAY, ranges.get(0)[0]);
+        assertEquals(day(11), ranges.get(0)[1]);
+    }
+
+    @Test
+    void splitRangesRespectsShardSize() {
+        // 10 个交易日分 3 片，每片最多 ceil(10/3)=4 天
+        List<LocalDate> tradingDays = FeatureService.tradingDays(MONDAY, day(11));
+
+        List<LocalDate[]> ranges = FeatureService.splitRanges(tradingDays, tradingDays, 3);
+
+        assertEquals(List.of(4, 4, 2), dayCounts(tradingDays, ranges));
+        // 分片首尾都是交易日，第二片跨过周末（03-07 周五 至 03-12 周三）
+        assertEquals(List.of(MONDAY, day(3), day(4), day(9), day(10), day(11)), bounds(ranges));
+        assertCovers(tradingDays, tradingDays, 3, ranges);
+    }
+
+    @Test
+    void splitRangesNeverSpansMaterializedDay() {
+        List<LocalDate> tradingDays = FeatureService.tradingDays(MONDAY, day(11));
+        // 03-06、03-11 已计算
+        List<LocalDate> pendingDays = without(tradingDays, day(3), day(8));
+
+        for (int shards = 1; shards <= 10; shards++) {
+            assertCovers(tradingDays, pendingDays, shards, FeatureService.splitRanges(tradingDays, pendingDays, shards));
+        }
+        List<LocalDate[]> ranges = FeatureService.splitRanges(tradingDays, pendingDays, 1);
+        assertEquals(List.of(MONDAY, day(2), day(4), day(7), day(9), day(11)), bounds(ranges));
+    }
+
+    @Test
+    void splitRangesWithMoreShardsThanPendingDays() {
+        List<LocalDate> tradingDays = FeatureService.tradingDays(MONDAY, day(11));
+        List<LocalDate> pendingDays = List.of(day(1), day(2), day(9));
+
+        List<LocalDate[]> ranges = FeatureService.splitRanges(tradingDays, pendingDays, 8);
+
+        // 每片 1 天，分片数不超过待计算天数
+        assertEquals(List.of(day(1), day(1), day(2), day(2), day(9), day(9)), bounds(ranges));
+        assertCovers(tradingDays, pendingDays, 8, ranges);
+        assertTrue(FeatureService.splitRanges(tradingDays, List.of(), 8).isEmpty());
+    }
+
+    /**
+     * 分片恰好覆盖所有待计算的交易日各一次，不包含已计算的交易日，每片不超过 ceil(待计算天数 / shards) 天
+     */
+    private static void assertCovers(List<LocalDate> tradingDays, List<LocalDate> pendingDays,
+                                     int shards, List<LocalDate[]> ranges) {
+        int size = (pendingDays.size() + shards - 1) / shards;
+        List<LocalDate> covered = new ArrayList<>();
+        for (LocalDate[] range : ranges) {
+            assertFalse(range[0].isAfter(range[1]));
+            assertTrue(tradingDays.contains(range[0]));
+            assertTrue(tradingDays.contains(range[1]));
+            List<LocalDate> days = daysIn(tradingDays, range);
+            assertTrue(pendingDays.containsAll(days), "分片跨越了已计算的交易日: " + range[0] + " - " + range[1]);
+            assertTrue(days.size() <= size, "分片超过 " + size + " 天: " + range[0] + " - " + range[1]);
+            covered.addAll(days);
+        }
+        assertEquals(pendingDays, covered);
+    }
+
+    private static List<Integer> dayCounts(List<LocalDate> tradingDays, List<LocalDate[]> ranges) {
+        return ranges.stream().map(range -> daysIn(tradingDays, range).size()).toList();
+    }
+
+    private static List<LocalDate> daysIn(List<LocalDate> tradingDays, LocalDate[] range) {
+        return tradingDays.stream().filter(day -> !day.isBefore(range[0]) && !day.isAfter(range[1])).toList();
+    }
+
+    private static List<LocalDate> bounds(List<LocalDate[]> ranges) {
+        List<LocalDate> bounds = new ArrayList<>();
+        for (LocalDate[] range : ranges) {
+            bounds.add(range[0]);
+            bounds.add(range[1]);
+        }
+        return bounds;
+    }
+
+    private static List<LocalDate> without(List<LocalDate> days, LocalDate... excluded) {
+        List<LocalDate> result = new ArrayList<>(days);
+        result.removeAll(List.of(excluded));
+        return result;
+    }
+
+    private static LocalDate day(int offset) {
+        return MONDAY.plusDays(offset);
+    }
+}